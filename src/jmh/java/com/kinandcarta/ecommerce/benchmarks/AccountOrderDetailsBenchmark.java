@@ -0,0 +1,30 @@
+package com.kinandcarta.ecommerce.benchmarks;
+
+import com.kinandcarta.ecommerce.entities.AccountOrderDetails;
+import com.kinandcarta.ecommerce.entities.Orders;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountOrderDetailsBenchmark {
+    @Param({"10", "100", "1000"})
+    int lineItems;
+
+    Orders order;
+
+    @Setup
+    public void setUp() {
+        order = BenchmarkModels.order(1L, lineItems);
+    }
+
+    @Benchmark
+    public AccountOrderDetails construct() {
+        return new AccountOrderDetails(order);
+    }
+}
@@ -0,0 +1,72 @@
+package com.kinandcarta.ecommerce.benchmarks;
+
+import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersAccount;
+import com.kinandcarta.ecommerce.entities.OrdersAddress;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+    Fixed, persisted-looking aggregates (ids assigned) so every run measures the same shapes.
+ */
+final class BenchmarkModels {
+    private static final Instant ORDER_DATE = Instant.parse("2023-09-01T12:00:00Z");
+
+    private BenchmarkModels() {
+    }
+
+    static Orders order(final long id, final int lineItems) {
+        OrdersAddress address = address(id);
+        return Orders.builder()
+                .id(id)
+                .ordersAccount(OrdersAccount.builder()
+                        .id(id)
+                        .accountRefId("4f464483-a1f0-4ce9-a19e-" + String.format("%012d", id))
+                        .firstName("DukeFirstName")
+                        .lastName("DukeLastName")
+                        .emailAddress("duke" + id + "@enjoy.com")
+                        .addresses(Set.of(address)).build())
+                .ordersShippingAddress(address)
+                .orderNumber("ord-" + String.format("%012d", id))
+                .orderDate(ORDER_DATE)
+                .createDateTime(ORDER_DATE)
+                .updateDateTime(ORDER_DATE)
+                .orderLineItems(lineItems(id * 100_000, lineItems)).build();
+    }
+
+    static Set<OrderLineItems> lineItems(final long firstId, final int count) {
+        Set<OrderLineItems> lineItems = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            lineItems.add(lineItem(firstId + i, i));
+        }
+        return lineItems;
+    }
+
+    static OrderLineItems lineItem(final long id, final int i) {
+        return OrderLineItems.builder()
+                .id(id)
+                .lineKey(new UUID(0L, id).toString())
+                .productId((long) (i % 97) + 1)
+                .quantity(i % 5 + 1)
+                .price(new BigDecimal(String.valueOf(i % 50 + 1) + "." + String.format("%02d", i % 100)))
+                .createDateTime(ORDER_DATE)
+                .updateDateTime(ORDER_DATE).build();
+    }
+
+    static OrdersAddress address(final long id) {
+        return OrdersAddress.builder()
+                .id(id)
+                .address1("100")
+                .address2("")
+                .city("Food Forest City")
+                .state("FL")
+                .province("")
+                .postalCode("33000")
+                .country("US").build();
+    }
+}
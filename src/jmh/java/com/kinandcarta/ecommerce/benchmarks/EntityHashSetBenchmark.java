@@ -0,0 +1,97 @@
+package com.kinandcarta.ecommerce.benchmarks;
+
+import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.Orders;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Entity equals/hashCode in the hash based collections the aggregates use (Set<OrderLineItems>, Set<Orders>).
+    The *ConstantHash benchmarks keep the previous line item contract (equals by id, one hash code for every
+    instance) as the baseline for the line_key business key. Orders still has that contract, it has no immutable
+    key besides the id.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityHashSetBenchmark {
+    @Param({"100", "1000", "10000"})
+    int size;
+
+    List<OrderLineItems> lineItems;
+    List<Orders> orders;
+    Set<OrderLineItems> lineItemSet;
+    Set<Orders> orderSet;
+    OrderLineItems lastLineItem;
+    Orders lastOrder;
+    List<ConstantHashLineItem> constantHashLineItems;
+    Set<ConstantHashLineItem> constantHashLineItemSet;
+    ConstantHashLineItem lastConstantHashLineItem;
+
+    @Setup
+    public void setUp() {
+        lineItems = new ArrayList<>(size);
+        orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lineItems.add(BenchmarkModels.lineItem(i + 1L, i));
+            orders.add(BenchmarkModels.order(i + 1L, 0));
+        }
+        lineItemSet = new HashSet<>(lineItems);
+        orderSet = new HashSet<>(orders);
+        lastLineItem = lineItems.get(size - 1);
+        lastOrder = orders.get(size - 1);
+        constantHashLineItems = lineItems.stream().map(lineItem -> new ConstantHashLineItem(lineItem.getId())).toList();
+        constantHashLineItemSet = new HashSet<>(constantHashLineItems);
+        lastConstantHashLineItem = constantHashLineItems.get(size - 1);
+    }
+
+    @Benchmark
+    public Set<OrderLineItems> buildLineItemSet() {
+        return new HashSet<>(lineItems);
+    }
+
+    @Benchmark
+    public boolean containsLineItem() {
+        return lineItemSet.contains(lastLineItem);
+    }
+
+    @Benchmark
+    public Set<Orders> buildOrdersSet() {
+        return new HashSet<>(orders);
+    }
+
+    @Benchmark
+    public boolean containsOrder() {
+        return orderSet.contains(lastOrder);
+    }
+
+    @Benchmark
+    public Set<ConstantHashLineItem> buildLineItemSetConstantHash() {
+        return new HashSet<>(constantHashLineItems);
+    }
+
+    @Benchmark
+    public boolean containsLineItemConstantHash() {
+        return constantHashLineItemSet.contains(lastConstantHashLineItem);
+    }
+
+    public record ConstantHashLineItem(Long id) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ConstantHashLineItem that && id != null && id.equals(that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return ConstantHashLineItem.class.hashCode();
+        }
+    }
+}
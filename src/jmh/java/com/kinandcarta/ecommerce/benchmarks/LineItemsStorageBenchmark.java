@@ -0,0 +1,141 @@
+package com.kinandcarta.ecommerce.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Line item storage before (JOIN_TABLE, orders_order_line_items) and after (FOREIGN_KEY, order_line_items.order_id)
+    the v1.10 migration, plain JDBC on an in-memory H2 so only the schema differs between the two.
+    insertOrder writes one order with its lines as JDBC batches and rolls back, the tables keep their size.
+    readLineItems reads the lines of one order, a different order each call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LineItemsStorageBenchmark {
+    private static final int ORDERS = 200;
+
+    public enum Mapping {
+        JOIN_TABLE(List.of(
+                "create table order_line_items (id bigint primary key, order_id bigint, product_id bigint not null, quantity int not null, price decimal(38, 2) not null, total_price decimal(38, 2))",
+                "create table orders_order_line_items (orders_id bigint not null, order_line_items_id bigint not null unique, primary key (orders_id, order_line_items_id), " +
+                        "foreign key (orders_id) references orders (id), foreign key (order_line_items_id) references order_line_items (id))"),
+                "select l.id, l.product_id, l.quantity, l.price, l.total_price from order_line_items l " +
+                        "join orders_order_line_items j on j.order_line_items_id = l.id where j.orders_id = ?"),
+        FOREIGN_KEY(List.of(
+                "create table order_line_items (id bigint primary key, order_id bigint not null, product_id bigint not null, quantity int not null, price decimal(38, 2) not null, total_price decimal(38, 2), " +
+                        "foreign key (order_id) references orders (id))",
+                "create index idx_order_line_items_order_id on order_line_items (order_id)"),
+                "select l.id, l.product_id, l.quantity, l.price, l.total_price from order_line_items l where l.order_id = ?");
+
+        final List<String> ddl;
+        final String selectLines;
+
+        Mapping(final List<String> ddl, final String selectLines) {
+            this.ddl = ddl;
+            this.selectLines = selectLines;
+        }
+    }
+
+    @Param({"JOIN_TABLE", "FOREIGN_KEY"})
+    Mapping mapping;
+
+    @Param({"10", "100", "1000"})
+    int lineItems;
+
+    Connection connection;
+    long nextId;
+    long readOrderId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:line_items_" + mapping + "_" + lineItems + ";DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table orders (id bigint primary key, order_number varchar(255) not null)");
+            for (String ddl : mapping.ddl) {
+                statement.execute(ddl);
+            }
+        }
+        connection.setAutoCommit(false);
+        for (int i = 0; i < ORDERS; i++) {
+            insert(nextId++, lineItems);
+            connection.commit();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        // back to auto-commit first, H2 fails the drop on a connection that rolled back its last insert
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public long insertOrder() throws SQLException {
+        long orderId = insert(ORDERS + 1_000_000L, lineItems);
+        connection.rollback();
+        return orderId;
+    }
+
+    @Benchmark
+    public void readLineItems(final Blackhole blackhole) throws SQLException {
+        readOrderId = (readOrderId + 1) % ORDERS;
+        try (PreparedStatement select = connection.prepareStatement(mapping.selectLines)) {
+            select.setLong(1, readOrderId);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    blackhole.consume(rows.getLong(1));
+                    blackhole.consume(rows.getBigDecimal(4));
+                }
+            }
+        }
+    }
+
+    private long insert(final long orderId, final int count) throws SQLException {
+        try (PreparedStatement order = connection.prepareStatement("insert into orders (id, order_number) values (?, ?)")) {
+            order.setLong(1, orderId);
+            order.setString(2, "ord-" + String.format("%012d", orderId));
+            order.executeUpdate();
+        }
+        long firstLineId = orderId * 10_000;
+        try (PreparedStatement line = connection.prepareStatement(
+                "insert into order_line_items (id, order_id, product_id, quantity, price, total_price) values (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                BigDecimal price = BigDecimal.valueOf(i % 50 + 1);
+                line.setLong(1, firstLineId + i);
+                // the join table mapping leaves order_id unset, as Hibernate did
+                if (mapping == Mapping.FOREIGN_KEY) line.setLong(2, orderId);
+                else line.setNull(2, Types.BIGINT);
+                line.setLong(3, i % 97 + 1);
+                line.setInt(4, i % 5 + 1);
+                line.setBigDecimal(5, price);
+                line.setBigDecimal(6, price.multiply(BigDecimal.valueOf(i % 5 + 1)));
+                line.addBatch();
+            }
+            line.executeBatch();
+        }
+        if (mapping == Mapping.JOIN_TABLE) {
+            try (PreparedStatement link = connection.prepareStatement(
+                    "insert into orders_order_line_items (orders_id, order_line_items_id) values (?, ?)")) {
+                for (int i = 0; i < count; i++) {
+                    link.setLong(1, orderId);
+                    link.setLong(2, firstLineId + i);
+                    link.addBatch();
+                }
+                link.executeBatch();
+            }
+        }
+        return orderId;
+    }
+}
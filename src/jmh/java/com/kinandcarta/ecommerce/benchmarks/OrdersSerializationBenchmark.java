@@ -0,0 +1,46 @@
+package com.kinandcarta.ecommerce.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kinandcarta.ecommerce.entities.AccountOrderDetails;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    Serialization through the ObjectMapper the service registers, the one responses are written with.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrdersSerializationBenchmark {
+    @Param({"10", "100", "1000"})
+    int lineItems;
+
+    ObjectMapper mapper;
+    Orders order;
+    AccountOrderDetails details;
+
+    @Setup
+    public void setUp() {
+        mapper = new OrdersConfiguration().mappingJackson2HttpMessageConverter().getObjectMapper();
+        order = BenchmarkModels.order(1L, lineItems);
+        order.sumLineItems(order.getOrderLineItems());
+        details = new AccountOrderDetails(order);
+    }
+
+    @Benchmark
+    public byte[] serializeOrders() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] serializeAccountOrderDetails() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(details);
+    }
+}
@@ -0,0 +1,76 @@
+package com.kinandcarta.ecommerce.benchmarks;
+
+import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersMoney;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+    sumLineItems (cents as longs, OrdersMoney) against the BigDecimal stream it replaced (sumLineItemsBigDecimal),
+    and the bare long loop a bulk job runs over prices already read as cents (sumMinorUnits).
+    Allocations per operation, gradle jmh -PjmhArgs='OrdersTotals -prof gc'
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrdersTotalsBenchmark {
+    @Param({"10", "100", "1000"})
+    int lineItems;
+
+    Orders order;
+    Set<OrderLineItems> orderLineItems;
+    OrderLineItems lineItem;
+    long[] pricesMinorUnits;
+    int[] quantities;
+
+    @Setup
+    public void setUp() {
+        order = BenchmarkModels.order(1L, lineItems);
+        orderLineItems = order.getOrderLineItems();
+        lineItem = BenchmarkModels.lineItem(7L, 42);
+        pricesMinorUnits = orderLineItems.stream().mapToLong(line -> OrdersMoney.toMinorUnits(line.getPrice())).toArray();
+        quantities = orderLineItems.stream().mapToInt(OrderLineItems::getQuantity).toArray();
+    }
+
+    @Benchmark
+    public BigDecimal sumLineItems() {
+        return order.sumLineItems(orderLineItems);
+    }
+
+    @Benchmark
+    public BigDecimal sumLineItemsBigDecimal() {
+        Set<OrderLineItems> items = new HashSet<>(orderLineItems.isEmpty() ? new HashSet<>() : orderLineItems);
+        Optional<BigDecimal> total = Optional.of(items.stream()
+                .map(line -> {
+                    BigDecimal lineTotal = line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
+                    line.setTotalPrice(lineTotal);
+                    return lineTotal;
+                })
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        order.setTotalPrice(total.orElse(BigDecimal.ZERO));
+        return total.orElse(BigDecimal.ZERO);
+    }
+
+    @Benchmark
+    public long sumMinorUnits() {
+        long total = 0L;
+        for (int i = 0; i < pricesMinorUnits.length; i++) {
+            total = Math.addExact(total, OrdersMoney.lineTotal(pricesMinorUnits[i], quantities[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal computeTotalPrice() {
+        return order.computeTotalPrice(lineItem);
+    }
+}
@@ -0,0 +1,35 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.OrdersBatchResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Slf4j
+public class OrdersBatchController {
+    final OrdersBatchHandler ordersBatchHandler;
+
+    public OrdersBatchController(OrdersBatchHandler ordersBatchHandler) {
+        this.ordersBatchHandler = ordersBatchHandler;
+    }
+
+    @PostMapping(value = "/orders:batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrdersBatchResult> createAll(final InputStream body) {
+        try {
+            return new ResponseEntity<>(ordersBatchHandler.createAll(body), HttpStatus.OK);
+        } catch (final Exception e) {
+            log.error("::METHOD, createAll, exception occurred.", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
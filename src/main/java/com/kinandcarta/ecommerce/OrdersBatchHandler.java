@@ -0,0 +1,151 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+import com.kinandcarta.ecommerce.entities.OrdersBatchItemResult;
+import com.kinandcarta.ecommerce.entities.OrdersBatchResult;
+import com.kinandcarta.ecommerce.infrastructure.OrdersOutbox;
+import com.kinandcarta.ecommerce.infrastructure.OrdersReplicaReads;
+import com.kinandcarta.ecommerce.infrastructure.OrdersRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+@Service
+@Slf4j
+public class OrdersBatchHandler {
+    final OrdersHandler ordersHandler;
+    final OrdersRepository ordersRepository;
+    final OrdersOutbox ordersOutbox;
+    final TransactionTemplate transactionTemplate;
+    final ObjectMapper mapper;
+    final int chunkSize;
+
+    // created orders are pinned to the primary for reads, see OrdersReplicaReads
+    @Autowired(required = false)
+    OrdersReplicaReads ordersReplicaReads = OrdersReplicaReads.primaryOnly();
+
+    public OrdersBatchHandler(OrdersHandler ordersHandler,
+                              OrdersRepository ordersRepository,
+                              OrdersOutbox ordersOutbox,
+                              PlatformTransactionManager transactionManager,
+                              MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter,
+                              @Value("${commerce.orders.batch.chunkSize:500}") int chunkSize) {
+        this.ordersHandler = ordersHandler;
+        this.ordersRepository = ordersRepository;
+        this.ordersOutbox = ordersOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mapper = mappingJackson2HttpMessageConverter.getObjectMapper();
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    /**
+     * createAll - read orders one at a time from a JSON array or NDJSON body and persist them in chunked transactions
+     * @param body request body, either a single JSON array of orders or one order per line
+     * @return per-item outcome, in request order
+     */
+    public OrdersBatchResult createAll(final InputStream body) throws IOException {
+        Objects.requireNonNull(body, "A request body is required to create orders in batch.");
+
+        List<OrdersBatchItemResult> results = new ArrayList<>();
+        List<Pending> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        // a root level array is unwrapped by the iterator, so arrays and NDJSON read the same way
+        try (MappingIterator<JsonNode> items = mapper.readerFor(JsonNode.class).readValues(body)) {
+            while (items.hasNextValue()) {
+                JsonNode item = items.nextValue();
+                try {
+                    Orders model = mapper.treeToValue(item, Orders.class);
+                    OrdersHandler.validateForCreate(model);
+                    chunk.add(new Pending(index, item, model));
+                } catch (final Exception e) {
+                    results.add(failed(index, null, e));
+                }
+                index++;
+
+                if (chunk.size() == chunkSize) {
+                    persistChunk(chunk, results);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            // malformed input, keep what was read so far and report where reading stopped
+            log.error("::METHOD, createAll, body unreadable after item " + index, e);
+            results.add(failed(index, null, e));
+        }
+        persistChunk(chunk, results);
+
+        results.sort(Comparator.comparingInt(OrdersBatchItemResult::getIndex));
+        int created = (int) results.stream().filter(r -> OrdersBatchItemResult.CREATED.equals(r.getStatus())).count();
+        return OrdersBatchResult.builder()
+                .received(index)
+                .created(created)
+                .failed(results.size() - created)
+                .items(results).build();
+    }
+
+    private void persistChunk(final List<Pending> chunk, final List<OrdersBatchItemResult> results) {
+        if (chunk.isEmpty()) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Orders> saved = ordersRepository.saveAll(chunk.stream().map(Pending::model).toList());
+                ordersOutbox.record(saved, OrdersChangeEvent.Type.CREATED);
+                ordersReplicaReads.wrote(saved);
+            });
+            chunk.forEach(pending -> results.add(created(pending.index(), pending.model())));
+        } catch (final Exception e) {
+            log.warn("::METHOD, persistChunk, chunk of " + chunk.size() + " rolled back, retrying items one by one. " + e);
+            // the rolled back entities still carry generated ids, rebuild each one from its JSON
+            chunk.forEach(pending -> results.add(persistOne(pending)));
+        }
+    }
+
+    private OrdersBatchItemResult persistOne(final Pending pending) {
+        try {
+            Orders model = mapper.treeToValue(pending.json(), Orders.class);
+            Orders persisted = transactionTemplate.execute(status -> {
+                Orders saved = ordersRepository.save(model);
+                ordersOutbox.record(List.of(saved), OrdersChangeEvent.Type.CREATED);
+                ordersReplicaReads.wrote(List.of(saved));
+                return saved;
+            });
+            return created(pending.index(), persisted);
+        } catch (final Exception e) {
+            return failed(pending.index(), pending.model().getOrderNumber(), e);
+        }
+    }
+
+    private static OrdersBatchItemResult created(final int index, final Orders persisted) {
+        return OrdersBatchItemResult.builder()
+                .index(index)
+                .status(OrdersBatchItemResult.CREATED)
+                .id(persisted.getId())
+                .orderNumber(persisted.getOrderNumber()).build();
+    }
+
+    private static OrdersBatchItemResult failed(final int index, final String orderNumber, final Exception e) {
+        return OrdersBatchItemResult.builder()
+                .index(index)
+                .status(OrdersBatchItemResult.FAILED)
+                .orderNumber(orderNumber)
+                .error(e.getClass().getSimpleName() + ": " + e.getMessage()).build();
+    }
+
+    private record Pending(int index, JsonNode json, Orders model) {
+    }
+}
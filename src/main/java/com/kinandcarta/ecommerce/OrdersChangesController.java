@@ -0,0 +1,35 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.OrdersChangesPage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Slf4j
+public class OrdersChangesController {
+    final OrdersChangesHandler ordersChangesHandler;
+
+    public OrdersChangesController(OrdersChangesHandler ordersChangesHandler) {
+        this.ordersChangesHandler = ordersChangesHandler;
+    }
+
+    @GetMapping(value = "/orders/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrdersChangesPage> findChanges(@RequestParam(value = "since", required = false) final Long since,
+                                                         @RequestParam(value = "limit", required = false) final Integer limit) {
+        try {
+            return new ResponseEntity<>(ordersChangesHandler.findChangesSince(since, limit), HttpStatus.OK);
+        } catch (final IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (final Exception e) {
+            log.error("::METHOD, findChanges, exception occurred.", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
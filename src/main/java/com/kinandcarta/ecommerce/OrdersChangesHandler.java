@@ -0,0 +1,121 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.contracts.OrdersChangeSink;
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+import com.kinandcarta.ecommerce.entities.OrdersChangesPage;
+import com.kinandcarta.ecommerce.infrastructure.OrdersChangeEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Relays orders_outbox to the OrdersChangeSink and serves GET /orders/changes. Publishing an event and giving
+    it its feed position is one transaction, a sink failure leaves the batch unpublished for the next run and a
+    crash after the sink took it publishes it again (at least once). Relays on several instances race on the
+    unique feed_position, the loser rolls back and picks up what is left on its next run.
+ */
+@Service
+@Slf4j
+public class OrdersChangesHandler {
+    static final int DEFAULT_PAGE_LIMIT = 100;
+    static final int MAX_PAGE_LIMIT = 1000;
+
+    final OrdersChangeEventRepository ordersChangeEventRepository;
+    final OrdersChangeSink ordersChangeSink;
+    final TransactionTemplate transactionTemplate;
+    final int batchSize;
+    final Duration relayInterval;
+
+    ScheduledExecutorService relay;
+
+    public OrdersChangesHandler(OrdersChangeEventRepository ordersChangeEventRepository,
+                                OrdersChangeSink ordersChangeSink,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${commerce.orders.outbox.batchSize:500}") int batchSize,
+                                @Value("${commerce.orders.outbox.relayInterval:500ms}") Duration relayInterval) {
+        this.ordersChangeEventRepository = ordersChangeEventRepository;
+        this.ordersChangeSink = ordersChangeSink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(batchSize, 1);
+        this.relayInterval = relayInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "orders-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relay.scheduleWithFixedDelay(this::relayAll, relayInterval.toMillis(), relayInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        relay.shutdownNow();
+    }
+
+    /**
+     * relayBatch - publish the oldest unpublished events, at most batchSize of them
+     * @return number of events published, 0 when the outbox is drained
+     */
+    public int relayBatch() {
+        Integer published = transactionTemplate.execute(status -> {
+            List<OrdersChangeEvent> batch = ordersChangeEventRepository.findByPositionIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) return 0;
+
+            long position = ordersChangeEventRepository.findLastPosition();
+            Instant now = Instant.now();
+            for (OrdersChangeEvent event : batch) {
+                event.setPosition(++position);
+                event.setPublishedDateTime(now);
+            }
+            // a position taken by another relay fails here, before the sink has seen anything
+            ordersChangeEventRepository.saveAllAndFlush(batch);
+            ordersChangeSink.publish(batch);
+            return batch.size();
+        });
+        return Objects.requireNonNullElse(published, 0);
+    }
+
+    /**
+     * findChangesSince - page of the changes feed
+     * @param since last position the consumer has seen, null or 0 for the start of the feed
+     * @param limit page size, defaults to 100, at most 1000
+     * @return OrdersChangesPage, its nextCursor is the since of the next call
+     */
+    public OrdersChangesPage findChangesSince(final Long since, final Integer limit) {
+        if (since != null && since < 0) throw new IllegalArgumentException("since must not be negative -> " + since);
+        long cursor = since == null ? 0L : since;
+        int pageLimit = limit == null || limit < 1 ? DEFAULT_PAGE_LIMIT : Math.min(limit, MAX_PAGE_LIMIT);
+
+        List<OrdersChangeEvent> changes = ordersChangeEventRepository.findPublishedAfter(cursor, PageRequest.of(0, pageLimit));
+        return OrdersChangesPage.builder()
+                .changes(changes)
+                .limit(pageLimit)
+                .nextCursor(changes.isEmpty() ? cursor : changes.get(changes.size() - 1).getPosition()).build();
+    }
+
+    void relayAll() {
+        try {
+            while (relayBatch() == batchSize) {
+                log.debug("::METHOD, relayAll, full batch relayed, relaying the next one.");
+            }
+        } catch (final Exception e) {
+            log.warn("::METHOD, relayAll, relay failed, retrying in " + relayInterval + ". " + e);
+        }
+    }
+}
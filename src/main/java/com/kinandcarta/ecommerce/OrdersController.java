@@ -1,34 +1,74 @@
 package com.kinandcarta.ecommerce;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.kinandcarta.ecommerce.clients.AccountServiceClient;
 import com.kinandcarta.ecommerce.contracts.ControllerOrdersUseCases;
 import com.kinandcarta.ecommerce.contracts.CrudUseCase;
 import com.kinandcarta.ecommerce.entities.AccountOrderDetails;
+import com.kinandcarta.ecommerce.entities.AccountOrdersPage;
 import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.OrderLineItemsPatch;
+import com.kinandcarta.ecommerce.entities.OrderLineItemsPatchResult;
+import com.kinandcarta.ecommerce.entities.OrderSummary;
 import com.kinandcarta.ecommerce.entities.Orders;
 import com.kinandcarta.ecommerce.entities.OrdersAccount;
+import com.kinandcarta.ecommerce.entities.OrdersPage;
+import com.kinandcarta.ecommerce.entities.OrdersVersion;
 import com.kinandcarta.ecommerce.exceptions.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersJsonCache;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Slf4j
 public class OrdersController implements CrudUseCase<Orders>, ControllerOrdersUseCases {
+    static final long DEFAULT_JSON_BYTES = 64L * 1024 * 1024;
+    static final Duration DEFAULT_JSON_EXPIRY = Duration.ofMinutes(10);
+    static final Duration DEFAULT_JSON_REVALIDATE = Duration.ofSeconds(1);
+
     final AccountServiceClient accountServiceClient;
     final OrdersHandler ordersHandler;
+    final ObjectWriter ndjsonWriter;
+    final OrdersJsonCache ordersJsonCache;
+
+    public OrdersController(OrdersHandler ordersHandler, AccountServiceClient accountServiceClient,
+                            MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter) {
+        this(ordersHandler, accountServiceClient, mappingJackson2HttpMessageConverter,
+                new OrdersJsonCache(mappingJackson2HttpMessageConverter.getObjectMapper().writer(),
+                        DEFAULT_JSON_BYTES, DEFAULT_JSON_EXPIRY, DEFAULT_JSON_REVALIDATE));
+    }
 
-    public OrdersController(OrdersHandler ordersHandler, AccountServiceClient accountServiceClient) {
+    @Autowired
+    public OrdersController(OrdersHandler ordersHandler, AccountServiceClient accountServiceClient,
+                            MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter,
+                            OrdersJsonCache ordersJsonCache) {
         this.ordersHandler = ordersHandler;
         this.accountServiceClient = accountServiceClient;
+        this.ordersJsonCache = ordersJsonCache;
+        // one JSON document per line, the response stream stays open between rows
+        this.ndjsonWriter = mappingJackson2HttpMessageConverter.getObjectMapper().writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     @Override
@@ -75,6 +115,8 @@ public class OrdersController implements CrudUseCase<Orders>, ControllerOrdersUs
         } catch (final Exception e) {
             log.error("::METHOD, update, exception occurred.", e);
             return ResponseEntity.notFound().build();
+        } finally {
+            if (id != null) ordersJsonCache.evict(id);
         }
     }
 
@@ -88,12 +130,28 @@ public class OrdersController implements CrudUseCase<Orders>, ControllerOrdersUs
             ordersHandler.delete(id);
         } catch (final Exception e) {
             log.error("::METHOD, delete, exception occurred.", e);
+        } finally {
+            if (id != null) ordersJsonCache.evict(id);
         }
     }
 
-    @Override
     @GetMapping(value = "/orders/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Orders> findById(@PathVariable("id") @NotNull final Long id) {
+    public ResponseEntity<byte[]> findByIdAsJson(@PathVariable("id") @NotNull final Long id,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch) {
+        try {
+            if (id == null) return ResponseEntity.badRequest().build();
+
+            return jsonResponse(ordersJsonCache.get(id, OrdersJsonCache.View.ORDER, ifNoneMatch, this::findVersionById,
+                    ordersHandler::findById, order -> new OrdersVersion(order.getId(), order.getUpdateDateTime()).version()), ifNoneMatch);
+        } catch (final Exception e) {
+            log.error("::METHOD, findByIdAsJson, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // uncached and typed, GET /orders/{id} is served from the encoded JSON by findByIdAsJson
+    @Override
+    public ResponseEntity<Orders> findById(final Long id) {
         try {
             if (id == null) return ResponseEntity.badRequest().build();
 
@@ -135,8 +193,123 @@ public class OrdersController implements CrudUseCase<Orders>, ControllerOrdersUs
     }
 
     @Override
+    @GetMapping(value = "/orders", params = "limit", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrdersPage<Orders>> findAllAfter(
+            @RequestParam(value = "after", required = false) final Long after,
+            @RequestParam(value = "limit") final Integer limit) {
+        try {
+            return new ResponseEntity<>(ordersHandler.findAllAfter(after, limit), HttpStatus.OK);
+        } catch (final Exception e) {
+            log.error("::METHOD, findAllAfter, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // ?view=summary on the listings, id, number, date and total only; ?view=full (or no view) is the whole order
+    @Override
+    @GetMapping(value = "/orders", params = "view=summary", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<OrderSummary>> findAllSummaries(
+            @RequestParam(value = "accountId", required = false) final Long accountId) {
+        try {
+            return new ResponseEntity<>(ordersHandler.findOrderSummaries(accountId), HttpStatus.OK);
+        } catch (final Exception e) {
+            log.error("::METHOD, findAllSummaries, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Override
+    @GetMapping(value = "/orders", params = {"view=summary", "limit"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrdersPage<OrderSummary>> findSummariesAfter(
+            @RequestParam(value = "after", required = false) final Long after,
+            @RequestParam(value = "limit") final Integer limit) {
+        try {
+            return new ResponseEntity<>(ordersHandler.findOrderSummariesAfter(after, limit), HttpStatus.OK);
+        } catch (final Exception e) {
+            log.error("::METHOD, findSummariesAfter, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Override
+    @GetMapping(value = "/orders", params = {"view=summary", "accountId", "limit"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AccountOrdersPage<OrderSummary>> findSummariesForAccountId(
+            @RequestParam(value = "accountId") final Long accountId,
+            @RequestParam(value = "continuation", required = false) final String continuationToken,
+            @RequestParam(value = "limit") final Integer limit) {
+        try {
+            return new ResponseEntity<>(ordersHandler.findOrderSummariesForAccountId(accountId, continuationToken, limit), HttpStatus.OK);
+        } catch (final IllegalArgumentException e) {
+            log.error("::METHOD, findSummariesForAccountId, exception occurred.", e);
+            return ResponseEntity.badRequest().build();
+        } catch (final Exception e) {
+            log.error("::METHOD, findSummariesForAccountId, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Override
+    @GetMapping(value = "/orders", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = out -> ordersHandler.streamAll(order -> {
+            try {
+                ndjsonWriter.writeValue(out, order);
+                out.write('\n');
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Override
+    @GetMapping(value = "/orders", params = {"accountId", "limit"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AccountOrdersPage<Orders>> findOrdersForAccountId(
+            @RequestParam(value = "accountId") final Long accountId,
+            @RequestParam(value = "continuation", required = false) final String continuationToken,
+            @RequestParam(value = "limit") final Integer limit) {
+        try {
+            return new ResponseEntity<>(ordersHandler.findOrdersForAccountId(accountId, continuationToken, limit), HttpStatus.OK);
+        } catch (final IllegalArgumentException e) {
+            log.error("::METHOD, findOrdersForAccountId, exception occurred.", e);
+            return ResponseEntity.badRequest().build();
+        } catch (final Exception e) {
+            log.error("::METHOD, findOrdersForAccountId, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Override
+    // a path of its own, on /orders an Accept of */* or none would match NDJSON too and GET /orders?accountId= would stop being JSON
+    @GetMapping(value = "/orders/stream", params = "accountId", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrdersForAccountId(@RequestParam(value = "accountId") final Long accountId) {
+        StreamingResponseBody body = out -> ordersHandler.streamOrdersForAccountId(accountId, order -> {
+            try {
+                ndjsonWriter.writeValue(out, order);
+                out.write('\n');
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping(value = "/orders/{id}/lines", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Set<OrderLineItems>> findOrderLineItemsFor(@PathVariable("id") @NotNull final Long id) {
+    public ResponseEntity<byte[]> findOrderLineItemsAsJson(@PathVariable("id") @NotNull final Long id,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch) {
+        try {
+            // line items carry no order version, the one looked up before loading them labels the entry
+            return jsonResponse(ordersJsonCache.get(id, OrdersJsonCache.View.LINES, ifNoneMatch, this::findVersionById,
+                    ordersHandler::findOrderLineItemsFor, lines -> null), ifNoneMatch);
+        } catch (final Exception e) {
+            log.error("::METHOD, findOrderLineItemsAsJson, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // uncached and typed, GET /orders/{id}/lines is served from the encoded JSON by findOrderLineItemsAsJson
+    @Override
+    public ResponseEntity<Set<OrderLineItems>> findOrderLineItemsFor(final Long id) {
         try {
             return new ResponseEntity<>(ordersHandler.findOrderLineItemsFor(id), HttpStatus.OK);
         } catch (final Exception e) {
@@ -145,4 +318,37 @@ public class OrdersController implements CrudUseCase<Orders>, ControllerOrdersUs
         }
     }
 
+    @Override
+    @PatchMapping(value = "/orders/{id}/lines", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderLineItemsPatchResult> patchOrderLineItems(@PathVariable("id") @NotNull final Long id,
+                                                                         @RequestBody final OrderLineItemsPatch patch) {
+        try {
+            if (id == null) return ResponseEntity.badRequest().build();
+
+            return new ResponseEntity<>(ordersHandler.patchOrderLineItems(id, patch), HttpStatus.OK);
+        } catch (final IllegalArgumentException e) {
+            log.error("::METHOD, patchOrderLineItems, invalid operations." + e);
+            return ResponseEntity.badRequest().build();
+        } catch (final Exception e) {
+            log.error("::METHOD, patchOrderLineItems, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        } finally {
+            if (id != null) ordersJsonCache.evict(id);
+        }
+    }
+
+    private Instant findVersionById(final Long id) {
+        return ordersHandler.findVersionById(id).version();
+    }
+
+    private static ResponseEntity<byte[]> jsonResponse(final OrdersJsonCache.Entry entry, final String ifNoneMatch) {
+        if (entry.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entry.eTag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.eTag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.body());
+    }
+
 }
@@ -7,18 +7,42 @@ import com.kinandcarta.ecommerce.exceptions.*;
 import com.kinandcarta.ecommerce.infrastructure.OrdersAccountRepository;
 import com.kinandcarta.ecommerce.infrastructure.OrdersAddressRepository;
 import com.kinandcarta.ecommerce.infrastructure.OrdersLineItemsRepository;
+import com.kinandcarta.ecommerce.infrastructure.OrdersOutbox;
+import com.kinandcarta.ecommerce.infrastructure.OrdersReplicaReads;
 import com.kinandcarta.ecommerce.infrastructure.OrdersRepository;
-import jakarta.transaction.Transactional;
+import com.kinandcarta.ecommerce.infrastructure.OrdersSnapshotCache;
+import com.kinandcarta.ecommerce.infrastructure.OrdersTrace;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
+@Timed(value = "orders.handler", description = "OrdersHandler methods, tagged by class and method")
 public class OrdersHandler implements ServiceHandler, OrdersUseCases {
+    static final int DEFAULT_PAGE_LIMIT = 50;
+    static final int MAX_PAGE_LIMIT = 500;
+    static final long DEFAULT_SNAPSHOT_WEIGHT = 100_000L;
+    static final Duration DEFAULT_SNAPSHOT_EXPIRY = Duration.ofMinutes(10);
+
     final
     OrdersRepository ordersRepository;
     final
@@ -26,15 +50,46 @@ public class OrdersHandler implements ServiceHandler, OrdersUseCases {
 
     final OrdersAccountRepository ordersAccountRepository;
     final OrdersAddressRepository ordersAddressRepository;
+    final OrdersSnapshotCache ordersSnapshotCache;
+    final OrdersOutbox ordersOutbox;
 
     final Map<String, String> errors;
 
+    @PersistenceContext
+    EntityManager entityManager;
+
+    // read-only transactions name the orders they read, writes pin what they wrote; primary only without a replica
+    @Autowired(required = false)
+    OrdersReplicaReads ordersReplicaReads = OrdersReplicaReads.primaryOnly();
+
     public OrdersHandler(OrdersRepository ordersRepository,
                          OrdersLineItemsRepository ordersLineItemsRepository,
                          OrdersAccountRepository ordersAccountRepository,
                          OrdersAddressRepository ordersAddressRepository) {
+        this(ordersRepository, ordersLineItemsRepository, ordersAccountRepository, ordersAddressRepository,
+                new OrdersSnapshotCache(DEFAULT_SNAPSHOT_WEIGHT, DEFAULT_SNAPSHOT_EXPIRY));
+    }
+
+    public OrdersHandler(OrdersRepository ordersRepository,
+                         OrdersLineItemsRepository ordersLineItemsRepository,
+                         OrdersAccountRepository ordersAccountRepository,
+                         OrdersAddressRepository ordersAddressRepository,
+                         OrdersSnapshotCache ordersSnapshotCache) {
+        this(ordersRepository, ordersLineItemsRepository, ordersAccountRepository, ordersAddressRepository,
+                ordersSnapshotCache, OrdersOutbox.discarding());
+    }
+
+    @Autowired
+    public OrdersHandler(OrdersRepository ordersRepository,
+                         OrdersLineItemsRepository ordersLineItemsRepository,
+                         OrdersAccountRepository ordersAccountRepository,
+                         OrdersAddressRepository ordersAddressRepository,
+                         OrdersSnapshotCache ordersSnapshotCache,
+                         OrdersOutbox ordersOutbox) {
         this.ordersAccountRepository = ordersAccountRepository;
         this.ordersAddressRepository = ordersAddressRepository;
+        this.ordersSnapshotCache = ordersSnapshotCache;
+        this.ordersOutbox = ordersOutbox;
         errors = new HashMap<>();
         this.ordersRepository = ordersRepository;
         this.ordersLineItemsRepository = ordersLineItemsRepository;
@@ -44,15 +99,13 @@ public class OrdersHandler implements ServiceHandler, OrdersUseCases {
     @Transactional
     public Orders create(final Orders model) {
         log.debug("create: model ->");
-        validateOrdersAccount(model);
-
-        validateOrdersAddress(model);
+        OrdersTrace.inSpan(OrdersTrace.VALIDATION, "OrdersHandler.validateForCreate", () -> validateForCreate(model));
 
         Orders persisted = null;
         try {
             persisted = saveTransientModels(model);
         } catch (final OrderModelNotPersistedException e) {
-            throw new OrderModelNotPersistedException(e.toString());
+            throw new OrderModelNotPersistedException(e.toString(), e.getCause());
         }
 
         return Optional.of(persisted).orElseThrow(new OrderModelNotPersistedException("Order save failed."));
@@ -64,14 +117,24 @@ public class OrdersHandler implements ServiceHandler, OrdersUseCases {
         try {
             Objects.requireNonNull(model.getOrdersAccount().getAddresses().stream().toList(), "Account requires at least one Address to create an Order.");
             Objects.requireNonNull(model.getOrderLineItems(), "Orders requires at lease one order line item.");
-            return ordersRepository.save(model);
+            Orders persisted = ordersRepository.save(model);
+            ordersOutbox.record(List.of(persisted), OrdersChangeEvent.Type.CREATED);
+            ordersReplicaReads.wrote(List.of(persisted));
+            return persisted;
 
         } catch (Exception e) {
-            throw new OrderModelNotPersistedException("Orders persist FAILED.");
+            // the cause tells a database that was unavailable (OrdersIntakeHandler retries) from an order it refused
+            throw new OrderModelNotPersistedException("Orders persist FAILED.", e);
         }
     }
 
-    private void validateOrdersAccount(final Orders modelToValidate) {
+    static void validateForCreate(final Orders modelToValidate) {
+        validateOrdersAccount(modelToValidate);
+
+        validateOrdersAddress(modelToValidate);
+    }
+
+    private static void validateOrdersAccount(final Orders modelToValidate) {
         // VERIFY__account_required
         assertOrderHasAccount(modelToValidate);
 
@@ -84,7 +147,7 @@ public class OrdersHandler implements ServiceHandler, OrdersUseCases {
         assertOrderAccountHasEmail(accountToRetrieveVerify);
     }
 
-    private void validateOrdersAddress(final Orders modelToValidate) {
+    private static void validateOrdersAddress(final Orders modelToValidate) {
         // VERIFY__address_required
         assertOrderHasAddress(modelToValidate);
     }
@@ -96,7 +159,14 @@ public class OrdersHandler implements ServiceHandler, OrdersUseCases {
 
         BigDecimal defaPrice = BigDecimal.ZERO;
 
-        Orders orderExisting = findById(id);
+        // the live entity, never the cached snapshot; cached views of this order are dropped once the update completes
+        Orders orderExisting = ordersRepository.findAggregateById(id)
+                .orElseThrow(() -> new OrdersNotFoundException("update failed for id ->" + id));
+        ordersSnapshotCache.evict(id);
+        // an order moved to another account leaves the old account's history as well
+        ordersReplicaReads.wroteOrder(id, orderExisting.getOrdersAccount() != null ? orderExisting.getOrdersAccount().getId() : null);
+        // the order version behind cached JSON and ETags, line item changes alone would not dirty the order
+        orderExisting.setUpdateDateTime(Instant.now());
 
         // Required Fields: IF any are not there, this is an invalid Order ...
         orderExisting.setOrdersAccount(Objects.requireNonNullElse(model.getOrdersAccount(), orderExisting.getOrdersAccount()));
@@ -119,8 +189,13 @@ public class OrdersHandler implements ServiceHandler, OrdersUseCases {
             orderExisting.setOrderLineItems(new HashSet<>());
         }
 
-        // B has order items [AND] A has order items   .: MERGE B into A (doesn't lose anything)
+        // B has order items [AND] A has order items   .: B replaces A, lines of A not in B are deleted
+        //   (order_line_items.order_id is never cleared or moved, a replaced line would stay on the order)
         if ( (model.getOrderLineItems() != null && !model.getOrderLineItems().isEmpty()) && (orderExisting.getOrderLineItems() != null && !orderExisting.getOrderLineItems().isEmpty())) {
+            Set<Long> kept = model.getOrderLineItems().stream().map(OrderLineItems::getId).filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            ordersLineItemsRepository.deleteAll(orderExisting.getOrderLineItems().stream()
+                    .filter(lineItem -> !kept.contains(lineItem.getId())).toList());
             orderExisting.setOrderLineItems(
                     model.getOrderLineItems()
             );
@@ -133,52 +208,341 @@ public class OrdersHandler implements ServiceHandler, OrdersUseCases {
             orderExisting.setOrderLineItems(model.getOrderLineItems());
         }
 
-        return ordersRepository.save(orderExisting);
+        Orders updated = ordersRepository.save(orderExisting);
+        ordersOutbox.record(List.of(updated), OrdersChangeEvent.Type.UPDATED);
+        ordersReplicaReads.wrote(List.of(updated));
+        return updated;
     }
 
     @Override
+    @Transactional
     public void delete(final Long id) {
         log.debug("delete: id -> " + id);
-        ordersRepository.deleteById(id);
+        try {
+            // deleteById ignores unknown ids, only an order that existed is announced as deleted
+            ordersRepository.findById(id).ifPresent(order -> {
+                ordersOutbox.recordDeleted(id);
+                ordersReplicaReads.wrote(List.of(order));
+                // the account outlives the order, a shipping address that is one of its addresses is not removed with it
+                OrdersAccount account = order.getOrdersAccount();
+                if (account != null && account.getAddresses() != null && account.getAddresses().contains(order.getOrdersShippingAddress())) {
+                    order.setOrdersShippingAddress(null);
+                }
+            });
+            ordersRepository.deleteById(id);
+        } finally {
+            ordersSnapshotCache.evict(id);
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Orders findById(final Long id) {
         log.debug("findById: id -> " + id);
-        if (!ordersRepository.existsById(id)) {
-            throw new OrdersNotFoundException("findById failed for id ->" + id);
-        }
-        return ordersRepository.getReferenceById(id);
+        ordersReplicaReads.readingOrder(id);
+        return ordersSnapshotCache.get(id, OrdersSnapshotCache.View.AGGREGATE, key -> OrdersSnapshot.of(
+                ordersRepository.findAggregateById(key)
+                        .orElseThrow(() -> new OrdersNotFoundException("findById failed for id ->" + key)), true))
+                .toOrders();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public AccountOrderDetails findByIdDetailedView(final Long id) {
         log.debug("findByIdDetailedView: id -> " + id);
-        return new AccountOrderDetails(findById(id));
+        ordersReplicaReads.readingOrder(id);
+        return new AccountOrderDetails(ordersSnapshotCache.get(id, OrdersSnapshotCache.View.DETAILS, key -> OrdersSnapshot.of(
+                ordersRepository.findDetailsById(key)
+                        .orElseThrow(() -> new OrdersNotFoundException("findByIdDetailedView failed for id ->" + key)), false))
+                .toOrders());
+    }
+
+    @Transactional(readOnly = true)
+    public OrdersVersion findVersionById(final Long id) {
+        log.debug("findVersionById: id -> " + id);
+        ordersReplicaReads.readingOrder(id);
+        return ordersRepository.findVersionById(id)
+                .orElseThrow(() -> new OrdersNotFoundException("findVersionById failed for id ->" + id));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Set<Orders> findAll() {
         log.debug("findAll");
+        ordersReplicaReads.readingAll();
         return new HashSet<>(ordersRepository.findAll());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public OrdersPage<Orders> findAllAfter(final Long after, final Integer limit) {
+        log.debug("findAllAfter: after -> " + after + ", limit -> " + limit);
+        ordersReplicaReads.readingAll();
+        final int pageLimit = pageLimit(limit);
+
+        // one extra row tells us whether there is a next page without a count(*)
+        return keysetPage(ordersRepository.findByIdGreaterThanOrderByIdAsc(
+                Objects.requireNonNullElse(after, 0L), PageRequest.of(0, pageLimit + 1)), pageLimit, Orders::getId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrderSummary> findOrderSummaries(final Long accountId) {
+        log.debug("findOrderSummaries: accountId -> " + accountId);
+        if (accountId == null) ordersReplicaReads.readingAll();
+        else ordersReplicaReads.readingAccount(accountId);
+        return accountId == null ? ordersRepository.findAllSummaries() : ordersRepository.findSummariesByAccountId(accountId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrdersPage<OrderSummary> findOrderSummariesAfter(final Long after, final Integer limit) {
+        log.debug("findOrderSummariesAfter: after -> " + after + ", limit -> " + limit);
+        ordersReplicaReads.readingAll();
+        final int pageLimit = pageLimit(limit);
+
+        return keysetPage(ordersRepository.findSummariesByIdGreaterThan(
+                Objects.requireNonNullElse(after, 0L), PageRequest.of(0, pageLimit + 1)), pageLimit, OrderSummary::id);
+    }
+
+    private static int pageLimit(final Integer limit) {
+        return Math.min(Math.max(Objects.requireNonNullElse(limit, DEFAULT_PAGE_LIMIT), 1), MAX_PAGE_LIMIT);
+    }
+
+    private static <T> OrdersPage<T> keysetPage(final List<T> rows, final int pageLimit, final Function<T, Long> idOf) {
+        List<T> page = new ArrayList<>(rows);
+        Long nextCursor = null;
+        if (page.size() > pageLimit) {
+            page = page.subList(0, pageLimit);
+            nextCursor = idOf.apply(page.get(pageLimit - 1));
+        }
+        return OrdersPage.<T>builder()
+                .orders(page)
+                .limit(pageLimit)
+                .nextCursor(nextCursor).build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(final Consumer<Orders> sink) {
+        log.debug("streamAll");
+        ordersReplicaReads.readingAll();
+        try (Stream<Orders> orders = ordersRepository.streamAllByOrderByIdAsc()) {
+            orders.forEach(order -> {
+                sink.accept(order);
+                // written, drop it (and its cascaded graph) from the persistence context so memory stays flat
+                if (entityManager != null) entityManager.detach(order);
+            });
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Set<Orders> findOrdersForAccountId(Long accountId) {
-        return new HashSet<>(ordersRepository.findAllByOrdersAccountIdOrderByOrderDateDesc(accountId));
+        ordersReplicaReads.readingAccount(accountId);
+        // keeps the newest first order the query sorted by
+        return new LinkedHashSet<>(ordersRepository.findAllByOrdersAccountIdOrderByOrderDateDesc(accountId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AccountOrdersPage<Orders> findOrdersForAccountId(final Long accountId, final String continuationToken, final Integer limit) {
+        log.debug("findOrdersForAccountId: accountId -> " + accountId + ", limit -> " + limit);
+        ordersReplicaReads.readingAccount(accountId);
+        final int pageLimit = pageLimit(limit);
+
+        // ids first off the index, paging a fetch join over collections would page in memory
+        Slice<Long> ids = continuationToken == null ?
+                ordersRepository.findHistoryIdsByAccountId(accountId, PageRequest.of(0, pageLimit)) :
+                findHistoryIdsAfter(accountId, AccountOrdersCursor.decode(continuationToken), pageLimit);
+
+        List<Orders> orders = new ArrayList<>(ids.getNumberOfElements());
+        if (ids.hasContent()) {
+            Map<Long, Orders> aggregates = new HashMap<>();
+            ordersRepository.findAggregatesByIdIn(ids.getContent()).forEach(order -> aggregates.put(order.getId(), order));
+            // the page shares one account, its addresses once from the second-level cache or a select of their own
+            aggregates.values().stream().map(Orders::getOrdersAccount).filter(Objects::nonNull).distinct()
+                    .forEach(account -> Hibernate.initialize(account.getAddresses()));
+            // back into index order, an order deleted in between is skipped
+            ids.forEach(id -> Optional.ofNullable(aggregates.get(id)).ifPresent(orders::add));
+        }
+
+        return AccountOrdersPage.<Orders>builder()
+                .accountId(accountId)
+                .orders(orders)
+                .limit(pageLimit)
+                .continuationToken(ids.hasNext() && !orders.isEmpty() ?
+                        AccountOrdersCursor.after(orders.get(orders.size() - 1)).encode() : null).build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AccountOrdersPage<OrderSummary> findOrderSummariesForAccountId(final Long accountId, final String continuationToken, final Integer limit) {
+        log.debug("findOrderSummariesForAccountId: accountId -> " + accountId + ", limit -> " + limit);
+        ordersReplicaReads.readingAccount(accountId);
+        final int pageLimit = pageLimit(limit);
+
+        // the summary is all a page needs, no second select for aggregates
+        Slice<OrderSummary> summaries;
+        if (continuationToken == null) {
+            summaries = ordersRepository.findHistorySummariesByAccountId(accountId, PageRequest.of(0, pageLimit));
+        } else {
+            AccountOrdersCursor cursor = AccountOrdersCursor.decode(continuationToken);
+            summaries = ordersRepository.findHistorySummariesByAccountIdAfter(accountId, cursor.orderDate(), cursor.id(), PageRequest.of(0, pageLimit));
+        }
+
+        return AccountOrdersPage.<OrderSummary>builder()
+                .accountId(accountId)
+                .orders(summaries.getContent())
+                .limit(pageLimit)
+                .continuationToken(summaries.hasNext() && summaries.hasContent() ?
+                        AccountOrdersCursor.after(summaries.getContent().get(summaries.getNumberOfElements() - 1)).encode() : null).build();
+    }
+
+    private Slice<Long> findHistoryIdsAfter(final Long accountId, final AccountOrdersCursor cursor, final int pageLimit) {
+        return ordersRepository.findHistoryIdsByAccountIdAfter(accountId, cursor.orderDate(), cursor.id(), PageRequest.of(0, pageLimit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamOrdersForAccountId(final Long accountId, final Consumer<Orders> sink) {
+        log.debug("streamOrdersForAccountId: accountId -> " + accountId);
+        ordersReplicaReads.readingAccount(accountId);
+        try (Stream<Orders> orders = ordersRepository.streamByOrdersAccountIdOrderByOrderDateDescIdAsc(accountId)) {
+            orders.forEach(order -> {
+                sink.accept(order);
+                if (entityManager != null) entityManager.detach(order);
+            });
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Set<OrderLineItems> findOrderLineItemsFor(Long orderId) {
-        Orders ordersWithLineItems = findById(orderId);
-        Objects.requireNonNull(ordersWithLineItems, "Order was null for METHOD: findOrderLineItemsFor");
+        ordersReplicaReads.readingOrder(orderId);
+        Orders ordersWithLineItems = ordersRepository.findLineItemsById(orderId)
+                .orElseThrow(() -> new OrdersNotFoundException("findOrderLineItemsFor failed for id ->" + orderId));
         Objects.requireNonNull(ordersWithLineItems.getOrderLineItems(), "METHOD: findOrderLineItemsFor, Found Order, but not Order Line Items for ID -> " + orderId);
         return new HashSet<>(!ordersWithLineItems.getOrderLineItems().isEmpty() ?
                 ordersWithLineItems.getOrderLineItems() : new HashSet<>());
     }
 
+    @Override
+    @Transactional
+    public OrderLineItemsPatchResult patchOrderLineItems(final Long orderId, final OrderLineItemsPatch patch) {
+        log.debug("patchOrderLineItems: orderId -> " + orderId);
+        List<OrderLineItemsPatch.Operation> operations =
+                OrdersTrace.inSpan(OrdersTrace.VALIDATION, "OrdersHandler.validatePatch", () -> validatePatch(patch));
+
+        // the order row is locked from here on, patches of one order apply one after the other;
+        // updated_dt keeps microseconds, the version handed back must be the one stored
+        Instant version = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        if (ordersRepository.touchById(orderId, version) == 0) {
+            throw new OrdersNotFoundException("patchOrderLineItems failed for id ->" + orderId);
+        }
+        ordersSnapshotCache.evict(orderId);
+
+        // only the lines the patch names are read, never the whole order
+        Set<Long> named = operations.stream().map(OrderLineItemsPatch.Operation::getId).filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, OrderLineItems> lines = named.isEmpty() ? Map.of() :
+                ordersLineItemsRepository.findByOrderAndIdIn(orderId, named).stream()
+                        .collect(Collectors.toMap(OrderLineItems::getId, Function.identity()));
+        if (lines.size() != named.size()) {
+            named.removeAll(lines.keySet());
+            throw new OrdersNotFoundException("patchOrderLineItems, line items " + named + " not found on order ->" + orderId);
+        }
+
+        BigDecimal delta = BigDecimal.ZERO;
+        List<OrderLineItems> added = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        int changed = 0;
+        for (OrderLineItemsPatch.Operation operation : operations) {
+            switch (operation.getOp()) {
+                case ADD -> {
+                    OrderLineItems line = OrderLineItems.builder()
+                            .productId(operation.getProductId())
+                            .quantity(operation.getQuantity())
+                            .price(operation.getPrice()).build();
+                    line.setTotalPrice(line.computeTotalPrice(line.getPrice(), line.getQuantity()));
+                    delta = delta.add(line.getTotalPrice());
+                    added.add(line);
+                }
+                case CHANGE -> {
+                    OrderLineItems line = lines.get(operation.getId());
+                    delta = delta.subtract(lineTotal(line));
+                    if (operation.getQuantity() != null) line.setQuantity(operation.getQuantity());
+                    if (operation.getPrice() != null) line.setPrice(operation.getPrice());
+                    line.setTotalPrice(line.computeTotalPrice(line.getPrice(), line.getQuantity()));
+                    delta = delta.add(line.getTotalPrice());
+                    changed++;
+                }
+                case REMOVE -> {
+                    delta = delta.subtract(lineTotal(lines.get(operation.getId())));
+                    removed.add(operation.getId());
+                }
+            }
+        }
+
+        // new lines go out as one JDBC batch with their order_id, the dirty changed lines are flushed as a batch
+        ordersLineItemsRepository.insertForOrder(orderId, added);
+        if (!removed.isEmpty()) ordersLineItemsRepository.deleteAllByIdIn(removed);
 
+        if (ordersRepository.addToTotalPrice(orderId, delta) == 0) {
+            // no stored total to adjust yet, sum the lines once in the database, later patches adjust it
+            ordersRepository.updateTotalPrice(orderId, ordersLineItemsRepository.sumLineTotalsByOrderId(orderId));
+        }
 
+        OrderSummary summary = ordersRepository.findSummaryById(orderId)
+                .orElseThrow(() -> new OrdersNotFoundException("patchOrderLineItems failed for id ->" + orderId));
+        ordersOutbox.record(summary, version, OrdersChangeEvent.Type.UPDATED);
+        // the account's history shows the lines too, only looked up when reads are routed to a replica
+        if (ordersReplicaReads.isEnabled()) {
+            ordersReplicaReads.wroteOrder(orderId, ordersRepository.findAccountIdById(orderId).orElse(null));
+        }
+        return OrderLineItemsPatchResult.builder()
+                .orderId(orderId)
+                .orderNumber(summary.orderNumber())
+                .totalPrice(summary.totalPrice())
+                .version(version)
+                .added(added)
+                .changed(changed)
+                .removed(removed.size()).build();
+    }
+
+    static List<OrderLineItemsPatch.Operation> validatePatch(final OrderLineItemsPatch patch) {
+        if (patch == null || patch.getOperations() == null || patch.getOperations().isEmpty()) {
+            throw new IllegalArgumentException("At least one line item operation is required.");
+        }
+        Set<Long> seen = new HashSet<>();
+        for (OrderLineItemsPatch.Operation operation : patch.getOperations()) {
+            if (operation == null || operation.getOp() == null) {
+                throw new IllegalArgumentException("Every line item operation needs an op, add, change or remove.");
+            }
+            if (operation.getOp() == OrderLineItemsPatch.Op.ADD) {
+                if (operation.getId() != null || operation.getProductId() == null || operation.getQuantity() == null || operation.getPrice() == null) {
+                    throw new IllegalArgumentException("add needs productId, quantity and price, and no id.");
+                }
+            } else if (operation.getId() == null || !seen.add(operation.getId())) {
+                throw new IllegalArgumentException(operation.getOp() + " needs the id of a line item, at most one operation per line.");
+            }
+            if (operation.getOp() == OrderLineItemsPatch.Op.CHANGE && operation.getQuantity() == null && operation.getPrice() == null) {
+                throw new IllegalArgumentException("change needs a quantity, a price or both -> " + operation.getId());
+            }
+            if (operation.getQuantity() != null && operation.getQuantity() < 1) {
+                throw new IllegalArgumentException("quantity must be at least 1, remove the line instead -> " + operation.getQuantity());
+            }
+            if (operation.getPrice() != null && operation.getPrice().signum() < 0) {
+                throw new IllegalArgumentException("price must not be negative -> " + operation.getPrice());
+            }
+        }
+        return patch.getOperations();
+    }
+
+    // what the stored order total counted for this line
+    private static BigDecimal lineTotal(final OrderLineItems line) {
+        return line.getTotalPrice() != null ? line.getTotalPrice() : line.computeTotalPrice(line.getPrice(), line.getQuantity());
+    }
 
     private static void assertOrderAccountHasEmail(OrdersAccount accountToRetrieveVerify) {
         if (StringUtils.isEmpty(accountToRetrieveVerify.getEmailAddress())) {
@@ -0,0 +1,60 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersIntakeStatus;
+import com.kinandcarta.ecommerce.exceptions.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Slf4j
+public class OrdersIntakeController {
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    final OrdersIntakeHandler ordersIntakeHandler;
+
+    public OrdersIntakeController(OrdersIntakeHandler ordersIntakeHandler) {
+        this.ordersIntakeHandler = ordersIntakeHandler;
+    }
+
+    @PostMapping(value = "/orders:async", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrdersIntakeStatus> createAsync(@RequestBody final Orders model,
+                                                          @RequestHeader(value = IDEMPOTENCY_KEY, required = false) final String idempotencyKey) {
+        try {
+            OrdersIntakeStatus accepted = ordersIntakeHandler.accept(model, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/orders:async/" + accepted.getTrackingId()))
+                    .body(accepted);
+        } catch (final Exception e) {
+            log.error("::METHOD, createAsync, exception occurred." + e);
+
+            if (e instanceof IdempotencyKeyReusedException) return ResponseEntity.unprocessableEntity().build();
+            if (e instanceof InvalidAccountException ||
+                    e instanceof MissingAccountException ||
+                    e instanceof MissingAddressException ||
+                    e instanceof EmailNotValidException ||
+                    e instanceof IllegalArgumentException || e instanceof NullPointerException)
+            { return ResponseEntity.badRequest().build(); }
+
+            // nothing was recorded, the client retries with the same Idempotency-Key
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping(value = "/orders:async/{trackingId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrdersIntakeStatus> findByTrackingId(@PathVariable("trackingId") final String trackingId) {
+        try {
+            return new ResponseEntity<>(ordersIntakeHandler.findByTrackingId(trackingId), HttpStatus.OK);
+        } catch (final Exception e) {
+            log.error("::METHOD, findByTrackingId, exception occurred.", e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
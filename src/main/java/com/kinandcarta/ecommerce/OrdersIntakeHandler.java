@@ -0,0 +1,371 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.kinandcarta.ecommerce.clients.AccountServiceClient;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersIntake;
+import com.kinandcarta.ecommerce.entities.OrdersIntakeStatus;
+import com.kinandcarta.ecommerce.exceptions.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersIntakeRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.JDBCConnectionException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.StreamSupport;
+
+/*
+    POST /orders:async, the request is validated, appended to orders_intake and answered with a tracking id before
+    the account lookup or any order insert happens. A bounded worker pool drains the intake table, new rows are
+    handed to it straight away and a poller picks up whatever the pool had no room for, was retried, or was left
+    behind by a restart.
+ */
+@Service
+@Slf4j
+public class OrdersIntakeHandler implements MeterBinder {
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    static final int MAX_ERROR_LENGTH = 1024;
+    static final Duration SHUTDOWN_GRACE = Duration.ofSeconds(10);
+    // left out of the idempotency hash, see canonical
+    static final Set<String> ASSIGNED_FIELDS = Set.of("id", "lineKey", "orderId", "createDateTime", "updateDateTime");
+
+    final OrdersHandler ordersHandler;
+    final OrdersIntakeRepository ordersIntakeRepository;
+    final AccountServiceClient accountServiceClient;
+    final TransactionTemplate transactionTemplate;
+    final ObjectMapper mapper;
+    final int workers;
+    final int queueCapacity;
+    final int maxAttempts;
+    final int pollBatch;
+    final Duration pollInterval;
+    final Duration leaseTimeout;
+    final Duration retryBackoff;
+    final Duration maxRetryBackoff;
+
+    // intake ids sitting in, or running off, the executor queue, the poller does not hand them out twice
+    final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    ThreadPoolExecutor executor;
+    ScheduledExecutorService poller;
+
+    public OrdersIntakeHandler(OrdersHandler ordersHandler,
+                               OrdersIntakeRepository ordersIntakeRepository,
+                               AccountServiceClient accountServiceClient,
+                               PlatformTransactionManager transactionManager,
+                               MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter,
+                               @Value("${commerce.orders.intake.workers:4}") int workers,
+                               @Value("${commerce.orders.intake.queueCapacity:1000}") int queueCapacity,
+                               @Value("${commerce.orders.intake.maxAttempts:5}") int maxAttempts,
+                               @Value("${commerce.orders.intake.pollBatch:100}") int pollBatch,
+                               @Value("${commerce.orders.intake.pollInterval:1s}") Duration pollInterval,
+                               @Value("${commerce.orders.intake.leaseTimeout:5m}") Duration leaseTimeout,
+                               @Value("${commerce.orders.intake.retryBackoff:1s}") Duration retryBackoff,
+                               @Value("${commerce.orders.intake.maxRetryBackoff:5m}") Duration maxRetryBackoff) {
+        this.ordersHandler = ordersHandler;
+        this.ordersIntakeRepository = ordersIntakeRepository;
+        this.accountServiceClient = accountServiceClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mapper = mappingJackson2HttpMessageConverter.getObjectMapper();
+        this.workers = Math.max(workers, 1);
+        this.queueCapacity = Math.max(queueCapacity, 1);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.pollBatch = Math.max(pollBatch, 1);
+        this.pollInterval = pollInterval;
+        this.leaseTimeout = leaseTimeout;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemon(() -> "orders-intake-" + threads.incrementAndGet()));
+        poller = Executors.newSingleThreadScheduledExecutor(daemon(() -> "orders-intake-poller"));
+        // the first poll runs right away, rows accepted before a restart are picked up without waiting
+        poller.scheduleWithFixedDelay(this::poll, 0L, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        poller.shutdownNow();
+        executor.shutdown();
+        // whatever is still PROCESSING after the grace period is released once its lease runs out
+        if (!executor.awaitTermination(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * accept - validate an order and append it to the intake log, nothing is created yet
+     * @param model order to create
+     * @param idempotencyKey client key, a replay returns the intake of the first request, null for none
+     * @return status of the intake, ACCEPTED for a new request
+     * @throws IdempotencyKeyReusedException when the key was already used for a different order
+     */
+    public OrdersIntakeStatus accept(final Orders model, @Nullable final String idempotencyKey) {
+        Objects.requireNonNull(model, "An order is required to create an order asynchronously.");
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters.");
+        }
+        // what can be checked without the accounts service fails the request, not the intake
+        if (model.getOrdersAccount() == null || model.getOrdersAccount().getAccountRefId() == null) {
+            throw new MissingAccountException("MissingAccountException: [valid Account ID_REF required to create an Order.");
+        }
+        OrdersHandler.validateForCreate(model);
+
+        String payload = write(model);
+        String requestHash = sha256(canonical(model));
+        if (idempotencyKey != null) {
+            var existing = ordersIntakeRepository.findByIdempotencyKey(idempotencyKey);
+            if (existing.isPresent()) return replay(existing.get(), requestHash);
+        }
+
+        OrdersIntake accepted;
+        try {
+            accepted = ordersIntakeRepository.save(OrdersIntake.builder()
+                    .trackingId(UUID.randomUUID().toString())
+                    .idempotencyKey(idempotencyKey)
+                    .requestHash(requestHash)
+                    .payload(payload)
+                    .status(OrdersIntake.Status.ACCEPTED)
+                    .updateDateTime(Instant.now()).build());
+        } catch (final DataIntegrityViolationException e) {
+            // a concurrent request with the same key committed first
+            if (idempotencyKey == null) throw e;
+            return replay(ordersIntakeRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> e), requestHash);
+        }
+
+        submit(accepted.getId());
+        return OrdersIntakeStatus.of(accepted);
+    }
+
+    /**
+     * findByTrackingId - where an accepted order is in the pipeline
+     * @param trackingId tracking id handed out by accept
+     * @return status of the intake, with the order id once CREATED
+     */
+    public OrdersIntakeStatus findByTrackingId(final String trackingId) {
+        return ordersIntakeRepository.findByTrackingId(trackingId)
+                .map(OrdersIntakeStatus::of)
+                .orElseThrow(() -> new OrdersNotFoundException("Orders intake not found for tracking ID -> " + trackingId));
+    }
+
+    void poll() {
+        try {
+            Instant now = Instant.now();
+            Integer released = transactionTemplate.execute(status -> ordersIntakeRepository.releaseExpired(now.minus(leaseTimeout), now));
+            if (released != null && released > 0) {
+                log.warn("::METHOD, poll, released " + released + " intake(s) whose lease expired.");
+            }
+
+            int room = executor.getQueue().remainingCapacity();
+            if (room == 0) return;
+            ordersIntakeRepository.findDueIdsByStatus(OrdersIntake.Status.ACCEPTED, now, PageRequest.of(0, Math.min(room, pollBatch)))
+                    .forEach(this::submit);
+        } catch (final Exception e) {
+            log.error("::METHOD, poll, exception occurred.", e);
+        }
+    }
+
+    void process(final Long id) {
+        try {
+            // claimed rows belong to this worker, a 0 means another worker (or instance) has it
+            Integer claimed = transactionTemplate.execute(status -> ordersIntakeRepository.claim(id, Instant.now()));
+            if (claimed == null || claimed == 0) return;
+
+            OrdersIntake intake = ordersIntakeRepository.findById(id).orElseThrow();
+            try {
+                Orders model = mapper.readValue(intake.getPayload(), Orders.class);
+                String accountRefId = model.getOrdersAccount().getAccountRefId();
+                if (accountServiceClient.findByAccountIdRef(accountRefId) == null) {
+                    throw new AccountNotFoundException("Account not found for ID -> " + accountRefId);
+                }
+
+                // the order and its intake row commit together, a crash in between re-runs neither or both
+                transactionTemplate.executeWithoutResult(status -> {
+                    Orders created = ordersHandler.create(model);
+                    transition(intake, OrdersIntake.Status.CREATED, null);
+                    intake.setOrderId(created.getId());
+                    ordersIntakeRepository.save(intake);
+                });
+            } catch (final Exception e) {
+                boolean retry = !isPermanent(e) && intake.getAttempts() < maxAttempts;
+                log.warn("::METHOD, process, intake " + intake.getTrackingId() + " attempt " + intake.getAttempts()
+                        + (retry ? " failed, will retry. " : " failed. ") + e);
+                transition(intake, retry ? OrdersIntake.Status.ACCEPTED : OrdersIntake.Status.FAILED,
+                        e.getClass().getSimpleName() + ": " + e.getMessage());
+                intake.setNextAttemptDateTime(retry ? intake.getUpdateDateTime().plus(backoff(intake.getAttempts())) : null);
+                intake.setOrderId(null);
+                ordersIntakeRepository.save(intake);
+            }
+        } catch (final Exception e) {
+            // the row stays PROCESSING and is released when its lease runs out
+            log.error("::METHOD, process, exception occurred.", e);
+        } finally {
+            queued.remove(id);
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("orders.intake.queued", queued, Set::size)
+                .description("Intakes handed to the worker pool and not finished yet").register(registry);
+        Gauge.builder("orders.intake.active", this, handler -> handler.executor.getActiveCount())
+                .description("Workers processing an intake").register(registry);
+    }
+
+    private void submit(final Long id) {
+        if (!queued.add(id)) return;
+        try {
+            executor.execute(() -> process(id));
+        } catch (final RejectedExecutionException e) {
+            // the pool is full, the row is still ACCEPTED and the poller hands it out once there is room
+            queued.remove(id);
+            log.debug("::METHOD, submit, worker queue full, intake " + id + " left to the poller.");
+        }
+    }
+
+    private OrdersIntakeStatus replay(final OrdersIntake existing, final String requestHash) {
+        if (!existing.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException("IdempotencyKeyReusedException: key already used for a different order -> "
+                    + existing.getIdempotencyKey());
+        }
+        return OrdersIntakeStatus.of(existing);
+    }
+
+    // retryBackoff after the first attempt, doubled after every further one up to maxRetryBackoff
+    Duration backoff(final int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration backoff = retryBackoff.multipliedBy(1L << doublings);
+        return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+    }
+
+    private static void transition(final OrdersIntake intake, final OrdersIntake.Status status, @Nullable final String error) {
+        intake.setStatus(status);
+        intake.setError(error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH));
+        intake.setUpdateDateTime(Instant.now());
+    }
+
+    // a retry cannot fix the order itself, only the accounts service or the database being unavailable
+    private static boolean isPermanent(final Exception e) {
+        if (isTransient(e)) return false;
+        return e instanceof AccountNotFoundException ||
+                e instanceof InvalidAccountException ||
+                e instanceof MissingAccountException ||
+                e instanceof MissingAddressException ||
+                e instanceof EmailNotValidException ||
+                e instanceof OrderModelNotPersistedException ||
+                e instanceof JsonProcessingException ||
+                e instanceof DataIntegrityViolationException ||
+                e instanceof ConstraintViolationException ||
+                e instanceof TransactionSystemException;
+    }
+
+    // the database dropped the connection, timed out or could not start a transaction, the order itself may be fine.
+    // Looked for down the causes: OrdersHandler wraps what the save threw, a commit (TransactionSystemException) or a
+    // JpaSystemException wraps the connection failure
+    private static boolean isTransient(final Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException ||
+                    cause instanceof RecoverableDataAccessException ||
+                    cause instanceof DataAccessResourceFailureException ||
+                    cause instanceof CannotCreateTransactionException ||
+                    cause instanceof JDBCConnectionException ||
+                    cause instanceof SQLTransientException ||
+                    cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // what the client sent, for the idempotency hash: without ids, line keys and timestamps, which the service assigns
+    // (a line key on first use, so one per deserialization), and with object fields and set elements in a fixed order
+    private String canonical(final Orders model) {
+        try {
+            return mapper.writeValueAsString(canonical(mapper.valueToTree(model)));
+        } catch (final JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JsonNode canonical(final JsonNode node) {
+        if (node.isObject()) {
+            SortedSet<String> fields = new TreeSet<>();
+            node.fieldNames().forEachRemaining(fields::add);
+            fields.removeAll(ASSIGNED_FIELDS);
+            ObjectNode sorted = mapper.createObjectNode();
+            fields.forEach(field -> sorted.set(field, canonical(node.get(field))));
+            return sorted;
+        }
+        if (node.isArray()) {
+            // every collection of an order is a set, its serialized order is hash order
+            ArrayNode sorted = mapper.createArrayNode();
+            StreamSupport.stream(node.spliterator(), false)
+                    .map(this::canonical)
+                    .sorted(Comparator.comparing(JsonNode::toString))
+                    .forEach(sorted::add);
+            return sorted;
+        }
+        return node;
+    }
+
+    private String write(final Orders model) {
+        try {
+            return mapper.writeValueAsString(model);
+        } catch (final JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String sha256(final String payload) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ThreadFactory daemon(final Supplier<String> names) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, names.get());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.exceptions.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/*
+    WebFlux routes for /orders, the reactive counterpart of OrdersController with the same status codes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "commerce.orders.reactive.enabled", havingValue = "true")
+@Slf4j
+public class OrdersRouter {
+    @Bean
+    public RouterFunction<ServerResponse> ordersRoutes(final ReactiveOrdersHandler reactiveOrdersHandler) {
+        return RouterFunctions.route()
+                .POST("/orders", request -> create(reactiveOrdersHandler, request))
+                .DELETE("/orders/{id}", request -> delete(reactiveOrdersHandler, request))
+                .GET("/orders/{id}/details", request -> findByIdDetailedView(reactiveOrdersHandler, request))
+                .GET("/orders/{id}", request -> findById(reactiveOrdersHandler, request))
+                .GET("/orders", request -> findAll(reactiveOrdersHandler, request))
+                .build();
+    }
+
+    private static Mono<ServerResponse> create(final ReactiveOrdersHandler handler, final ServerRequest request) {
+        return request.bodyToMono(Orders.class)
+                .flatMap(handler::create)
+                .flatMap(created -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(created))
+                .switchIfEmpty(ServerResponse.badRequest().build())
+                .onErrorResume(e -> {
+                    log.error("::METHOD, create, exception(s) occurred." + e);
+
+                    if (e instanceof InvalidAccountException ||
+                            e instanceof MissingAccountException ||
+                            e instanceof MissingAddressException ||
+                            e instanceof OrderModelNotPersistedException ||
+                            e instanceof DataIntegrityViolationException || e instanceof NullPointerException)
+                    { return ServerResponse.badRequest().build(); }
+
+                    return ServerResponse.notFound().build();
+                });
+    }
+
+    private static Mono<ServerResponse> delete(final ReactiveOrdersHandler handler, final ServerRequest request) {
+        return Mono.fromCallable(() -> Long.valueOf(request.pathVariable("id")))
+                .flatMap(handler::delete)
+                .onErrorResume(e -> {
+                    log.error("::METHOD, delete, exception occurred.", e);
+                    return Mono.empty();
+                })
+                .then(ServerResponse.noContent().build());
+    }
+
+    private static Mono<ServerResponse> findById(final ReactiveOrdersHandler handler, final ServerRequest request) {
+        return Mono.fromCallable(() -> Long.valueOf(request.pathVariable("id")))
+                .flatMap(handler::findById)
+                .flatMap(found -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(found))
+                .onErrorResume(e -> {
+                    log.error("::METHOD, findById, exception occurred.", e);
+                    return ServerResponse.notFound().build();
+                });
+    }
+
+    private static Mono<ServerResponse> findByIdDetailedView(final ReactiveOrdersHandler handler, final ServerRequest request) {
+        return Mono.fromCallable(() -> Long.valueOf(request.pathVariable("id")))
+                .flatMap(handler::findByIdDetailedView)
+                .flatMap(details -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(details))
+                .onErrorResume(e -> {
+                    log.error("::METHOD, findByIdDetailedView, exception occurred.", e);
+                    return ServerResponse.notFound().build();
+                });
+    }
+
+    // a JSON array by default, one order per line when the client asks for NDJSON
+    private static Mono<ServerResponse> findAll(final ReactiveOrdersHandler handler, final ServerRequest request) {
+        MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON) ?
+                MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok().contentType(contentType).body(handler.findAll(), Orders.class);
+    }
+}
@@ -0,0 +1,75 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.clients.AccountServiceClient;
+import com.kinandcarta.ecommerce.entities.AccountOrderDetails;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.exceptions.MissingAccountException;
+import com.kinandcarta.ecommerce.exceptions.OrdersNotFoundException;
+import com.kinandcarta.ecommerce.infrastructure.ReactiveOrdersRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@ConditionalOnProperty(name = "commerce.orders.reactive.enabled", havingValue = "true")
+@Slf4j
+public class ReactiveOrdersHandler {
+    final ReactiveOrdersRepository reactiveOrdersRepository;
+    final AccountServiceClient accountServiceClient;
+    final TransactionalOperator transactionalOperator;
+
+    public ReactiveOrdersHandler(ReactiveOrdersRepository reactiveOrdersRepository,
+                                 AccountServiceClient accountServiceClient,
+                                 TransactionalOperator reactiveOrdersTransactionalOperator) {
+        this.reactiveOrdersRepository = reactiveOrdersRepository;
+        this.accountServiceClient = accountServiceClient;
+        this.transactionalOperator = reactiveOrdersTransactionalOperator;
+    }
+
+    public Mono<Orders> create(final Orders model) {
+        log.debug("create: model ->");
+        return Mono.fromCallable(() -> {
+                    assertOrderHasAccountRef(model);
+                    OrdersHandler.validateForCreate(model);
+                    return model.getOrdersAccount().getAccountRefId();
+                })
+                .flatMap(accountServiceClient::findByAccountIdRefReactive)
+                .then(reactiveOrdersRepository.assignIds(model))
+                .flatMap(withIds -> reactiveOrdersRepository.insert(withIds).as(transactionalOperator::transactional));
+    }
+
+    public Mono<Void> delete(final Long id) {
+        log.debug("delete: id -> " + id);
+        return reactiveOrdersRepository.deleteById(id)
+                .as(transactionalOperator::transactional)
+                .then();
+    }
+
+    public Mono<Orders> findById(final Long id) {
+        log.debug("findById: id -> " + id);
+        return reactiveOrdersRepository.findAggregateById(id)
+                .switchIfEmpty(Mono.error(() -> new OrdersNotFoundException("findById failed for id ->" + id)));
+    }
+
+    public Mono<AccountOrderDetails> findByIdDetailedView(final Long id) {
+        log.debug("findByIdDetailedView: id -> " + id);
+        return findById(id).map(AccountOrderDetails::new);
+    }
+
+    public Flux<Orders> findAll() {
+        log.debug("findAll");
+        return reactiveOrdersRepository.findAll();
+    }
+
+    private static void assertOrderHasAccountRef(final Orders modelToValidate) {
+        if (modelToValidate.getOrdersAccount() == null) {
+            throw new MissingAccountException("MissingAccountException: [valid Account] required to create an Order.");
+        }
+        if (modelToValidate.getOrdersAccount().getAccountRefId() == null) {
+            throw new MissingAccountException("MissingAccountException: [valid Account ID_REF required to create an Order.");
+        }
+    }
+}
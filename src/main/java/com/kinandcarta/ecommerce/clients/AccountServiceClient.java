@@ -1,86 +1,220 @@
 package com.kinandcarta.ecommerce.clients;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.kinandcarta.ecommerce.entities.OrdersAccount;
 import com.kinandcarta.ecommerce.exceptions.AccountNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
-import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryClient;
-import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Flux;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import reactor.util.retry.Retry;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.HashSet;
 import java.util.Objects;
-import java.util.Optional;
 
 @Component
 @Slf4j
 public class AccountServiceClient {
-    @Value("${commerce.clients.accounts.baseUrl}") String baseURL;
-
     @Value("${commerce.clients.accounts.findByAccountIdRefUrl}") String getAccountIdUri;
 
-    @Value("${commerce.clients.accounts.serviceName}") String accountsServiceName;
+    @Value("${commerce.clients.accounts.connectTimeout:2s}") Duration connectTimeout;
+
+    @Value("${commerce.clients.accounts.readTimeout:5s}") Duration readTimeout;
+
+    @Value("${commerce.clients.accounts.pool.maxConnections:50}") int poolMaxConnections;
+
+    @Value("${commerce.clients.accounts.pool.pendingAcquireMaxCount:1000}") int poolPendingAcquireMaxCount;
+
+    @Value("${commerce.clients.accounts.pool.pendingAcquireTimeout:5s}") Duration poolPendingAcquireTimeout;
+
+    @Value("${commerce.clients.accounts.pool.maxIdleTime:30s}") Duration poolMaxIdleTime;
+
+    @Value("${commerce.clients.accounts.pool.maxLifeTime:5m}") Duration poolMaxLifeTime;
+
+    @Value("${commerce.clients.accounts.cache.maximumSize:10000}") long cacheMaximumSize;
+
+    @Value("${commerce.clients.accounts.cache.expireAfterWrite:10m}") Duration cacheExpireAfterWrite;
+
+    @Value("${commerce.clients.accounts.cache.refreshAfterWrite:1m}") Duration cacheRefreshAfterWrite;
+
+    @Value("${commerce.clients.accounts.cache.notFoundExpireAfterWrite:30s}") Duration cacheNotFoundExpireAfterWrite;
 
     @LoadBalanced
     WebClient.Builder webClientBuilder;
 
-    public AccountServiceClient(final WebClient.Builder webClientBuilder) {
+    final MeterRegistry meterRegistry;
+
+    final AccountsServiceInstances accountsServiceInstances;
+
+    ConnectionProvider connectionProvider;
+
+    WebClient webClient;
+
+    AsyncLoadingCache<String, AccountLookup> accountCache;
+
+    public AccountServiceClient(final WebClient.Builder webClientBuilder,
+                                final MeterRegistry meterRegistry,
+                                final AccountsServiceInstances accountsServiceInstances) {
         this.webClientBuilder = webClientBuilder;
+        this.meterRegistry = meterRegistry;
+        this.accountsServiceInstances = accountsServiceInstances;
+    }
+
+    @PostConstruct
+    public void init() {
+        // one pool for the lifetime of the client, idle keep-alive connections are reused across lookups
+        connectionProvider = ConnectionProvider.builder("accounts-service")
+                .maxConnections(poolMaxConnections)
+                .pendingAcquireMaxCount(poolPendingAcquireMaxCount)
+                .pendingAcquireTimeout(poolPendingAcquireTimeout)
+                .maxIdleTime(poolMaxIdleTime)
+                .maxLifeTime(poolMaxLifeTime)
+                .evictInBackground(poolMaxIdleTime)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(readTimeout);
+        // clone, the load balanced builder bean is shared. Instances are picked by AccountsServiceInstances,
+        // so the load balancer filter would only try to resolve the chosen host as a service id
+        webClient = webClientBuilder.clone()
+                .filters(filters -> filters.removeIf(LoadBalancedExchangeFilterFunction.class::isInstance))
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+
+        // one in-flight load per key, concurrent callers for the same account share its future
+        accountCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfter(new AccountLookupExpiry())
+                .refreshAfterWrite(cacheRefreshAfterWrite)
+                .recordStats()
+                .buildAsync((id, executor) -> lookup(id).toFuture());
+        CaffeineCacheMetrics.monitor(meterRegistry, accountCache, "accounts");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
     }
 
+    /**
+     * findByAccountIdRef - blocking adapter over {@link #findByAccountIdRefReactive(String)}
+     * @param id account reference id
+     * @return the account, never null
+     * @throws AccountNotFoundException when the accounts service does not know the reference id
+     */
+    @Timed(value = "orders.accounts.lookup", description = "blocking accounts service lookups, cache hits included")
     public OrdersAccount findByAccountIdRef(final String id) throws AccountNotFoundException {
+        return findByAccountIdRefReactive(id).block();
+    }
+
+    /**
+     * findByAccountIdRefReactive - cached, non-blocking account lookup
+     * @param id account reference id
+     * @return Mono of a copy of the account, or an AccountNotFoundException error
+     */
+    public Mono<OrdersAccount> findByAccountIdRefReactive(final String id) {
         Objects.requireNonNull(id, "Account Id REF required to find account using client.");
 
-        ReactiveDiscoveryClient reactiveDiscoveryClient =
-                new SimpleReactiveDiscoveryClient(new SimpleReactiveDiscoveryProperties());
-        Flux<ServiceInstance> serviceInstancesList = reactiveDiscoveryClient.getInstances(StringUtils.isBlank(accountsServiceName) ? "ACCOUNTS-SERVICE" : accountsServiceName);
-        if (null == serviceInstancesList) {
-            throw new AccountNotFoundException("No instances of Account Services located in Registry.");
-        }
+        // suppress cancel, one caller going away must not cancel the load the others are waiting on
+        return Mono.fromFuture(() -> accountCache.get(id), true)
+                .flatMap(found -> found.account() == null ?
+                        Mono.error(new AccountNotFoundException(found.notFoundMessage())) :
+                        Mono.just(copyOf(found.account())));
+    }
+
+    /**
+     * fetchByAccountIdRef - uncached remote lookup, one HTTP request per subscription (plus retries on failure)
+     * @param id account reference id
+     * @return Mono of the account, or an AccountNotFoundException error
+     */
+    public Mono<OrdersAccount> fetchByAccountIdRef(final String id) {
+        Objects.requireNonNull(id, "Account Id REF required to find account using client.");
 
-        serviceInstancesList.toStream().findFirst().ifPresent(element -> this.baseURL = element.getUri().toString());
-        log.info("findByAccountIdRef from Eureka Accounts Service instance: baseURL = " + this.baseURL);
-        Mono<OrdersAccount> accountFound =
-                webClientBuilder.baseUrl(this.baseURL).build().get()
-                        .uri(uriBuilder -> uriBuilder.path(this.getAccountIdUri).build(id))
+        return Mono.fromSupplier(accountsServiceInstances::choose)
+                .flatMap(base -> webClient.get()
+                        .uri(UriComponentsBuilder.fromHttpUrl(base).path(getAccountIdUri).build(id))
                         .accept(MediaType.APPLICATION_JSON)
                         .acceptCharset(StandardCharsets.UTF_8)
-                    .retrieve()
-                    .bodyToMono(OrdersAccount.class)
-                        .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)));
+                        .retrieve()
+                        .onStatus(status -> status.value() == HttpStatus.NOT_FOUND.value(),
+                                response -> Mono.error(new AccountNotFoundException("Account not found for accountIdRef: " + id)))
+                        .bodyToMono(OrdersAccount.class)
+                        .retryWhen(Retry.backoff(3, Duration.ofSeconds(1))
+                                .filter(e -> !(e instanceof AccountNotFoundException))
+                                .onRetryExhaustedThrow((spec, signal) -> signal.failure())))
+                .map(this::toOrdersAccount)
+                .filter(account -> id.equalsIgnoreCase(account.getAccountRefId()))
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException("Account not found for accountIdRef: " + id)));
+    }
 
-        if (accountFound.map(this::toOrdersAccount).blockOptional().isEmpty()) {
-            throw new AccountNotFoundException("Account not found for accountIdRef: " + id);
-        }
+    private Mono<AccountLookup> lookup(final String id) {
+        return fetchByAccountIdRef(id)
+                .map(account -> new AccountLookup(account, null))
+                .onErrorResume(AccountNotFoundException.class, e -> Mono.just(new AccountLookup(null, e.getMessage())));
+    }
 
-        Optional<OrdersAccount> ordersAccount =
-                accountFound.map(this::toOrdersAccount)
-                .blockOptional();
+    // callers get their own copy, the cached one is shared
+    private static OrdersAccount copyOf(final OrdersAccount account) {
+        return OrdersAccount.builder()
+                .id(account.getId())
+                .accountRefId(account.getAccountRefId())
+                .firstName(account.getFirstName())
+                .lastName(account.getLastName())
+                .emailAddress(account.getEmailAddress())
+                .addresses(new HashSet<>(account.getAddresses())).build();
+    }
+
+    record AccountLookup(OrdersAccount account, String notFoundMessage) {
+    }
 
-        if (ordersAccount.isPresent() && !id.equalsIgnoreCase(ordersAccount.get().getAccountRefId())) {
-            throw new AccountNotFoundException("Account not found for accountIdRef: " + id);
+    // found accounts live for expireAfterWrite, not found answers only for notFoundExpireAfterWrite
+    class AccountLookupExpiry implements Expiry<String, AccountLookup> {
+        @Override
+        public long expireAfterCreate(final String key, final AccountLookup value, final long currentTime) {
+            return (value.account() != null ? cacheExpireAfterWrite : cacheNotFoundExpireAfterWrite).toNanos();
         }
 
-        return ordersAccount.orElse(null);
+        @Override
+        public long expireAfterUpdate(final String key, final AccountLookup value, final long currentTime, final long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(final String key, final AccountLookup value, final long currentTime, final long currentDuration) {
+            return currentDuration;
+        }
     }
 
-    private OrdersAccount toOrdersAccount(final OrdersAccount account) {    
+    private OrdersAccount toOrdersAccount(final OrdersAccount account) {
         Objects.requireNonNull(account, "AccountServiceClient, null Account");
         Objects.requireNonNull(account, "AccountServiceClient, null Account-> First name");
         Objects.requireNonNull(account, "AccountServiceClient, null Account-> Last name");
         Objects.requireNonNull(account, "AccountServiceClient, null Account-> Email address");
         Objects.requireNonNull(account, "AccountServiceClient, null Account-> Addresses");
-        
+
         if (account.getAddresses().isEmpty()) {
             throw new IllegalArgumentException("AccountServiceClient, at least ONE address is required");
         }
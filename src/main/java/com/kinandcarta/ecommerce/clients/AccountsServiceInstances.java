@@ -0,0 +1,93 @@
+package com.kinandcarta.ecommerce.clients;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+@Slf4j
+public class AccountsServiceInstances {
+    @Value("${commerce.clients.accounts.baseUrl}") String baseURL;
+
+    @Value("${commerce.clients.accounts.serviceName}") String accountsServiceName;
+
+    @Value("${commerce.clients.accounts.discovery.refreshInterval:30s}") Duration refreshInterval;
+
+    final ReactiveDiscoveryClient reactiveDiscoveryClient;
+
+    // replaced as a whole on refresh, readers never see a list being modified
+    final AtomicReference<List<String>> instances = new AtomicReference<>(List.of());
+
+    final AtomicInteger next = new AtomicInteger();
+
+    Disposable refresher;
+
+    public AccountsServiceInstances(final ReactiveDiscoveryClient reactiveDiscoveryClient) {
+        this.reactiveDiscoveryClient = reactiveDiscoveryClient;
+    }
+
+    @PostConstruct
+    public void init() {
+        refresher = Flux.interval(Duration.ZERO, refreshInterval)
+                .concatMap(tick -> refresh()
+                        .onErrorResume(e -> {
+                            log.warn("::METHOD, refresh, accounts service instances not refreshed. " + e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * refresh - reload the accounts service instances from discovery, the last known list is kept when discovery has none
+     * @return Mono of the instance base URLs now in use
+     */
+    public Mono<List<String>> refresh() {
+        return reactiveDiscoveryClient.getInstances(serviceName())
+                .map(ServiceInstance::getUri)
+                .map(Object::toString)
+                .collectList()
+                .map(found -> {
+                    if (!found.isEmpty() && !found.equals(instances.get())) {
+                        log.info("Accounts Service instances from discovery: " + found);
+                        instances.set(List.copyOf(found));
+                    }
+                    return instances.get();
+                });
+    }
+
+    /**
+     * choose - round-robin over the cached instances
+     * @return base URL of the next instance, or the configured baseUrl while discovery has none
+     */
+    public String choose() {
+        List<String> current = instances.get();
+        if (current.isEmpty()) {
+            return baseURL;
+        }
+        return current.get(Math.floorMod(next.getAndIncrement(), current.size()));
+    }
+
+    private String serviceName() {
+        return StringUtils.isBlank(accountsServiceName) ? "ACCOUNTS-SERVICE" : accountsServiceName;
+    }
+}
@@ -1,13 +1,20 @@
 package com.kinandcarta.ecommerce.contracts;
 
+import com.kinandcarta.ecommerce.entities.AccountOrdersPage;
 import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.OrderLineItemsPatch;
+import com.kinandcarta.ecommerce.entities.OrderLineItemsPatchResult;
+import com.kinandcarta.ecommerce.entities.OrderSummary;
 import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersPage;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.List;
 import java.util.Set;
 
 public interface ControllerOrdersUseCases {
@@ -17,4 +24,20 @@ public interface ControllerOrdersUseCases {
 
     ResponseEntity<Set<OrderLineItems>> findOrderLineItemsFor(final Long orderId);
 
+    ResponseEntity<OrderLineItemsPatchResult> patchOrderLineItems(final Long orderId, final OrderLineItemsPatch patch);
+
+    ResponseEntity<OrdersPage<Orders>> findAllAfter(final Long after, final Integer limit);
+
+    ResponseEntity<StreamingResponseBody> streamAll();
+
+    ResponseEntity<List<OrderSummary>> findAllSummaries(final Long accountId);
+
+    ResponseEntity<OrdersPage<OrderSummary>> findSummariesAfter(final Long after, final Integer limit);
+
+    ResponseEntity<AccountOrdersPage<OrderSummary>> findSummariesForAccountId(final Long accountId, final String continuationToken, final Integer limit);
+
+    ResponseEntity<AccountOrdersPage<Orders>> findOrdersForAccountId(final Long accountId, final String continuationToken, final Integer limit);
+
+    ResponseEntity<StreamingResponseBody> streamOrdersForAccountId(final Long accountId);
+
 }
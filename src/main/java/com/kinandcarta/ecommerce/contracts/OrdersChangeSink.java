@@ -0,0 +1,14 @@
+package com.kinandcarta.ecommerce.contracts;
+
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+
+import java.util.List;
+
+public interface OrdersChangeSink {
+    /**
+     * publish - hand one batch of order changes downstream, delivery is at least once
+     * @param changes events in feed position order
+     * @throws RuntimeException to keep the batch unpublished, the relay offers it again on its next run
+     */
+    void publish(final List<OrdersChangeEvent> changes);
+}
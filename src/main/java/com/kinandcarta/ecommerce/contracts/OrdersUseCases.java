@@ -1,9 +1,12 @@
 package com.kinandcarta.ecommerce.contracts;
 
 import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.OrderLineItemsPatch;
+import com.kinandcarta.ecommerce.entities.OrderLineItemsPatchResult;
 
 import java.util.Set;
 
 public interface OrdersUseCases {
     Set<OrderLineItems> findOrderLineItemsFor(final Long orderId);
+    OrderLineItemsPatchResult patchOrderLineItems(final Long orderId, final OrderLineItemsPatch patch);
 }
@@ -1,10 +1,15 @@
 package com.kinandcarta.ecommerce.contracts;
 
 import com.kinandcarta.ecommerce.entities.AccountOrderDetails;
+import com.kinandcarta.ecommerce.entities.AccountOrdersPage;
+import com.kinandcarta.ecommerce.entities.OrderSummary;
 import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersPage;
 import com.kinandcarta.ecommerce.exceptions.OrderModelNotPersistedException;
 
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface ServiceHandler {    
     Orders create(final Orders model) throws OrderModelNotPersistedException;
@@ -15,4 +20,11 @@ public interface ServiceHandler {
     AccountOrderDetails findByIdDetailedView(final Long id);
     Set<Orders> findAll();
     Set<Orders> findOrdersForAccountId(final Long accountId);
+    AccountOrdersPage<Orders> findOrdersForAccountId(final Long accountId, final String continuationToken, final Integer limit);
+    void streamOrdersForAccountId(final Long accountId, final Consumer<Orders> sink);
+    OrdersPage<Orders> findAllAfter(final Long after, final Integer limit);
+    List<OrderSummary> findOrderSummaries(final Long accountId);
+    OrdersPage<OrderSummary> findOrderSummariesAfter(final Long after, final Integer limit);
+    AccountOrdersPage<OrderSummary> findOrderSummariesForAccountId(final Long accountId, final String continuationToken, final Integer limit);
+    void streamAll(final Consumer<Orders> sink);
 }
@@ -0,0 +1,41 @@
+package com.kinandcarta.ecommerce.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+
+/*
+    Position in an account's history, (order date, id) of the last order a client has seen. Travels as an
+    opaque URL-safe continuation token so clients never build one themselves.
+ */
+public record AccountOrdersCursor(Instant orderDate, Long id) {
+
+    public AccountOrdersCursor {
+        Objects.requireNonNull(orderDate, "A cursor requires the order date.");
+        Objects.requireNonNull(id, "A cursor requires the order id.");
+    }
+
+    public static AccountOrdersCursor after(final Orders order) {
+        return new AccountOrdersCursor(order.getOrderDate(), order.getId());
+    }
+
+    public static AccountOrdersCursor after(final OrderSummary summary) {
+        return new AccountOrdersCursor(summary.orderDate(), summary.id());
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((orderDate + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AccountOrdersCursor decode(final String continuationToken) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            return new AccountOrdersCursor(Instant.parse(decoded.substring(0, separator)), Long.valueOf(decoded.substring(separator + 1)));
+        } catch (final RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token -> " + continuationToken, e);
+        }
+    }
+}
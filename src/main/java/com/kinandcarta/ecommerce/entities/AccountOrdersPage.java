@@ -0,0 +1,23 @@
+package com.kinandcarta.ecommerce.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Slf4j
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class AccountOrdersPage<T> {
+    private Long accountId;
+    // newest first, ties on order date by id; Orders, or OrderSummary for ?view=summary
+    private List<T> orders;
+    private int limit;
+    // null when there are no more pages, otherwise pass back as ?continuation=
+    private String continuationToken;
+}
@@ -1,9 +1,9 @@
 package com.kinandcarta.ecommerce.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Null;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.annotations.CreationTimestamp;
@@ -13,6 +13,7 @@ import org.hibernate.proxy.HibernateProxy;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Objects;
+import java.util.UUID;
 
 
 @Getter
@@ -23,15 +24,27 @@ import java.util.Objects;
 @AllArgsConstructor
 @Entity
 @Slf4j
-@Table(name = "order_line_items")
+@Table(name = "order_line_items", indexes = {
+        // an order's lines (Orders.orderLineItems, OrdersLineItemsRepository)
+        @Index(name = "idx_order_line_items_order_id", columnList = "order_id"),
+        // line items by product
+        @Index(name = "idx_order_line_items_product_id", columnList = "productId")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class OrderLineItems {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_line_items_seq")
+    @SequenceGenerator(name = "order_line_items_seq", sequenceName = "order_line_items_seq", allocationSize = 50)
     private Long id;
 
-    @Null
+    // stable business key, equals/hashCode use it so a line keeps its hash bucket when the id is generated on persist
+    @Column(name = "line_key", length = 36, nullable = false, unique = true, updatable = false)
+    private String lineKey;
+
+    // written by Orders.orderLineItems (the join column), read only here and never taken from a request
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "order_id", insertable = false, updatable = false)
     private Long orderId;
 
     @NotNull
@@ -53,8 +66,21 @@ public class OrderLineItems {
     @Column(name="updated_dt")
     private Instant updateDateTime;
 
+    // assigned on first use rather than on construction, rows loaded by Hibernate already carry theirs
+    public String getLineKey() {
+        if (lineKey == null) {
+            lineKey = UUID.randomUUID().toString();
+        }
+        return lineKey;
+    }
+
+    @PrePersist
+    void assignLineKey() {
+        getLineKey();
+    }
+
     public BigDecimal computeTotalPrice(final BigDecimal price, final int quantity) {
-        return price.multiply(BigDecimal.valueOf(quantity));
+        return OrdersMoney.lineTotal(price, quantity);
     }
 
     @Override
@@ -65,11 +91,11 @@ public class OrderLineItems {
         Class<?> thisEffectiveClass = this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass() : this.getClass();
         if (thisEffectiveClass != oEffectiveClass) return false;
         OrderLineItems that = (OrderLineItems) o;
-        return getId() != null && Objects.equals(getId(), that.getId());
+        return Objects.equals(getLineKey(), that.getLineKey());
     }
 
     @Override
     public final int hashCode() {
-        return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+        return getLineKey().hashCode();
     }
 }
@@ -0,0 +1,52 @@
+package com.kinandcarta.ecommerce.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/*
+    Body of PATCH /orders/{id}/lines, operations are applied in one transaction, all or none:
+
+    { "operations": [
+        { "op": "add", "productId": 7, "quantity": 2, "price": 9.99 },
+        { "op": "change", "id": 1201, "quantity": 3 },
+        { "op": "remove", "id": 1202 } ] }
+ */
+@Getter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Slf4j
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class OrderLineItemsPatch {
+    private List<Operation> operations;
+
+    public enum Op {
+        @JsonProperty("add") ADD,
+        @JsonProperty("change") CHANGE,
+        @JsonProperty("remove") REMOVE
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    @ToString
+    @Builder
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Operation {
+        private Op op;
+        // line item id, change and remove
+        private Long id;
+        // add only
+        private Long productId;
+        // add, or change when present
+        private Integer quantity;
+        // add, or change when present
+        private BigDecimal price;
+    }
+}
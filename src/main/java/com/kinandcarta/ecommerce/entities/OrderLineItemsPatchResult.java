@@ -0,0 +1,28 @@
+package com.kinandcarta.ecommerce.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Slf4j
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class OrderLineItemsPatchResult {
+    private Long orderId;
+    private String orderNumber;
+    private BigDecimal totalPrice;
+    // the order's updated_dt after the patch
+    private Instant version;
+    // with their generated ids, in request order
+    private List<OrderLineItems> added;
+    private int changed;
+    private int removed;
+}
@@ -0,0 +1,11 @@
+package com.kinandcarta.ecommerce.entities;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/*
+    Listing view of an order (GET /orders?view=summary), selected column by column with a constructor
+    expression: no entity is hydrated, snapshotted for dirty checking or proxied, and nothing is lazy.
+ */
+public record OrderSummary(Long id, String orderNumber, Instant orderDate, BigDecimal totalPrice) {
+}
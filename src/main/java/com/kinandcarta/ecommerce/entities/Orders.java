@@ -12,9 +12,7 @@ import org.hibernate.proxy.HibernateProxy;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.HashSet;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 
 @Getter
@@ -24,16 +22,25 @@ import java.util.Set;
 @Builder
 @AllArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // account history, newest first (OrdersRepository.findHistoryIdsByAccountId*)
+        @Index(name = "idx_orders_account_history", columnList = "orders_account_id, order_date desc, id"),
+        // order lookups by order number
+        @Index(name = "idx_orders_order_number", columnList = "orderNumber")
+})
 @Slf4j
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Orders {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     @Column(unique = true, nullable = false, name = "id")
     private Long id;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    // many orders per account, see account history; V1 made orders_account_id unique (UK_facafmsdjis54fumvjed88yvu), V9 drops it.
+    // No REMOVE, the account outlives any one of its orders
+    @ManyToOne(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @JoinColumn(name = "orders_account_id")
     public OrdersAccount ordersAccount;
 
     @Size(min = 10, max = 255, message = "Order number must be between 10 and 255 characters")
@@ -42,6 +49,7 @@ public class Orders {
     private String orderNumber;
 
     @NotNull
+    @Column(name = "order_date")
     private Instant orderDate;
 
     @OneToOne(cascade = CascadeType.ALL)
@@ -59,26 +67,21 @@ public class Orders {
     private Instant updateDateTime;
 
     @ToString.Exclude
+    // order_line_items.order_id is written with each line's insert and never moved to another order,
+    // lines taken off an order are deleted (OrdersHandler.update)
     @OneToMany(cascade = CascadeType.ALL)
+    @JoinColumn(name = "order_id", nullable = false, updatable = false)
     private Set<OrderLineItems> orderLineItems;
 
+    // line and order totals in cents (OrdersMoney), each line's totalPrice is set too
     public BigDecimal sumLineItems(final Set<OrderLineItems> lineItems) {
-        Set<OrderLineItems> items =
-                new HashSet<>(lineItems.isEmpty() ? new HashSet<>() : lineItems);
-
-        Optional<BigDecimal> total =
-                Optional.of(items
-                        .stream()
-                        .map(this::computeTotalPrice)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add));
-
-
-        this.setTotalPrice(total.orElse(BigDecimal.ZERO));
-        return total.orElse(BigDecimal.ZERO);
+        BigDecimal total = OrdersMoney.sumLineTotals(lineItems);
+        this.setTotalPrice(total);
+        return total;
     }
 
     public BigDecimal computeTotalPrice(final OrderLineItems lineItem) {
-        BigDecimal totalLineItemPrice = lineItem.getPrice().multiply(BigDecimal.valueOf(lineItem.getQuantity()));
+        BigDecimal totalLineItemPrice = lineItem.computeTotalPrice(lineItem.getPrice(), lineItem.getQuantity());
         lineItem.setTotalPrice(totalLineItemPrice);
         return totalLineItemPrice;
     }
@@ -96,6 +99,7 @@ public class Orders {
 
     @Override
     public final int hashCode() {
+        // equals is by id, which a new order does not have yet and the order number is mutable, so one hash per class
         return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
     }
 }
@@ -8,8 +8,12 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.proxy.HibernateProxy;
 
@@ -25,11 +29,14 @@ import java.util.Set;
 @AllArgsConstructor
 @Entity
 @Table(name = "orders_account")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "orders.account")
+@NaturalIdCache(region = "orders.account.naturalId")
 @Slf4j
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class OrdersAccount {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_account_seq")
+    @SequenceGenerator(name = "orders_account_seq", sequenceName = "orders_account_seq", allocationSize = 50)
     private Long id;
 
     @NaturalId
@@ -53,7 +60,11 @@ public class OrdersAccount {
     @Column(columnDefinition = "varchar(200) default ''", nullable = false, unique = true)
     private String emailAddress;
 
+    // never fetch joined with an order's line items (addresses x lines rows), read from the region or,
+    // for a page of orders, in one select per batch of accounts
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "orders.account.addresses")
+    @BatchSize(size = 50)
     @ToString.Exclude
     private Set<OrdersAddress> addresses;
 
@@ -78,6 +89,8 @@ public class OrdersAccount {
 
     @Override
     public final int hashCode() {
-        return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+        // the natural id never changes for a row, so it spreads accounts across buckets without breaking equals by id
+        return getAccountRefId() != null ? getAccountRefId().hashCode() :
+                this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
     }
 }
@@ -6,6 +6,8 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.proxy.HibernateProxy;
@@ -21,11 +23,13 @@ import java.util.Objects;
 @AllArgsConstructor
 @Entity
 @Table(name = "orders_address")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "orders.address")
 @Slf4j
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class OrdersAddress {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_address_seq")
+    @SequenceGenerator(name = "orders_address_seq", sequenceName = "orders_address_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
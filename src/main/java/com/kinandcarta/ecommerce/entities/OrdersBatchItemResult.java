@@ -0,0 +1,24 @@
+package com.kinandcarta.ecommerce.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+@Getter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Slf4j
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class OrdersBatchItemResult {
+    public static final String CREATED = "CREATED";
+    public static final String FAILED = "FAILED";
+
+    // position of the order in the request body, starting at 0
+    private int index;
+    private String status;
+    private Long id;
+    private String orderNumber;
+    private String error;
+}
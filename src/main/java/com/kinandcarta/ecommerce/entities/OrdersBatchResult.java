@@ -0,0 +1,21 @@
+package com.kinandcarta.ecommerce.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Slf4j
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class OrdersBatchResult {
+    private int received;
+    private int created;
+    private int failed;
+    private List<OrdersBatchItemResult> items;
+}
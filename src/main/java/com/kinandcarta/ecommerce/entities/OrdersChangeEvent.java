@@ -0,0 +1,61 @@
+package com.kinandcarta.ecommerce.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/*
+    One order mutation, written to orders_outbox in the transaction that made it. The relay gives each event its
+    feed position when it publishes it, so positions follow commit order and GET /orders/changes?since= never
+    skips an event that committed late with a lower id.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Entity
+@Table(name = "orders_outbox")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class OrdersChangeEvent {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_outbox_seq")
+    @SequenceGenerator(name = "orders_outbox_seq", sequenceName = "orders_outbox_seq", allocationSize = 50)
+    @Column(unique = true, nullable = false, name = "id")
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 16)
+    private Type type;
+
+    // the order as of the change, null for DELETED
+    private String orderNumber;
+
+    @Column(columnDefinition = "decimal(38, 2) null")
+    private BigDecimal totalPrice;
+
+    // the order's updated_dt after the change, what its ETag is built from
+    @Column(name = "order_version")
+    private Instant orderVersion;
+
+    @CreationTimestamp
+    @Column(name = "created_dt")
+    private Instant createDateTime;
+
+    // cursor of the changes feed, null until the relay has published the event
+    @Column(name = "feed_position", unique = true)
+    private Long position;
+
+    @Column(name = "published_dt")
+    private Instant publishedDateTime;
+}
@@ -0,0 +1,21 @@
+package com.kinandcarta.ecommerce.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Slf4j
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class OrdersChangesPage {
+    private List<OrdersChangeEvent> changes;
+    private int limit;
+    // pass as since= on the next call, equal to since when nothing new was published
+    private long nextCursor;
+}
@@ -0,0 +1,72 @@
+package com.kinandcarta.ecommerce.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+/*
+    One accepted POST /orders:async, appended before the 202 goes out so a restart loses nothing. The payload is
+    the order JSON as accepted, the row moves ACCEPTED -> PROCESSING -> CREATED | FAILED and is never deleted here.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Entity
+@Table(name = "orders_intake", indexes = {
+        // the worker pool's queue, oldest accepted first (OrdersIntakeRepository.findDueIdsByStatus)
+        @Index(name = "idx_orders_intake_status", columnList = "status, id")
+})
+public class OrdersIntake {
+    public enum Status { ACCEPTED, PROCESSING, CREATED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_intake_seq")
+    @SequenceGenerator(name = "orders_intake_seq", sequenceName = "orders_intake_seq", allocationSize = 50)
+    @Column(unique = true, nullable = false, name = "id")
+    private Long id;
+
+    @Column(name = "tracking_id", unique = true, nullable = false, length = 36)
+    private String trackingId;
+
+    // client supplied, null when the request carried no Idempotency-Key
+    @Column(name = "idempotency_key", unique = true)
+    private String idempotencyKey;
+
+    // SHA-256 of the payload, a key replayed with a different body is refused
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    // LONGTEXT as created by the migration, a @Lob without a length maps to TINYTEXT on MySQL
+    @ToString.Exclude
+    @Column(nullable = false, columnDefinition = "longtext")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private int attempts;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(length = 1024)
+    private String error;
+
+    @CreationTimestamp
+    @Column(name = "created_dt")
+    private Instant createDateTime;
+
+    // set by every transition, a PROCESSING row older than the lease timeout lost its worker
+    @Column(name = "updated_dt")
+    private Instant updateDateTime;
+
+    // a retried intake is not claimed before this, null until an attempt failed
+    @Column(name = "next_attempt_dt")
+    private Instant nextAttemptDateTime;
+}
@@ -0,0 +1,36 @@
+package com.kinandcarta.ecommerce.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+
+@Getter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+@Slf4j
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class OrdersIntakeStatus {
+    private String trackingId;
+    private OrdersIntake.Status status;
+    // set once CREATED, GET /orders/{orderId}
+    private Long orderId;
+    private int attempts;
+    private String error;
+    private Instant acceptedAt;
+    private Instant updatedAt;
+
+    public static OrdersIntakeStatus of(final OrdersIntake intake) {
+        return OrdersIntakeStatus.builder()
+                .trackingId(intake.getTrackingId())
+                .status(intake.getStatus())
+                .orderId(intake.getOrderId())
+                .attempts(intake.getAttempts())
+                .error(intake.getError())
+                .acceptedAt(intake.getCreateDateTime())
+                .updatedAt(intake.getUpdateDateTime()).build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.kinandcarta.ecommerce.entities;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+
+/*
+    Money as long minor units (cents) at the scale of the decimal(38, 2) price and total columns. Prices, line
+    totals and order totals are summed as longs with overflow checks; BigDecimal is only built for the entity
+    fields and JSON. A price finer than a cent, or a total beyond a long, is not rounded here, callers fall back
+    to exact BigDecimal arithmetic and the column rounds it on insert as before.
+ */
+public final class OrdersMoney {
+    public static final int SCALE = 2;
+
+    private OrdersMoney() {
+    }
+
+    /**
+     * toMinorUnits - an amount in cents, rounded half up like a decimal(38, 2) column stores it
+     * @param amount amount of any scale
+     * @return long cents
+     * @throws ArithmeticException when the cents do not fit a long
+     */
+    public static long toMinorUnits(final BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * exactMinorUnits - an amount in cents when it is a whole number of cents
+     * @param amount amount of any scale
+     * @return long cents
+     * @throws ArithmeticException when the amount has fractions of a cent or the cents do not fit a long
+     */
+    public static long exactMinorUnits(final BigDecimal amount) {
+        // scale 2 or less is the common case, movePointRight gives scale 0 and longValueExact needs no rounding
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(final long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * lineTotal - price times quantity in cents
+     * @param priceMinorUnits price in cents
+     * @param quantity quantity
+     * @return long cents
+     * @throws ArithmeticException on overflow
+     */
+    public static long lineTotal(final long priceMinorUnits, final int quantity) {
+        return Math.multiplyExact(priceMinorUnits, (long) quantity);
+    }
+
+    /**
+     * lineTotal - price times quantity, in cents when the price is a whole number of cents
+     * @param price line price
+     * @param quantity quantity
+     * @return BigDecimal at scale 2, or the exact product when the price has fractions of a cent or overflows a long
+     */
+    public static BigDecimal lineTotal(final BigDecimal price, final int quantity) {
+        try {
+            return toBigDecimal(lineTotal(exactMinorUnits(price), quantity));
+        } catch (final ArithmeticException e) {
+            return price.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    /**
+     * sumLineTotals - the order total of its lines, each line's totalPrice is set on the way
+     * @param lineItems the order's lines
+     * @return BigDecimal at scale 2, or the exact sum when a price has fractions of a cent or the total overflows a long
+     */
+    public static BigDecimal sumLineTotals(final Collection<OrderLineItems> lineItems) {
+        long total = 0L;
+        try {
+            for (OrderLineItems lineItem : lineItems) {
+                long lineTotal = lineTotal(exactMinorUnits(lineItem.getPrice()), lineItem.getQuantity());
+                total = Math.addExact(total, lineTotal);
+                lineItem.setTotalPrice(toBigDecimal(lineTotal));
+            }
+            return toBigDecimal(total);
+        } catch (final ArithmeticException e) {
+            return sumExact(lineItems);
+        }
+    }
+
+    private static BigDecimal sumExact(final Collection<OrderLineItems> lineItems) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderLineItems lineItem : lineItems) {
+            BigDecimal lineTotal = lineItem.getPrice().multiply(BigDecimal.valueOf(lineItem.getQuantity()));
+            lineItem.setTotalPrice(lineTotal);
+            total = total.add(lineTotal);
+        }
+        return total;
+    }
+}
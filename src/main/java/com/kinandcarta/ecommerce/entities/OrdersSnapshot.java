@@ -0,0 +1,142 @@
+package com.kinandcarta.ecommerce.entities;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+    Immutable copy of an order graph, safe to share between requests. Nothing here is attached to a
+    persistence context; every read gets its own detached Orders from toOrders().
+    The account is left out (null) when the snapshot was taken from the details view, which never loads it.
+ */
+public record OrdersSnapshot(Long id,
+                             AccountSnapshot account,
+                             String orderNumber,
+                             Instant orderDate,
+                             AddressSnapshot shippingAddress,
+                             BigDecimal totalPrice,
+                             Instant createDateTime,
+                             Instant updateDateTime,
+                             List<LineItemSnapshot> lineItems) {
+
+    public OrdersSnapshot {
+        lineItems = lineItems == null ? null : List.copyOf(lineItems);
+    }
+
+    public static OrdersSnapshot of(final Orders source, final boolean withAccount) {
+        Objects.requireNonNull(source, "An order is required to take a snapshot.");
+        return new OrdersSnapshot(
+                source.getId(),
+                withAccount && source.getOrdersAccount() != null ? AccountSnapshot.of(source.getOrdersAccount()) : null,
+                source.getOrderNumber(),
+                source.getOrderDate(),
+                source.getOrdersShippingAddress() != null ? AddressSnapshot.of(source.getOrdersShippingAddress()) : null,
+                source.getTotalPrice(),
+                source.getCreateDateTime(),
+                source.getUpdateDateTime(),
+                source.getOrderLineItems() != null ?
+                        source.getOrderLineItems().stream().map(LineItemSnapshot::of).toList() : null);
+    }
+
+    public Orders toOrders() {
+        return Orders.builder()
+                .id(id)
+                .ordersAccount(account != null ? account.toOrdersAccount() : null)
+                .orderNumber(orderNumber)
+                .orderDate(orderDate)
+                .ordersShippingAddress(shippingAddress != null ? shippingAddress.toOrdersAddress() : null)
+                .totalPrice(totalPrice)
+                .createDateTime(createDateTime)
+                .updateDateTime(updateDateTime)
+                .orderLineItems(lineItems != null ?
+                        lineItems.stream().map(LineItemSnapshot::toOrderLineItems).collect(Collectors.toCollection(HashSet::new)) : null)
+                .build();
+    }
+
+    // cache weight, an order costs about as much as its line items
+    public int weight() {
+        return 1 + (lineItems != null ? lineItems.size() : 0);
+    }
+
+    public record AccountSnapshot(Long id, String accountRefId, String firstName, String lastName, String emailAddress,
+                                  List<AddressSnapshot> addresses, Instant createDateTime, Instant updateDateTime) {
+
+        public AccountSnapshot {
+            addresses = addresses == null ? null : List.copyOf(addresses);
+        }
+
+        static AccountSnapshot of(final OrdersAccount source) {
+            return new AccountSnapshot(source.getId(), source.getAccountRefId(), source.getFirstName(), source.getLastName(),
+                    source.getEmailAddress(),
+                    source.getAddresses() != null ? source.getAddresses().stream().map(AddressSnapshot::of).toList() : null,
+                    source.getCreateDateTime(), source.getUpdateDateTime());
+        }
+
+        OrdersAccount toOrdersAccount() {
+            Set<OrdersAddress> copies = addresses != null ?
+                    addresses.stream().map(AddressSnapshot::toOrdersAddress).collect(Collectors.toCollection(HashSet::new)) : null;
+            return OrdersAccount.builder()
+                    .id(id)
+                    .accountRefId(accountRefId)
+                    .firstName(firstName)
+                    .lastName(lastName)
+                    .emailAddress(emailAddress)
+                    .addresses(copies)
+                    .createDateTime(createDateTime)
+                    .updateDateTime(updateDateTime).build();
+        }
+    }
+
+    public record AddressSnapshot(Long id, String address1, String address2, String city, String state, String province,
+                                  String postalCode, String country, boolean isShippingAddress,
+                                  Instant createDateTime, Instant updateDateTime) {
+
+        static AddressSnapshot of(final OrdersAddress source) {
+            return new AddressSnapshot(source.getId(), source.getAddress1(), source.getAddress2(), source.getCity(),
+                    source.getState(), source.getProvince(), source.getPostalCode(), source.getCountry(),
+                    source.isShippingAddress(), source.getCreateDateTime(), source.getUpdateDateTime());
+        }
+
+        OrdersAddress toOrdersAddress() {
+            return OrdersAddress.builder()
+                    .id(id)
+                    .address1(address1)
+                    .address2(address2)
+                    .city(city)
+                    .state(state)
+                    .province(province)
+                    .postalCode(postalCode)
+                    .country(country)
+                    .isShippingAddress(isShippingAddress)
+                    .createDateTime(createDateTime)
+                    .updateDateTime(updateDateTime).build();
+        }
+    }
+
+    public record LineItemSnapshot(Long id, String lineKey, Long orderId, Long productId, int quantity, BigDecimal price,
+                                   BigDecimal totalPrice, Instant createDateTime, Instant updateDateTime) {
+
+        static LineItemSnapshot of(final OrderLineItems source) {
+            return new LineItemSnapshot(source.getId(), source.getLineKey(), source.getOrderId(), source.getProductId(),
+                    source.getQuantity(), source.getPrice(), source.getTotalPrice(),
+                    source.getCreateDateTime(), source.getUpdateDateTime());
+        }
+
+        OrderLineItems toOrderLineItems() {
+            return OrderLineItems.builder()
+                    .id(id)
+                    .lineKey(lineKey)
+                    .orderId(orderId)
+                    .productId(productId)
+                    .quantity(quantity)
+                    .price(price)
+                    .totalPrice(totalPrice)
+                    .createDateTime(createDateTime)
+                    .updateDateTime(updateDateTime).build();
+        }
+    }
+}
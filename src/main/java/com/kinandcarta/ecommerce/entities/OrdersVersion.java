@@ -0,0 +1,14 @@
+package com.kinandcarta.ecommerce.entities;
+
+import java.time.Instant;
+
+/*
+    Version of an order, its updated_dt, read without loading the order. Rows written before updated_dt was
+    maintained have it null and report the epoch until their next update.
+ */
+public record OrdersVersion(Long id, Instant updateDateTime) {
+
+    public Instant version() {
+        return updateDateTime != null ? updateDateTime : Instant.EPOCH;
+    }
+}
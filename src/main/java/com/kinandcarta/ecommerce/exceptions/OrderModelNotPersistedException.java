@@ -7,8 +7,12 @@ public class OrderModelNotPersistedException extends RuntimeException implements
         super(message);
     }
 
+    public OrderModelNotPersistedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
     @Override
     public OrderModelNotPersistedException get() {
-        return new OrderModelNotPersistedException(getMessage());
+        return new OrderModelNotPersistedException(getMessage(), getCause());
     }
 }
@@ -0,0 +1,49 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kinandcarta.ecommerce.contracts.OrdersChangeSink;
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/*
+    Appends each batch to an NDJSON file, one event per line, forced to disk before the relay marks it published.
+    A batch re-published after a crash shows up twice, consumers skip positions they have already seen.
+ */
+public class FileOrdersChangeSink implements OrdersChangeSink {
+    final Path file;
+    final ObjectWriter writer;
+
+    public FileOrdersChangeSink(final Path file, final ObjectWriter writer) {
+        this.file = file;
+        this.writer = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public synchronized void publish(final List<OrdersChangeEvent> changes) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (OrdersChangeEvent change : changes) {
+                writer.writeValue(lines, change);
+                lines.write('\n');
+            }
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(false);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.contracts.OrdersChangeSink;
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/*
+    Default sink, consumers read GET /orders/changes, the log only shows the relay is moving.
+ */
+@Slf4j
+public class LoggingOrdersChangeSink implements OrdersChangeSink {
+    @Override
+    public void publish(final List<OrdersChangeEvent> changes) {
+        log.info("::METHOD, publish, " + changes.size() + " order change(s) up to position "
+                + changes.get(changes.size() - 1).getPosition());
+    }
+}
@@ -0,0 +1,14 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrdersAccount;
+
+import java.util.Optional;
+
+public interface OrdersAccountNaturalIdRepository {
+    /**
+     * findByAccountRefId - account by its natural id, resolved through the natural-id cache when second-level caching is on
+     * @param accountRefId account reference id (accounts-service)
+     * @return Optional of the account
+     */
+    Optional<OrdersAccount> findByAccountRefId(final String accountRefId);
+}
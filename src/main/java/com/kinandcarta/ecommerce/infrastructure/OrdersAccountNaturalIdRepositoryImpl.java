@@ -0,0 +1,24 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrdersAccount;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+/*
+    Spring Data fragment for OrdersAccountRepository. A derived findByAccountRefId query would always hit the
+    database; bySimpleNaturalId goes through the natural-id and entity regions first.
+ */
+public class OrdersAccountNaturalIdRepositoryImpl implements OrdersAccountNaturalIdRepository {
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    public Optional<OrdersAccount> findByAccountRefId(final String accountRefId) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(OrdersAccount.class)
+                .loadOptional(accountRefId);
+    }
+}
@@ -0,0 +1,92 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/*
+    Hibernate second-level cache for the account side of an order: OrdersAccount, its natural id, its addresses
+    collection and OrdersAddress. Regions are local Caffeine caches behind JCache, each with its own size and TTL;
+    READ_WRITE concurrency invalidates an entry when Hibernate updates or deletes the row. Writes that bypass
+    Hibernate (the reactive stack) are only bounded by the TTL.
+ */
+@Configuration
+@ConditionalOnProperty(name = "commerce.orders.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class OrdersCacheConfiguration {
+    public static final String ACCOUNT_REGION = "orders.account";
+    public static final String ACCOUNT_NATURAL_ID_REGION = "orders.account.naturalId";
+    public static final String ACCOUNT_ADDRESSES_REGION = "orders.account.addresses";
+    public static final String ADDRESS_REGION = "orders.address";
+
+    @Value("${commerce.orders.cache.statistics:true}") boolean statistics;
+
+    @Value("${commerce.orders.cache.regions.account.maximumSize:10000}") long accountMaximumSize;
+
+    @Value("${commerce.orders.cache.regions.account.expireAfterWrite:30m}") Duration accountExpireAfterWrite;
+
+    @Value("${commerce.orders.cache.regions.accountNaturalId.maximumSize:10000}") long accountNaturalIdMaximumSize;
+
+    @Value("${commerce.orders.cache.regions.accountNaturalId.expireAfterWrite:30m}") Duration accountNaturalIdExpireAfterWrite;
+
+    @Value("${commerce.orders.cache.regions.accountAddresses.maximumSize:10000}") long accountAddressesMaximumSize;
+
+    @Value("${commerce.orders.cache.regions.accountAddresses.expireAfterWrite:30m}") Duration accountAddressesExpireAfterWrite;
+
+    @Value("${commerce.orders.cache.regions.address.maximumSize:50000}") long addressMaximumSize;
+
+    @Value("${commerce.orders.cache.regions.address.expireAfterWrite:30m}") Duration addressExpireAfterWrite;
+
+    // a manager per application context, a shared (default URI) one would already hold the regions in a second test context
+    @Bean(destroyMethod = "close")
+    public CacheManager ordersSecondLevelCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("orders-second-level-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        cacheManager.createCache(ACCOUNT_REGION, region(accountMaximumSize, accountExpireAfterWrite));
+        cacheManager.createCache(ACCOUNT_NATURAL_ID_REGION, region(accountNaturalIdMaximumSize, accountNaturalIdExpireAfterWrite));
+        cacheManager.createCache(ACCOUNT_ADDRESSES_REGION, region(accountAddressesMaximumSize, accountAddressesExpireAfterWrite));
+        cacheManager.createCache(ADDRESS_REGION, region(addressMaximumSize, addressExpireAfterWrite));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer ordersSecondLevelCacheCustomizer(final CacheManager ordersSecondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, ordersSecondLevelCacheManager);
+            // every region is created above, a typo in an entity's region name fails at startup
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, statistics);
+        };
+    }
+
+    @Bean
+    public OrdersCacheStatisticsEndpoint ordersCacheStatisticsEndpoint(final EntityManagerFactory entityManagerFactory,
+                                                                       final CacheManager ordersSecondLevelCacheManager) {
+        return new OrdersCacheStatisticsEndpoint(entityManagerFactory, ordersSecondLevelCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(final long maximumSize, final Duration expireAfterWrite) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        return configuration;
+    }
+}
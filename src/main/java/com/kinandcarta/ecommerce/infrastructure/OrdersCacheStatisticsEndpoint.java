@@ -0,0 +1,85 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import javax.cache.CacheManager;
+import java.util.List;
+import java.util.Objects;
+
+/*
+    /actuator/orderscache            hit ratio overall and per second-level cache region
+    /actuator/orderscache/{region}   one region
+    DELETE /actuator/orderscache     reset the counters, e.g. before a load test
+ */
+@Endpoint(id = "orderscache")
+public class OrdersCacheStatisticsEndpoint {
+    private static final List<String> REGIONS = List.of(
+            OrdersCacheConfiguration.ACCOUNT_REGION,
+            OrdersCacheConfiguration.ACCOUNT_NATURAL_ID_REGION,
+            OrdersCacheConfiguration.ACCOUNT_ADDRESSES_REGION,
+            OrdersCacheConfiguration.ADDRESS_REGION);
+
+    final EntityManagerFactory entityManagerFactory;
+    final CacheManager cacheManager;
+
+    public OrdersCacheStatisticsEndpoint(final EntityManagerFactory entityManagerFactory, final CacheManager cacheManager) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheManager = cacheManager;
+    }
+
+    @ReadOperation
+    public CacheStatistics statistics() {
+        Statistics statistics = hibernateStatistics();
+        return new CacheStatistics(
+                statistics.isStatisticsEnabled(),
+                hitRatio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()),
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getSecondLevelCachePutCount(),
+                REGIONS.stream().map(this::region).filter(Objects::nonNull).toList());
+    }
+
+    @ReadOperation
+    public RegionStatistics region(@Selector final String region) {
+        if (!REGIONS.contains(region)) return null;
+        CacheRegionStatistics regionStatistics = hibernateStatistics().getDomainDataRegionStatistics(region);
+        if (regionStatistics == null) return null;
+        return new RegionStatistics(
+                region,
+                hitRatio(regionStatistics.getHitCount(), regionStatistics.getMissCount()),
+                regionStatistics.getHitCount(),
+                regionStatistics.getMissCount(),
+                regionStatistics.getPutCount(),
+                // Hibernate has no element count for JCache regions, ask Caffeine
+                cacheManager.getCache(region).unwrap(Cache.class).estimatedSize());
+    }
+
+    @DeleteOperation
+    public void reset() {
+        hibernateStatistics().clear();
+    }
+
+    private Statistics hibernateStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static double hitRatio(final long hits, final long misses) {
+        return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+    }
+
+    public record CacheStatistics(boolean enabled, double hitRatio, long hits, long misses, long puts,
+                                  List<RegionStatistics> regions) {
+    }
+
+    public record RegionStatistics(String region, double hitRatio, long hits, long misses, long puts,
+                                   long elementsInMemory) {
+    }
+}
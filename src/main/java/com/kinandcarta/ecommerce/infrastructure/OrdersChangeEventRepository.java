@@ -0,0 +1,34 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface OrdersChangeEventRepository extends JpaRepository<OrdersChangeEvent, Long> {
+    /**
+     * findByPositionIsNullOrderByIdAsc - events the relay has not published yet, oldest first
+     * @param pageable batch size only
+     * @return List of unpublished events
+     */
+    List<OrdersChangeEvent> findByPositionIsNullOrderByIdAsc(final Pageable pageable);
+
+    /**
+     * findLastPosition - position of the newest published event
+     * @return last feed position, 0 when nothing was published yet
+     */
+    @Query("select coalesce(max(e.position), 0) from OrdersChangeEvent e")
+    long findLastPosition();
+
+    /**
+     * findPublishedAfter - page of the changes feed, <b>after</b> the given position (the cursor)
+     * @param position last position seen by the consumer, 0 for the start of the feed
+     * @param pageable page size only, the offset is always 0 for keyset paging
+     * @return List of published events ordered by position
+     */
+    @Query("select e from OrdersChangeEvent e where e.position > :position order by e.position asc")
+    List<OrdersChangeEvent> findPublishedAfter(@Param("position") final Long position, final Pageable pageable);
+}
@@ -3,10 +3,15 @@ package com.kinandcarta.ecommerce.infrastructure;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kinandcarta.ecommerce.contracts.OrdersChangeSink;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 @Configuration
 public class OrdersConfiguration {
     @Bean
@@ -17,4 +22,33 @@ public class OrdersConfiguration {
         mapper.registerModule(new JavaTimeModule());
         return new MappingJackson2HttpMessageConverter(mapper);
     }
+
+    @Bean
+    public OrdersSnapshotCache ordersSnapshotCache(@Value("${commerce.orders.snapshots.maximumWeight:100000}") long maximumWeight,
+                                                   @Value("${commerce.orders.snapshots.expireAfterWrite:10m}") Duration expireAfterWrite) {
+        return new OrdersSnapshotCache(maximumWeight, expireAfterWrite);
+    }
+
+    @Bean
+    public OrdersJsonCache ordersJsonCache(MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter,
+                                           @Value("${commerce.orders.json.maximumBytes:67108864}") long maximumBytes,
+                                           @Value("${commerce.orders.json.expireAfterWrite:10m}") Duration expireAfterWrite,
+                                           @Value("${commerce.orders.json.revalidateAfter:1s}") Duration revalidateAfter) {
+        return new OrdersJsonCache(mappingJackson2HttpMessageConverter.getObjectMapper().writer(),
+                maximumBytes, expireAfterWrite, revalidateAfter);
+    }
+
+    @Bean
+    public OrdersOutbox ordersOutbox(OrdersChangeEventRepository ordersChangeEventRepository) {
+        return new OrdersOutbox(ordersChangeEventRepository);
+    }
+
+    @Bean
+    public OrdersChangeSink ordersChangeSink(MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter,
+                                             @Value("${commerce.orders.outbox.sink:log}") String sink,
+                                             @Value("${commerce.orders.outbox.file:orders-changes.ndjson}") Path file) {
+        return "file".equalsIgnoreCase(sink)
+                ? new FileOrdersChangeSink(file, mappingJackson2HttpMessageConverter.getObjectMapper().writer())
+                : new LoggingOrdersChangeSink();
+    }
 }
@@ -0,0 +1,77 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/*
+    Opt-in, commerce.orders.datasource.replica.enabled=true. Two pools, spring.datasource (primary, Flyway runs
+    here) and commerce.orders.datasource.replica, behind one routing DataSource that JPA, JdbcTemplate and the
+    repositories use. @Transactional(readOnly = true) handler reads go to the replica, see OrdersReplicaReads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "commerce.orders.datasource.replica.enabled", havingValue = "true")
+public class OrdersDataSourceConfiguration {
+    @Value("${commerce.orders.datasource.replica.maxLag:5s}") Duration maxLag;
+
+    @Value("${commerce.orders.datasource.replica.heartbeatInterval:1s}") Duration heartbeatInterval;
+
+    @Value("${commerce.orders.datasource.replica.readYourWrites:true}") boolean readYourWrites;
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource ordersPrimaryDataSource(final DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("orders-primary");
+        return dataSource;
+    }
+
+    // not a candidate for autowiring, DataSourceAutoConfiguration's spring.datasource properties stay the only ones
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties("commerce.orders.datasource.replica")
+    public DataSourceProperties ordersReplicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("commerce.orders.datasource.replica.hikari")
+    public HikariDataSource ordersReplicaDataSource() {
+        HikariDataSource dataSource = ordersReplicaDataSourceProperties().initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("orders-replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public OrdersReplicaReads ordersReplicaReads() {
+        return new OrdersReplicaReads(maxLag, readYourWrites);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public OrdersReplicaHeartbeat ordersReplicaHeartbeat(@Qualifier("ordersPrimaryDataSource") final DataSource primary,
+                                                         @Qualifier("ordersReplicaDataSource") final DataSource replica,
+                                                         final OrdersReplicaReads ordersReplicaReads) {
+        return new OrdersReplicaHeartbeat(primary, replica, ordersReplicaReads, heartbeatInterval);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("ordersPrimaryDataSource") final DataSource primary,
+                                 @Qualifier("ordersReplicaDataSource") final DataSource replica,
+                                 final OrdersReplicaReads ordersReplicaReads) {
+        // the physical connection is taken at the first statement, once the transaction is known to be read-only
+        return new LazyConnectionDataSourceProxy(new OrdersRoutingDataSource(primary, replica, ordersReplicaReads));
+    }
+}
@@ -0,0 +1,54 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrdersIntake;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface OrdersIntakeRepository extends JpaRepository<OrdersIntake, Long> {
+    Optional<OrdersIntake> findByTrackingId(final String trackingId);
+
+    Optional<OrdersIntake> findByIdempotencyKey(final String idempotencyKey);
+
+    /**
+     * findDueIdsByStatus - oldest intake ids in a status whose next attempt is due, read off idx_orders_intake_status
+     * @param status intake status
+     * @param now intakes retried after this are left out
+     * @param pageable page size only
+     * @return List of intake ids ordered by id
+     */
+    @Query("select i.id from OrdersIntake i where i.status = :status " +
+            "and (i.nextAttemptDateTime is null or i.nextAttemptDateTime <= :now) order by i.id asc")
+    List<Long> findDueIdsByStatus(@Param("status") final OrdersIntake.Status status, @Param("now") final Instant now,
+                                  final Pageable pageable);
+
+    /**
+     * claim - move one ACCEPTED intake whose next attempt is due to PROCESSING, only one worker (on any instance) wins the update
+     * @param id intake id
+     * @param now time of the claim, starts the lease
+     * @return 1 when claimed, 0 when another worker got there first or the intake waits for its next attempt
+     */
+    @Modifying
+    @Query("update OrdersIntake i set i.status = com.kinandcarta.ecommerce.entities.OrdersIntake$Status.PROCESSING, " +
+            "i.attempts = i.attempts + 1, i.updateDateTime = :now " +
+            "where i.id = :id and i.status = com.kinandcarta.ecommerce.entities.OrdersIntake$Status.ACCEPTED " +
+            "and (i.nextAttemptDateTime is null or i.nextAttemptDateTime <= :now)")
+    int claim(@Param("id") final Long id, @Param("now") final Instant now);
+
+    /**
+     * releaseExpired - hand PROCESSING intakes whose lease ran out back to the queue, their worker died with them
+     * @param before claims older than this are expired
+     * @param now time of the release
+     * @return number of intakes released
+     */
+    @Modifying
+    @Query("update OrdersIntake i set i.status = com.kinandcarta.ecommerce.entities.OrdersIntake$Status.ACCEPTED, i.updateDateTime = :now " +
+            "where i.status = com.kinandcarta.ecommerce.entities.OrdersIntake$Status.PROCESSING and i.updateDateTime < :before")
+    int releaseExpired(@Param("before") final Instant before, @Param("now") final Instant now);
+}
@@ -0,0 +1,144 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.lang.Nullable;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.function.Function;
+
+/*
+    Encoded UTF-8 JSON of GET /orders/{id} and /orders/{id}/lines, one entry per order and view, labelled with the
+    order version (updated_dt) it was serialized from. The strong ETag is derived from id, view and version only,
+    so a client's If-None-Match can be answered before any body is loaded.
+
+    An entry validated within revalidateAfter is served (or answered with 304) without touching the database.
+    After that one version-only select decides whether the bytes are still current. Writes through this instance
+    evict straight away; writes elsewhere are seen at the next revalidation.
+ */
+public class OrdersJsonCache implements MeterBinder {
+    public enum View { ORDER, LINES }
+
+    public record Entry(Instant version, String eTag, @Nullable byte[] body) {
+
+        /**
+         * matches - weak comparison against an If-None-Match header, as RFC 9110 asks for on GET
+         * @param ifNoneMatch header value, a list of entity tags or *
+         * @return true when the client already holds this version
+         */
+        public boolean matches(@Nullable final String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*")) return true;
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.equals(eTag)) return true;
+            }
+            return false;
+        }
+    }
+
+    private record Key(Long id, View view) {
+    }
+
+    private record Validated(Entry entry, long validatedAt) {
+    }
+
+    final Cache<Key, Validated> cache;
+    final ObjectWriter writer;
+    final long revalidateAfterNanos;
+
+    public OrdersJsonCache(final ObjectWriter writer, final long maximumBytes, final Duration expireAfterWrite,
+                           final Duration revalidateAfter) {
+        this.writer = writer;
+        this.revalidateAfterNanos = revalidateAfter.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((Key key, Validated validated) -> validated.entry().body().length)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * get - current JSON of one view of an order, or only its ETag when the client already holds that version
+     * @param id order id
+     * @param view ORDER (findById) or LINES (findOrderLineItemsFor)
+     * @param ifNoneMatch the request's If-None-Match, null when absent
+     * @param versionLookup version of the order, throws when there is no such order
+     * @param loader reads the value to serialize, exceptions propagate and nothing is cached
+     * @param loadedVersion version the loaded value carries, null if it carries none
+     * @return Entry, its body is null only when it matches ifNoneMatch
+     */
+    public <T> Entry get(final Long id, final View view, @Nullable final String ifNoneMatch,
+                         final Function<Long, Instant> versionLookup, final Function<Long, T> loader,
+                         final Function<T, Instant> loadedVersion) {
+        Key key = new Key(id, view);
+        Validated cached = cache.getIfPresent(key);
+        if (cached != null && System.nanoTime() - cached.validatedAt() < revalidateAfterNanos) {
+            return cached.entry();
+        }
+
+        // the version is read before the body, a write landing in between leaves an entry older than its label at worst
+        Instant version = versionLookup.apply(id);
+        if (cached != null && cached.entry().version().equals(version)) {
+            cache.put(key, new Validated(cached.entry(), System.nanoTime()));
+            return cached.entry();
+        }
+        String eTag = eTag(id, view, version);
+        Entry unchanged = new Entry(version, eTag, null);
+        if (unchanged.matches(ifNoneMatch)) {
+            return unchanged;
+        }
+
+        T value = loader.apply(id);
+        // a value older than the version came out of a cache that has not been evicted yet, serve it under its own
+        // version's ETag so the next If-None-Match does not pin it, and do not keep it
+        Instant valueVersion = loadedVersion.apply(value);
+        if (valueVersion != null && valueVersion.isBefore(version)) {
+            return new Entry(valueVersion, eTag(id, view, valueVersion), serialize(value));
+        }
+        Entry loaded = new Entry(version, eTag, serialize(value));
+        cache.put(key, new Validated(loaded, System.nanoTime()));
+        return loaded;
+    }
+
+    /**
+     * evict - drop every view of an order
+     * @param id order id
+     */
+    public void evict(final Long id) {
+        for (View view : View.values()) {
+            cache.invalidate(new Key(id, view));
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "orders.json");
+    }
+
+    static String eTag(final Long id, final View view, final Instant version) {
+        return "\"" + id + "-" + view.name().toLowerCase() + "-" + version.getEpochSecond() + "." + version.getNano() + "\"";
+    }
+
+    private byte[] serialize(final Object value) {
+        try {
+            return writer.writeValueAsBytes(Objects.requireNonNull(value, "Nothing to serialize."));
+        } catch (final JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrderLineItems;
+
+import java.util.Collection;
+
+public interface OrdersLineItemsInsertRepository {
+    /**
+     * insertForOrder - insert new line items of an existing order with their order_id, one JDBC batch
+     * @param orderId order id
+     * @param lineItems transient line items, ids, order id and timestamps are assigned
+     */
+    void insertForOrder(final Long orderId, final Collection<OrderLineItems> lineItems);
+}
@@ -0,0 +1,69 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.TimeZone;
+
+/*
+    Spring Data fragment for OrdersLineItemsRepository. order_line_items.order_id is written through
+    Orders.orderLineItems, adding to that set would load every line of the order first. This inserts only the new
+    lines, order_id included, on the transaction's connection with ids from the same pooled sequence.
+ */
+public class OrdersLineItemsInsertRepositoryImpl implements OrdersLineItemsInsertRepository {
+    static final String INSERT = "insert into order_line_items (id, line_key, order_id, product_id, quantity, price, total_price, created_dt, updated_dt) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    public void insertForOrder(final Long orderId, final Collection<OrderLineItems> lineItems) {
+        if (lineItems.isEmpty()) return;
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        Generator generator = session.getEntityPersister(null, lineItems.iterator().next()).getGenerator();
+        if (!(generator instanceof BeforeExecutionGenerator ids)) {
+            throw new IllegalStateException("order_line_items ids are not generated before insert, generator -> " + generator);
+        }
+        // stored as UTC like the columns Hibernate writes, at the microseconds the columns keep
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+        for (OrderLineItems lineItem : lineItems) {
+            lineItem.setId((Long) ids.generate(session, lineItem, null, EventType.INSERT));
+            lineItem.setOrderId(orderId);
+            lineItem.setCreateDateTime(now);
+            lineItem.setUpdateDateTime(now);
+        }
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+                for (OrderLineItems lineItem : lineItems) {
+                    statement.setLong(1, lineItem.getId());
+                    statement.setString(2, lineItem.getLineKey());
+                    statement.setLong(3, orderId);
+                    statement.setLong(4, lineItem.getProductId());
+                    statement.setInt(5, lineItem.getQuantity());
+                    statement.setBigDecimal(6, lineItem.getPrice());
+                    if (lineItem.getTotalPrice() != null) statement.setBigDecimal(7, lineItem.getTotalPrice());
+                    else statement.setNull(7, Types.DECIMAL);
+                    statement.setTimestamp(8, Timestamp.from(now), utc);
+                    statement.setTimestamp(9, Timestamp.from(now), utc);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+}
@@ -2,14 +2,45 @@ package com.kinandcarta.ecommerce.infrastructure;
 
 import com.kinandcarta.ecommerce.entities.OrderLineItems;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
-public interface OrdersLineItemsRepository extends JpaRepository<OrderLineItems, Long> {
+public interface OrdersLineItemsRepository extends JpaRepository<OrderLineItems, Long>, OrdersLineItemsInsertRepository {
     /**
      * findOrderLineItemsByOrderId - find order line item by order id <b>within</b> the order line item
      * @param orderId orderId
      * @return List of order line items
      */
     List<OrderLineItems> findOrderLineItemsByOrderId(final Long orderId);
+
+    /**
+     * findByOrderAndIdIn - only the given line items of an order, in one select
+     * @param orderId order id
+     * @param ids line item ids
+     * @return List of the line items that belong to the order, ids of other orders are left out
+     */
+    @Query("select li from OrderLineItems li where li.orderId = :orderId and li.id in :ids")
+    List<OrderLineItems> findByOrderAndIdIn(@Param("orderId") final Long orderId, @Param("ids") final Collection<Long> ids);
+
+    /**
+     * sumLineTotalsByOrderId - price times quantity over every line of an order, summed in the database
+     * @param orderId order id
+     * @return the order's line total, 0 without lines
+     */
+    @Query("select coalesce(sum(li.price * li.quantity), 0) from OrderLineItems li where li.orderId = :orderId")
+    BigDecimal sumLineTotalsByOrderId(@Param("orderId") final Long orderId);
+
+    /**
+     * deleteAllByIdIn - delete line items in one statement
+     * @param ids line item ids
+     * @return number of line items deleted
+     */
+    @Modifying
+    @Query("delete from OrderLineItems li where li.id in :ids")
+    int deleteAllByIdIn(@Param("ids") final Collection<Long> ids);
 }
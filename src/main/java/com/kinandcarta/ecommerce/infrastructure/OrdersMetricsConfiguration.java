@@ -0,0 +1,48 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+    Timers for the @Timed handler and accounts client methods, per-request Hibernate statement and entity load
+    counts and the slow query log. Repository invocations (spring.data.repository.invocations), the Hikari pools
+    (hikaricp.*) and Hibernate's session factory statistics (hibernate.*) are bound by Spring Boot; all of them
+    are scraped at /actuator/prometheus.
+ */
+@Configuration
+public class OrdersMetricsConfiguration {
+    @Value("${commerce.orders.metrics.slowQueryThreshold:200ms}") Duration slowQueryThreshold;
+
+    @Bean
+    public TimedAspect timedAspect(final MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public OrdersRequestMetricsFilter ordersRequestMetricsFilter(final MeterRegistry meterRegistry) {
+        return new OrdersRequestMetricsFilter(meterRegistry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer ordersMetricsCustomizer() {
+        return properties -> {
+            // statements slower than the threshold are logged at INFO by org.hibernate.SQL_SLOW, with their SQL
+            properties.put(AvailableSettings.LOG_SLOW_QUERY, slowQueryThreshold.toMillis());
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, OrdersRequestStatistics.StatementListener.class.getName());
+            properties.put(JpaSettings.INTEGRATOR_PROVIDER,
+                    (IntegratorProvider) () -> List.of(new OrdersRequestStatistics.EntityLoadIntegrator()));
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrderSummary;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/*
+    Writes order change events next to the order rows, the caller's transaction commits or rolls back both.
+ */
+public class OrdersOutbox {
+    @Nullable
+    final OrdersChangeEventRepository ordersChangeEventRepository;
+
+    public OrdersOutbox(@Nullable final OrdersChangeEventRepository ordersChangeEventRepository) {
+        this.ordersChangeEventRepository = ordersChangeEventRepository;
+    }
+
+    // for handlers built by hand, outside a Spring context, nothing is recorded
+    public static OrdersOutbox discarding() {
+        return new OrdersOutbox(null);
+    }
+
+    /**
+     * record - one CREATED or UPDATED event per order, the orders must already carry their ids
+     * @param orders orders as written by this transaction
+     * @param type CREATED or UPDATED
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(final Collection<Orders> orders, final OrdersChangeEvent.Type type) {
+        if (ordersChangeEventRepository == null || orders.isEmpty()) return;
+        // the insert assigns updated_dt, flush so new orders carry the version their ETag will be built from
+        ordersChangeEventRepository.flush();
+        ordersChangeEventRepository.saveAll(orders.stream().map(order -> OrdersChangeEvent.builder()
+                .orderId(order.getId())
+                .type(type)
+                .orderNumber(order.getOrderNumber())
+                .totalPrice(order.getTotalPrice())
+                .orderVersion(order.getUpdateDateTime()).build()).toList());
+    }
+
+    /**
+     * record - one event for an order changed by bulk statements, without the entity at hand
+     * @param summary the order after the change
+     * @param version its updated_dt after the change
+     * @param type UPDATED
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(final OrderSummary summary, final Instant version, final OrdersChangeEvent.Type type) {
+        if (ordersChangeEventRepository == null) return;
+        ordersChangeEventRepository.save(OrdersChangeEvent.builder()
+                .orderId(summary.id())
+                .type(type)
+                .orderNumber(summary.orderNumber())
+                .totalPrice(summary.totalPrice())
+                .orderVersion(version).build());
+    }
+
+    /**
+     * recordDeleted - one DELETED event
+     * @param orderId id of the deleted order
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(final Long orderId) {
+        if (ordersChangeEventRepository == null) return;
+        ordersChangeEventRepository.save(OrdersChangeEvent.builder()
+                .orderId(orderId)
+                .type(OrdersChangeEvent.Type.DELETED).build());
+    }
+}
@@ -0,0 +1,93 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Replica lag off a heartbeat row (orders_replica_heartbeat, db/migration V10): every interval the beat the
+    replica shows is handed to OrdersReplicaReads, then a new one is written to the primary. The replica shows
+    a beat at most one interval old when it keeps up, maxLag has to be larger than the interval.
+ */
+@Slf4j
+public class OrdersReplicaHeartbeat {
+    static final long HEARTBEAT_ID = 1L;
+    private static final Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    final JdbcTemplate primary;
+    final JdbcTemplate replica;
+    final OrdersReplicaReads ordersReplicaReads;
+    final Duration interval;
+    final Clock clock;
+
+    ScheduledExecutorService heartbeat;
+
+    public OrdersReplicaHeartbeat(final DataSource primary, final DataSource replica,
+                                  final OrdersReplicaReads ordersReplicaReads, final Duration interval) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.ordersReplicaReads = ordersReplicaReads;
+        this.interval = interval;
+        this.clock = Clock.systemUTC();
+    }
+
+    public void start() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "orders-replica-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::beat, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (heartbeat != null) heartbeat.shutdownNow();
+    }
+
+    /**
+     * beat - read the replica's heartbeat, then write the next one to the primary
+     */
+    public void beat() {
+        try {
+            List<Timestamp> beats = replica.query("SELECT beat_dt FROM orders_replica_heartbeat WHERE id = ?",
+                    (row, i) -> row.getTimestamp(1, (Calendar) UTC.clone()), HEARTBEAT_ID);
+            ordersReplicaReads.replicaBeat(beats.isEmpty() ? null : beats.get(0).toInstant());
+        } catch (final Exception e) {
+            ordersReplicaReads.replicaFailed();
+            log.warn("::METHOD, beat, replica heartbeat not readable, reads stay on the primary. " + e);
+        }
+
+        try {
+            // beat_dt keeps microseconds, a truncated beat only ever pins a read longer
+            Timestamp now = Timestamp.from(clock.instant().truncatedTo(ChronoUnit.MICROS));
+            int updated = primary.update(connection -> {
+                var update = connection.prepareStatement("UPDATE orders_replica_heartbeat SET beat_dt = ? WHERE id = ?");
+                update.setTimestamp(1, now, (Calendar) UTC.clone());
+                update.setLong(2, HEARTBEAT_ID);
+                return update;
+            });
+            if (updated == 0) {
+                primary.update(connection -> {
+                    var insert = connection.prepareStatement("INSERT INTO orders_replica_heartbeat (id, beat_dt) VALUES (?, ?)");
+                    insert.setLong(1, HEARTBEAT_ID);
+                    insert.setTimestamp(2, now, (Calendar) UTC.clone());
+                    return insert;
+                });
+            }
+        } catch (final Exception e) {
+            log.warn("::METHOD, beat, heartbeat not written to the primary. " + e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kinandcarta.ecommerce.entities.Orders;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/*
+    Decides whether a read-only transaction may read the replica, OrdersRoutingDataSource asks once per transaction
+    when it takes its connection.
+
+    Replica lag is the age of the heartbeat the replica shows (OrdersReplicaHeartbeat), beyond maxLag or when the
+    replica could not be read every read goes to the primary. Read your writes: a committed write pins the orders
+    and accounts it touched, a read naming one of them goes to the primary until the replica shows a heartbeat
+    written after that commit. Pins are kept for maxLag, a replica within tolerance has the write by then.
+    Pins are per instance, a read served by another instance only gets the lag tolerance; heartbeats of an instance
+    whose clock runs ahead release pins early.
+ */
+public class OrdersReplicaReads implements MeterBinder {
+    private enum Kind { ALL, ORDER, ACCOUNT }
+
+    private record Key(Kind kind, @Nullable Long id) {
+    }
+
+    private static final Key ALL = new Key(Kind.ALL, null);
+    private static final long MAXIMUM_PINS = 100_000L;
+
+    final boolean enabled;
+    final Duration maxLag;
+    final boolean readYourWrites;
+    final Clock clock;
+    final Cache<Key, Instant> pins;
+
+    // heartbeat last read off the replica, null until one was read or after the replica failed
+    @Nullable
+    volatile Instant replicaBeat;
+
+    public OrdersReplicaReads(final Duration maxLag, final boolean readYourWrites) {
+        this(true, maxLag, readYourWrites, Clock.systemUTC());
+    }
+
+    OrdersReplicaReads(final boolean enabled, final Duration maxLag, final boolean readYourWrites, final Clock clock) {
+        this.enabled = enabled;
+        this.maxLag = maxLag;
+        this.readYourWrites = readYourWrites;
+        this.clock = clock;
+        this.pins = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_PINS)
+                .expireAfterWrite(maxLag)
+                .build();
+    }
+
+    // no replica configured (or handlers built by hand), every read stays on the primary
+    public static OrdersReplicaReads primaryOnly() {
+        return new OrdersReplicaReads(false, Duration.ZERO, false, Clock.systemUTC());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * readingOrder - the current read-only transaction reads this order
+     * @param orderId order id
+     */
+    public void readingOrder(final Long orderId) {
+        reading(new Key(Kind.ORDER, orderId));
+    }
+
+    /**
+     * readingAccount - the current read-only transaction reads this account's orders
+     * @param accountId orders account id
+     */
+    public void readingAccount(final Long accountId) {
+        reading(new Key(Kind.ACCOUNT, accountId));
+    }
+
+    /**
+     * readingAll - the current read-only transaction reads across all orders, any recent write pins it
+     */
+    public void readingAll() {
+        reading(ALL);
+    }
+
+    /**
+     * wrote - the current transaction writes these orders, pinned once it commits
+     * @param orders orders as written, with their ids
+     */
+    public void wrote(final Collection<Orders> orders) {
+        if (!enabled || !readYourWrites) return;
+        Set<Key> keys = new HashSet<>();
+        keys.add(ALL);
+        for (Orders order : orders) {
+            keys.add(new Key(Kind.ORDER, order.getId()));
+            if (order.getOrdersAccount() != null) keys.add(new Key(Kind.ACCOUNT, order.getOrdersAccount().getId()));
+        }
+        pinAfterCommit(keys);
+    }
+
+    /**
+     * wroteOrder - the current transaction writes one order, pinned once it commits
+     * @param orderId order id
+     * @param accountId its orders account id, null when not known
+     */
+    public void wroteOrder(final Long orderId, @Nullable final Long accountId) {
+        if (!enabled || !readYourWrites) return;
+        Set<Key> keys = new HashSet<>(List.of(ALL, new Key(Kind.ORDER, orderId)));
+        if (accountId != null) keys.add(new Key(Kind.ACCOUNT, accountId));
+        pinAfterCommit(keys);
+    }
+
+    /**
+     * replicaAllowed - the current read-only transaction may read the replica
+     * @return true when the replica is within maxLag and has every write the transaction's reads are pinned to
+     */
+    public boolean replicaAllowed() {
+        Instant beat = replicaBeat;
+        if (!enabled || beat == null) return false;
+        if (Duration.between(beat, clock.instant()).compareTo(maxLag) > 0) return false;
+
+        Set<Key> keys = boundKeys();
+        if (keys == null) return true;
+        for (Key key : keys) {
+            Instant pinned = pins.getIfPresent(key);
+            if (pinned != null && !beat.isAfter(pinned)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * replicaBeat - the heartbeat the replica shows now
+     * @param beat heartbeat read off the replica, null when it has none yet
+     */
+    public void replicaBeat(@Nullable final Instant beat) {
+        replicaBeat = beat;
+    }
+
+    // the replica could not be read, reads stay on the primary until it can again
+    public void replicaFailed() {
+        replicaBeat(null);
+    }
+
+    /**
+     * lag - how far the replica trails the primary
+     * @return Optional of the age of the replica's heartbeat, empty when it is not known
+     */
+    public Optional<Duration> lag() {
+        Instant beat = replicaBeat;
+        return beat == null ? Optional.empty() : Optional.of(Duration.between(beat, clock.instant()));
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("orders.replica.lag", this, reads -> reads.lag().map(lag -> lag.toNanos() / 1e9).orElse(Double.NaN))
+                .description("age of the heartbeat the read replica shows, NaN when unknown")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    private void reading(final Key key) {
+        if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive()) return;
+        Set<Key> keys = boundKeys();
+        if (keys == null) {
+            keys = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OrdersReplicaReads.this);
+                }
+            });
+        }
+        keys.add(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private Set<Key> boundKeys() {
+        return (Set<Key>) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private void pinAfterCommit(final Set<Key> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pin(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pin(keys);
+            }
+        });
+    }
+
+    private void pin(final Set<Key> keys) {
+        Instant now = clock.instant();
+        keys.forEach(key -> pins.put(key, now));
+    }
+}
@@ -1,10 +1,213 @@
 package com.kinandcarta.ecommerce.infrastructure;
 
+import com.kinandcarta.ecommerce.entities.OrderSummary;
 import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrdersRepository extends JpaRepository<Orders, Long> {
     List<Orders> findAllByOrdersAccountIdOrderByOrderDateDesc(final Long id);
+
+    /**
+     * findAggregateById - the order aggregate (account, shipping address, line items) in one select, the account's
+     * addresses are loaded on first access from the second-level cache or a select of their own
+     * @param id order id
+     * @return Optional of the order, account addresses left lazy
+     */
+    @EntityGraph(attributePaths = {"ordersAccount", "ordersShippingAddress", "orderLineItems"})
+    Optional<Orders> findAggregateById(final Long id);
+
+    /**
+     * findDetailsById - only what the details view reads (shipping address, line items) in one select
+     * @param id order id
+     * @return Optional of the order, account left lazy
+     */
+    @EntityGraph(attributePaths = {"ordersShippingAddress", "orderLineItems"})
+    Optional<Orders> findDetailsById(final Long id);
+
+    /**
+     * findLineItemsById - the order with its line items in one select
+     * @param id order id
+     * @return Optional of the order, account and shipping address left lazy
+     */
+    @EntityGraph(attributePaths = {"orderLineItems"})
+    Optional<Orders> findLineItemsById(final Long id);
+
+    /**
+     * findVersionById - only the order's updated_dt, revalidates cached responses without loading the order
+     * @param id order id
+     * @return Optional of the order version
+     */
+    @Query("select new com.kinandcarta.ecommerce.entities.OrdersVersion(o.id, o.updateDateTime) from Orders o where o.id = :id")
+    Optional<OrdersVersion> findVersionById(@Param("id") final Long id);
+
+    /**
+     * findAccountIdById - only the order's orders_account_id
+     * @param id order id
+     * @return Optional of the orders account id
+     */
+    @Query("select o.ordersAccount.id from Orders o where o.id = :id")
+    Optional<Long> findAccountIdById(@Param("id") final Long id);
+
+    /**
+     * findSummaryById - one order as an OrderSummary, no entity loaded
+     * @param id order id
+     * @return Optional of the summary
+     */
+    @Query("select new com.kinandcarta.ecommerce.entities.OrderSummary(o.id, o.orderNumber, o.orderDate, o.totalPrice) from Orders o where o.id = :id")
+    Optional<OrderSummary> findSummaryById(@Param("id") final Long id);
+
+    /**
+     * touchById - set the order's updated_dt without loading it, the row stays locked until the transaction ends
+     * @param id order id
+     * @param now the new order version
+     * @return 1 when the order exists, else 0
+     */
+    @Modifying
+    @Query("update Orders o set o.updateDateTime = :now where o.id = :id")
+    int touchById(@Param("id") final Long id, @Param("now") final Instant now);
+
+    /**
+     * addToTotalPrice - adjust a stored total by the change in its line totals
+     * @param id order id
+     * @param delta sum of the new line totals minus the sum of the replaced ones
+     * @return 1 when adjusted, 0 when the order has no total yet
+     */
+    @Modifying
+    @Query("update Orders o set o.totalPrice = o.totalPrice + cast(:delta as BigDecimal) where o.id = :id and o.totalPrice is not null")
+    int addToTotalPrice(@Param("id") final Long id, @Param("delta") final BigDecimal delta);
+
+    /**
+     * updateTotalPrice - replace the order's total
+     * @param id order id
+     * @param totalPrice new total
+     * @return 1 when the order exists, else 0
+     */
+    @Modifying
+    @Query("update Orders o set o.totalPrice = :totalPrice where o.id = :id")
+    int updateTotalPrice(@Param("id") final Long id, @Param("totalPrice") final BigDecimal totalPrice);
+
+    /**
+     * findByIdGreaterThanOrderByIdAsc - keyset page of orders, <b>after</b> the given id (the cursor)
+     * @param id last id seen by the caller, 0 for the first page
+     * @param pageable page size only, the offset is always 0 for keyset paging
+     * @return List of orders ordered by id
+     */
+    List<Orders> findByIdGreaterThanOrderByIdAsc(final Long id, final Pageable pageable);
+
+    /**
+     * findHistoryIdsByAccountId - first page of an account's order ids, newest first, read off idx_orders_account_history
+     * @param accountId orders account id
+     * @param pageable page size only, the offset is always 0 for keyset paging
+     * @return Slice of order ids, hasNext without a count(*)
+     */
+    @Query("select o.id from Orders o where o.ordersAccount.id = :accountId order by o.orderDate desc, o.id asc")
+    Slice<Long> findHistoryIdsByAccountId(@Param("accountId") final Long accountId, final Pageable pageable);
+
+    /**
+     * findHistoryIdsByAccountIdAfter - next page of an account's order ids, <b>after</b> the (orderDate, id) cursor
+     * @param accountId orders account id
+     * @param orderDate order date of the last order seen
+     * @param id id of the last order seen
+     * @param pageable page size only, the offset is always 0 for keyset paging
+     * @return Slice of order ids, hasNext without a count(*)
+     */
+    @Query("select o.id from Orders o where o.ordersAccount.id = :accountId " +
+            "and (o.orderDate < :orderDate or (o.orderDate = :orderDate and o.id > :id)) order by o.orderDate desc, o.id asc")
+    Slice<Long> findHistoryIdsByAccountIdAfter(@Param("accountId") final Long accountId, @Param("orderDate") final Instant orderDate,
+                                               @Param("id") final Long id, final Pageable pageable);
+
+    /**
+     * findAllSummaries - every order as an OrderSummary, one narrow select and no entities
+     * @return List of summaries ordered by id
+     */
+    @Query("select new com.kinandcarta.ecommerce.entities.OrderSummary(o.id, o.orderNumber, o.orderDate, o.totalPrice) from Orders o order by o.id asc")
+    List<OrderSummary> findAllSummaries();
+
+    /**
+     * findSummariesByAccountId - an account's orders as OrderSummary, newest first
+     * @param accountId orders account id
+     * @return List of summaries ordered by order date (desc), then id
+     */
+    @Query("select new com.kinandcarta.ecommerce.entities.OrderSummary(o.id, o.orderNumber, o.orderDate, o.totalPrice) from Orders o where o.ordersAccount.id = :accountId order by o.orderDate desc, o.id asc")
+    List<OrderSummary> findSummariesByAccountId(@Param("accountId") final Long accountId);
+
+    /**
+     * findSummariesByIdGreaterThan - keyset page of OrderSummary, <b>after</b> the given id (the cursor)
+     * @param id last id seen by the caller, 0 for the first page
+     * @param pageable page size only, the offset is always 0 for keyset paging
+     * @return List of summaries ordered by id
+     */
+    @Query("select new com.kinandcarta.ecommerce.entities.OrderSummary(o.id, o.orderNumber, o.orderDate, o.totalPrice) from Orders o where o.id > :id order by o.id asc")
+    List<OrderSummary> findSummariesByIdGreaterThan(@Param("id") final Long id, final Pageable pageable);
+
+    /**
+     * findHistorySummariesByAccountId - first page of an account's history as OrderSummary, read off idx_orders_account_history
+     * @param accountId orders account id
+     * @param pageable page size only, the offset is always 0 for keyset paging
+     * @return Slice of summaries, hasNext without a count(*)
+     */
+    @Query("select new com.kinandcarta.ecommerce.entities.OrderSummary(o.id, o.orderNumber, o.orderDate, o.totalPrice) from Orders o where o.ordersAccount.id = :accountId order by o.orderDate desc, o.id asc")
+    Slice<OrderSummary> findHistorySummariesByAccountId(@Param("accountId") final Long accountId, final Pageable pageable);
+
+    /**
+     * findHistorySummariesByAccountIdAfter - next page of an account's history as OrderSummary, <b>after</b> the (orderDate, id) cursor
+     * @param accountId orders account id
+     * @param orderDate order date of the last order seen
+     * @param id id of the last order seen
+     * @param pageable page size only, the offset is always 0 for keyset paging
+     * @return Slice of summaries, hasNext without a count(*)
+     */
+    @Query("select new com.kinandcarta.ecommerce.entities.OrderSummary(o.id, o.orderNumber, o.orderDate, o.totalPrice) from Orders o where o.ordersAccount.id = :accountId " +
+            "and (o.orderDate < :orderDate or (o.orderDate = :orderDate and o.id > :id)) order by o.orderDate desc, o.id asc")
+    Slice<OrderSummary> findHistorySummariesByAccountIdAfter(@Param("accountId") final Long accountId, @Param("orderDate") final Instant orderDate,
+                                                            @Param("id") final Long id, final Pageable pageable);
+
+    /**
+     * findAggregatesByIdIn - aggregates (account, shipping address, line items) of one page of orders in one select,
+     * no paging on the fetch join; the account addresses are left lazy, see OrdersHandler.findOrdersForAccountId
+     * @param ids order ids of the page
+     * @return List of orders, account addresses left lazy, in no particular order
+     */
+    @EntityGraph(attributePaths = {"ordersAccount", "ordersShippingAddress", "orderLineItems"})
+    List<Orders> findAggregatesByIdIn(final Collection<Long> ids);
+
+    /**
+     * streamByOrdersAccountIdOrderByOrderDateDescIdAsc - stream an account's orders off the JDBC cursor, newest first,
+     * must be consumed inside a transaction
+     * @param accountId orders account id
+     * @return Stream of read-only orders, close when done
+     */
+    @EntityGraph(attributePaths = {"ordersAccount", "ordersShippingAddress"})
+    @QueryHints(value = {
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Orders> streamByOrdersAccountIdOrderByOrderDateDescIdAsc(final Long accountId);
+
+    /**
+     * streamAllByOrderByIdAsc - stream every order off the JDBC cursor, must be consumed inside a transaction
+     * @return Stream of read-only orders ordered by id, close when done
+     */
+    @QueryHints(value = {
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Orders> streamAllByOrderByIdAsc();
 }
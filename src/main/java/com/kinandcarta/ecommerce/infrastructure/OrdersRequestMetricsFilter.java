@@ -0,0 +1,55 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/*
+    Records the Hibernate statements and entity loads of each request (OrdersRequestStatistics) as
+    orders.request.statements and orders.request.entity.loads, tagged like http.server.requests by method and
+    uri pattern. A request whose counts grow with the size of its result is an N+1 in the making.
+ */
+public class OrdersRequestMetricsFilter extends OncePerRequestFilter {
+    static final String STATEMENTS = "orders.request.statements";
+    static final String ENTITY_LOADS = "orders.request.entity.loads";
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    final MeterRegistry meterRegistry;
+
+    public OrdersRequestMetricsFilter(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        OrdersRequestStatistics statistics = OrdersRequestStatistics.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            OrdersRequestStatistics.close();
+            // set once a handler was mapped, raw paths would give a meter per order id
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? UNKNOWN_URI : pattern.toString();
+            summary(STATEMENTS, "Hibernate statements prepared per request", request.getMethod(), uri)
+                    .record(statistics.getStatements());
+            summary(ENTITY_LOADS, "entities loaded by Hibernate per request", request.getMethod(), uri)
+                    .record(statistics.getEntityLoads());
+        }
+    }
+
+    private DistributionSummary summary(final String name, final String description, final String method, final String uri) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,83 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import org.hibernate.SessionEventListener;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/*
+    Hibernate statements and entity loads of the request on the current thread, between open() and close().
+    Statements are counted by a SessionEventListener Hibernate adds to every session (hibernate.session.events.auto),
+    entity loads by a post-load listener added through an Integrator; both only count while a request is open on
+    their thread, work handed to other threads (intake workers, NDJSON streaming, the outbox relay) is not counted.
+ */
+public final class OrdersRequestStatistics {
+    private static final ThreadLocal<OrdersRequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+    private long entityLoads;
+
+    private OrdersRequestStatistics() {
+    }
+
+    /**
+     * open - start counting for the request on the current thread
+     * @return OrdersRequestStatistics of this request, read its counts after close()
+     */
+    public static OrdersRequestStatistics open() {
+        OrdersRequestStatistics statistics = new OrdersRequestStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    // stop counting on the current thread
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+
+    static void statementPrepared() {
+        OrdersRequestStatistics statistics = CURRENT.get();
+        if (statistics != null) statistics.statements++;
+    }
+
+    static void entityLoaded() {
+        OrdersRequestStatistics statistics = CURRENT.get();
+        if (statistics != null) statistics.entityLoads++;
+    }
+
+    // instantiated by Hibernate per session, needs to be public with a no-arg constructor
+    public static class StatementListener implements SessionEventListener {
+        @Override
+        public void jdbcPrepareStatementStart() {
+            statementPrepared();
+        }
+    }
+
+    public static class EntityLoadIntegrator implements Integrator {
+        @Override
+        public void integrate(final Metadata metadata, final BootstrapContext bootstrapContext,
+                              final SessionFactoryImplementor sessionFactory) {
+            sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class)
+                    .appendListeners(EventType.POST_LOAD, (PostLoadEventListener) (final PostLoadEvent event) -> entityLoaded());
+        }
+
+        @Override
+        public void disintegrate(final SessionFactoryImplementor sessionFactory,
+                                 final SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
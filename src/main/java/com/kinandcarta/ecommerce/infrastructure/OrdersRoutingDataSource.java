@@ -0,0 +1,32 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/*
+    Primary for writes and for reads outside a read-only transaction, the replica for read-only transactions that
+    OrdersReplicaReads lets through. Sits behind a LazyConnectionDataSourceProxy, the transaction manager takes its
+    connection before the transaction is marked read-only and the handler has named what it reads.
+ */
+public class OrdersRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Target { PRIMARY, REPLICA }
+
+    final OrdersReplicaReads ordersReplicaReads;
+
+    public OrdersRoutingDataSource(final DataSource primary, final DataSource replica, final OrdersReplicaReads ordersReplicaReads) {
+        this.ordersReplicaReads = ordersReplicaReads;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && ordersReplicaReads.replicaAllowed()
+                ? Target.REPLICA : Target.PRIMARY;
+    }
+}
@@ -0,0 +1,84 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kinandcarta.ecommerce.entities.OrdersSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/*
+    Read-through cache of immutable order snapshots behind OrdersHandler.findById and findByIdDetailedView,
+    bounded by weight (1 + line items per entry) rather than by entry count.
+
+    No stale reads after a write: evict() runs again once the writing transaction has completed, and a load
+    that raced the commit holds the key (Caffeine computes atomically), so the eviction waits for it and then
+    removes what it loaded. Reads inside a read-write transaction could see uncommitted rows and are never cached.
+ */
+public class OrdersSnapshotCache implements MeterBinder {
+    public enum View { AGGREGATE, DETAILS }
+
+    private record Key(Long id, View view) {
+    }
+
+    final Cache<Key, OrdersSnapshot> cache;
+
+    public OrdersSnapshotCache(final long maximumWeight, final Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Key key, OrdersSnapshot snapshot) -> snapshot.weight())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * get - cached snapshot of one view of an order, loaded (and cached) on a miss
+     * @param id order id
+     * @param view AGGREGATE (findById) or DETAILS (findByIdDetailedView)
+     * @param loader reads the order and takes its snapshot, exceptions propagate and nothing is cached
+     * @return OrdersSnapshot
+     */
+    public OrdersSnapshot get(final Long id, final View view, final Function<Long, OrdersSnapshot> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.apply(id);
+        }
+        return cache.get(new Key(id, view), key -> loader.apply(key.id()));
+    }
+
+    /**
+     * evict - drop every view of an order now and, inside a transaction, again after it completes
+     * @param id order id
+     */
+    public void evict(final Long id) {
+        invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "orders.snapshots");
+    }
+
+    private void invalidate(final Long id) {
+        for (View view : View.values()) {
+            cache.invalidate(new Key(id, view));
+        }
+    }
+}
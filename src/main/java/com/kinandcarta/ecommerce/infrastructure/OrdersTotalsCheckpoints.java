@@ -0,0 +1,206 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.TimeZone;
+
+/*
+    Runs of the total recomputation and the checkpoint of each of their id ranges (orders_totals_run,
+    orders_totals_range, db/migration V11). A range's next_id moves in the transaction that writes its totals
+    back, every order below it is done; a resumed run starts each open range from there.
+    One instance at a time works on a range, the one holding its lease (owner, lease_until, V12); an instance
+    whose lease ran out and was taken over can no longer move the checkpoint.
+ */
+public class OrdersTotalsCheckpoints {
+    public enum Status { RUNNING, STOPPED, FAILED, COMPLETED, ABANDONED }
+
+    private static final Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    final JdbcTemplate jdbcTemplate;
+
+    public OrdersTotalsCheckpoints(final DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * create - a RUNNING run over the ids orders has now, split into ranges of rangeSize ids
+     * @param runId id of the run
+     * @param rangeSize ids per range
+     * @param started start of the run
+     * @return Run
+     */
+    public Run create(final String runId, final long rangeSize, final Instant started) {
+        long[] bounds = jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id) FROM orders",
+                (row, i) -> new long[]{row.getLong(1), row.getLong(2)});
+        List<Object[]> ranges = new ArrayList<>();
+        // MIN and MAX read as 0 for an empty table, the run has no ranges and completes straight away
+        if (bounds[1] > 0) {
+            for (long start = bounds[0]; start <= bounds[1]; start += rangeSize) {
+                long end = Math.min(start + rangeSize, bounds[1] + 1);
+                ranges.add(new Object[]{runId, start, end, start, false});
+            }
+        }
+        jdbcTemplate.update(connection -> {
+            var insert = connection.prepareStatement("INSERT INTO orders_totals_run (id, status, range_size, started_dt) VALUES (?, ?, ?, ?)");
+            insert.setString(1, runId);
+            insert.setString(2, Status.RUNNING.name());
+            insert.setLong(3, rangeSize);
+            insert.setTimestamp(4, Timestamp.from(started), (Calendar) UTC.clone());
+            return insert;
+        });
+        jdbcTemplate.batchUpdate("INSERT INTO orders_totals_range (run_id, range_start, range_end, next_id, completed) VALUES (?, ?, ?, ?, ?)", ranges);
+        return new Run(runId, Status.RUNNING, rangeSize, started, null);
+    }
+
+    /**
+     * latest - the most recently started run in one of the given states
+     * @param statuses states to look for
+     * @return Optional of the run
+     */
+    public Optional<Run> latest(final Status... statuses) {
+        String in = String.join(", ", Collections.nCopies(statuses.length, "?"));
+        Object[] names = Arrays.stream(statuses).map(Status::name).toArray();
+        return jdbcTemplate.query("SELECT id, status, range_size, started_dt, finished_dt FROM orders_totals_run WHERE status IN ("
+                        + in + ") ORDER BY started_dt DESC LIMIT 1", OrdersTotalsCheckpoints::run, names)
+                .stream().findFirst();
+    }
+
+    public Optional<Run> find(final String runId) {
+        return jdbcTemplate.query("SELECT id, status, range_size, started_dt, finished_dt FROM orders_totals_run WHERE id = ?",
+                OrdersTotalsCheckpoints::run, runId).stream().findFirst();
+    }
+
+    /**
+     * open - ranges of a run not completed yet, each from its checkpoint
+     * @param runId id of the run
+     * @return List of ranges ordered by their start
+     */
+    public List<Range> open(final String runId) {
+        return jdbcTemplate.query("SELECT range_start, range_end, next_id FROM orders_totals_range WHERE run_id = ? AND completed = ? ORDER BY range_start",
+                (row, i) -> new Range(runId, row.getLong(1), row.getLong(2), row.getLong(3)), runId, false);
+    }
+
+    /**
+     * claim - take an open range until leaseUntil, unless another instance holds a lease on it that has not run out
+     * @param range the range as open() listed it
+     * @param owner id of the claiming instance
+     * @param now time of the claim, a lease that ran out before it is taken over
+     * @param leaseUntil end of the lease, every checkpoint moves it on
+     * @return Optional of the range from its current checkpoint, empty when another instance holds it or it completed
+     */
+    public Optional<Range> claim(final Range range, final String owner, final Instant now, final Instant leaseUntil) {
+        int claimed = jdbcTemplate.update("UPDATE orders_totals_range SET owner = ?, lease_until = ? WHERE run_id = ? AND range_start = ?"
+                + " AND completed = ? AND (owner IS NULL OR owner = ? OR lease_until < ?)", update -> {
+            update.setString(1, owner);
+            update.setTimestamp(2, Timestamp.from(leaseUntil), (Calendar) UTC.clone());
+            update.setString(3, range.runId());
+            update.setLong(4, range.start());
+            update.setBoolean(5, false);
+            update.setString(6, owner);
+            update.setTimestamp(7, Timestamp.from(now), (Calendar) UTC.clone());
+        });
+        if (claimed == 0) return Optional.empty();
+        // the previous owner may have moved the checkpoint since open() read it
+        return jdbcTemplate.query("SELECT next_id FROM orders_totals_range WHERE run_id = ? AND range_start = ?",
+                (row, i) -> new Range(range.runId(), range.start(), range.end(), row.getLong(1)), range.runId(), range.start()).stream().findFirst();
+    }
+
+    /**
+     * checkpoint - move a range's checkpoint, add to its counts and extend its lease, in the transaction that wrote the totals
+     * @param range the range
+     * @param nextId first id not written back yet
+     * @param completed true when the whole range is done
+     * @param counts orders and lines of this step
+     * @param owner id of the instance that claimed the range
+     * @param leaseUntil new end of its lease
+     * @return false when the range is no longer this owner's, the caller rolls back what it wrote
+     */
+    public boolean checkpoint(final Range range, final long nextId, final boolean completed, final Counts counts,
+                              final String owner, final Instant leaseUntil) {
+        return jdbcTemplate.update("UPDATE orders_totals_range SET next_id = ?, completed = ?, orders_read = orders_read + ?, orders_changed = orders_changed + ?,"
+                + " orders_skipped = orders_skipped + ?, lines_changed = lines_changed + ?, lease_until = ? WHERE run_id = ? AND range_start = ? AND owner = ?", update -> {
+            update.setLong(1, nextId);
+            update.setBoolean(2, completed);
+            update.setLong(3, counts.ordersRead());
+            update.setLong(4, counts.ordersChanged());
+            update.setLong(5, counts.ordersSkipped());
+            update.setLong(6, counts.linesChanged());
+            update.setTimestamp(7, Timestamp.from(leaseUntil), (Calendar) UTC.clone());
+            update.setString(8, range.runId());
+            update.setLong(9, range.start());
+            update.setString(10, owner);
+        }) > 0;
+    }
+
+    /**
+     * release - give up a range's lease, another instance may claim it straight away
+     * @param range the range
+     * @param owner id of the instance that claimed it
+     */
+    public void release(final Range range, final String owner) {
+        jdbcTemplate.update("UPDATE orders_totals_range SET owner = NULL, lease_until = NULL WHERE run_id = ? AND range_start = ? AND owner = ?",
+                range.runId(), range.start(), owner);
+    }
+
+    /**
+     * status - set a run's state
+     * @param runId id of the run
+     * @param status new state
+     * @param finished end of the run, null while it can still be resumed
+     */
+    public void status(final String runId, final Status status, @Nullable final Instant finished) {
+        jdbcTemplate.update(connection -> {
+            var update = connection.prepareStatement("UPDATE orders_totals_run SET status = ?, finished_dt = ? WHERE id = ?");
+            update.setString(1, status.name());
+            update.setTimestamp(2, finished == null ? null : Timestamp.from(finished), (Calendar) UTC.clone());
+            update.setString(3, runId);
+            return update;
+        });
+    }
+
+    /**
+     * totals - how far a run got, summed over its ranges
+     * @param runId id of the run
+     * @return Totals
+     */
+    public Totals totals(final String runId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*), COALESCE(SUM(CASE WHEN completed = ? THEN 1 ELSE 0 END), 0),"
+                        + " COALESCE(SUM(range_end - range_start), 0), COALESCE(SUM(next_id - range_start), 0),"
+                        + " COALESCE(SUM(orders_read), 0), COALESCE(SUM(orders_changed), 0), COALESCE(SUM(orders_skipped), 0),"
+                        + " COALESCE(SUM(lines_changed), 0) FROM orders_totals_range WHERE run_id = ?",
+                (row, i) -> new Totals(row.getInt(1), row.getInt(2), row.getLong(3), row.getLong(4),
+                        new Counts(row.getLong(5), row.getLong(6), row.getLong(7), row.getLong(8))),
+                true, runId);
+    }
+
+    private static Run run(final ResultSet row, final int i) throws SQLException {
+        Timestamp finished = row.getTimestamp(5, (Calendar) UTC.clone());
+        return new Run(row.getString(1), Status.valueOf(row.getString(2)), row.getLong(3),
+                row.getTimestamp(4, (Calendar) UTC.clone()).toInstant(), finished == null ? null : finished.toInstant());
+    }
+
+    public record Run(String id, Status status, long rangeSize, Instant started, @Nullable Instant finished) {
+    }
+
+    // ids from start (inclusive) to end (exclusive), the ones below nextId are done
+    public record Range(String runId, long start, long end, long nextId) {
+    }
+
+    public record Counts(long ordersRead, long ordersChanged, long ordersSkipped, long linesChanged) {
+    }
+
+    public record Totals(int ranges, int rangesCompleted, long ids, long idsDone, Counts counts) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/*
+    Total recomputation over every order (OrdersTotalsRecomputation), started and watched at /actuator/orderstotals.
+    Workers run on a ForkJoinPool of parallelism threads, on virtual threads with commerce.threads.virtual.enabled;
+    either way no more than parallelism ranges are streamed at once, each on two pooled connections. Parallelism is
+    capped so that the workers take at most half of spring.datasource.hikari.maximum-pool-size, requests keep the rest.
+    Off with commerce.orders.totals.enabled=false.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "commerce.orders.totals.enabled", havingValue = "true", matchIfMissing = true)
+public class OrdersTotalsConfiguration {
+    @Value("${commerce.orders.totals.parallelism:4}") int parallelism;
+
+    @Value("${commerce.orders.totals.rangeSize:10000}") long rangeSize;
+
+    @Value("${commerce.orders.totals.batchSize:500}") int batchSize;
+
+    @Value("${commerce.orders.totals.fetchSize:1000}") int fetchSize;
+
+    @Value("${commerce.orders.totals.progressInterval:10s}") Duration progressInterval;
+
+    @Value("${commerce.orders.totals.resumeOnStartup:true}") boolean resumeOnStartup;
+
+    @Value("${commerce.orders.totals.leaseTimeout:5m}") Duration leaseTimeout;
+
+    // Hikari's default
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize;
+
+    @Value("${commerce.threads.virtual.enabled:false}") boolean virtualThreads;
+
+    @Bean(initMethod = "resumeInterrupted", destroyMethod = "shutdown")
+    public OrdersTotalsRecomputation ordersTotalsRecomputation(final DataSource dataSource,
+                                                               final PlatformTransactionManager transactionManager,
+                                                               final OrdersOutbox ordersOutbox,
+                                                               final OrdersSnapshotCache ordersSnapshotCache) {
+        int workers = workers(parallelism, poolSize);
+        if (workers < parallelism) {
+            log.warn("::METHOD, ordersTotalsRecomputation, parallelism " + parallelism + " capped at " + workers
+                    + " worker(s), two connections each out of a pool of " + poolSize + ".");
+        }
+        return new OrdersTotalsRecomputation(dataSource, transactionManager, ordersOutbox, ordersSnapshotCache,
+                executor(workers), workers, rangeSize, batchSize, fetchSize, progressInterval, resumeOnStartup, leaseTimeout);
+    }
+
+    // two connections per worker, half the pool at most
+    static int workers(final int parallelism, final int poolSize) {
+        return Math.max(1, Math.min(parallelism, poolSize / 4));
+    }
+
+    @Bean
+    public OrdersTotalsEndpoint ordersTotalsEndpoint(final OrdersTotalsRecomputation ordersTotalsRecomputation) {
+        return new OrdersTotalsEndpoint(ordersTotalsRecomputation);
+    }
+
+    private Executor executor(final int workers) {
+        if (virtualThreads) return new VirtualThreadExecutor("orders-totals-");
+        return new ForkJoinPool(workers, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("orders-totals-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
@@ -0,0 +1,37 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/*
+    /actuator/orderstotals                          progress and throughput of the current, or latest, total recomputation
+    POST /actuator/orderstotals                     resume the latest run that did not complete, or start a new one
+    POST /actuator/orderstotals {"restart": true}   abandon a run that did not complete and start over
+    DELETE /actuator/orderstotals                   stop after the batch in hand, POST resumes
+ */
+@Endpoint(id = "orderstotals")
+public class OrdersTotalsEndpoint {
+    final OrdersTotalsRecomputation ordersTotalsRecomputation;
+
+    public OrdersTotalsEndpoint(final OrdersTotalsRecomputation ordersTotalsRecomputation) {
+        this.ordersTotalsRecomputation = ordersTotalsRecomputation;
+    }
+
+    @ReadOperation
+    public OrdersTotalsRecomputation.Progress progress() {
+        return ordersTotalsRecomputation.progress().orElse(null);
+    }
+
+    @WriteOperation
+    public OrdersTotalsRecomputation.Progress start(@Nullable final Boolean restart) {
+        return ordersTotalsRecomputation.start(Boolean.TRUE.equals(restart));
+    }
+
+    @DeleteOperation
+    public OrdersTotalsRecomputation.Progress stop() {
+        return ordersTotalsRecomputation.stop().orElse(null);
+    }
+}
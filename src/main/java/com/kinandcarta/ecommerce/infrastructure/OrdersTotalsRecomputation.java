@@ -0,0 +1,569 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrderSummary;
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+import com.kinandcarta.ecommerce.entities.OrdersMoney;
+import com.kinandcarta.ecommerce.infrastructure.OrdersTotalsCheckpoints.Counts;
+import com.kinandcarta.ecommerce.infrastructure.OrdersTotalsCheckpoints.Range;
+import com.kinandcarta.ecommerce.infrastructure.OrdersTotalsCheckpoints.Run;
+import com.kinandcarta.ecommerce.infrastructure.OrdersTotalsCheckpoints.Status;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Recomputes total_price of every order and of its line items from price and quantity, e.g. after a pricing
+    fix, without loading an entity. A run splits the orders id space into ranges (OrdersTotalsCheckpoints);
+    parallelism workers on the executor take the ranges one at a time and stream each through a forward-only
+    cursor, summing in cents (OrdersMoney). Every batchSize orders the changed totals go back as batched UPDATEs,
+    each guarded by the updated_dt read with it, in one transaction with their outbox events and the range's
+    checkpoint. An order a request changed in between is left as that request wrote it and counted as skipped.
+    A worker holds two connections while it streams, the reading one and the writing one.
+    Instances share a run range by range: a worker claims a range before streaming it and skips one another
+    instance holds, the lease moves on with each checkpoint and lapses with the instance that held it.
+ */
+@Slf4j
+public class OrdersTotalsRecomputation implements MeterBinder {
+    static final Duration SHUTDOWN_GRACE = Duration.ofSeconds(10);
+    static final String ORDER_LINES = "SELECT o.id, o.order_number, o.total_price, o.updated_dt, li.id, li.price, li.quantity, li.total_price"
+            + " FROM orders o LEFT JOIN order_line_items li ON li.order_id = o.id WHERE o.id >= ? AND o.id < ? ORDER BY o.id";
+    static final String UPDATE_ORDER = "UPDATE orders SET total_price = ?, updated_dt = ? WHERE id = ? AND updated_dt = ?";
+    static final String UPDATE_UNVERSIONED_ORDER = "UPDATE orders SET total_price = ?, updated_dt = ? WHERE id = ? AND updated_dt IS NULL";
+    static final String UPDATE_LINE = "UPDATE order_line_items SET total_price = ? WHERE id = ?";
+    private static final Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+    final OrdersTotalsCheckpoints checkpoints;
+    final JdbcTemplate reader;
+    final JdbcTemplate writer;
+    final TransactionTemplate transactionTemplate;
+    final OrdersOutbox ordersOutbox;
+    final OrdersSnapshotCache ordersSnapshotCache;
+    final Executor executor;
+    final int parallelism;
+    final long rangeSize;
+    final int batchSize;
+    final Duration progressInterval;
+    final boolean resumeOnStartup;
+    final Duration leaseTimeout;
+    final Clock clock;
+    // owner of the ranges this instance claims
+    final String owner = UUID.randomUUID().toString();
+
+    // since this instance started, for the meters
+    final AtomicLong ordersRead = new AtomicLong();
+    final AtomicLong ordersChanged = new AtomicLong();
+    final AtomicLong ordersSkipped = new AtomicLong();
+    final AtomicLong linesChanged = new AtomicLong();
+
+    final ExecutorService coordinator;
+    @Nullable
+    volatile Session session;
+
+    public OrdersTotalsRecomputation(final DataSource dataSource, final PlatformTransactionManager transactionManager,
+                                     final OrdersOutbox ordersOutbox, final OrdersSnapshotCache ordersSnapshotCache,
+                                     final Executor executor, final int parallelism, final long rangeSize,
+                                     final int batchSize, final int fetchSize, final Duration progressInterval,
+                                     final boolean resumeOnStartup, final Duration leaseTimeout) {
+        this.checkpoints = new OrdersTotalsCheckpoints(dataSource);
+        this.reader = new JdbcTemplate(dataSource);
+        this.reader.setFetchSize(fetchSize);
+        this.writer = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ordersOutbox = ordersOutbox;
+        this.ordersSnapshotCache = ordersSnapshotCache;
+        this.executor = executor;
+        this.parallelism = Math.max(parallelism, 1);
+        this.rangeSize = Math.max(rangeSize, 1L);
+        this.batchSize = Math.max(batchSize, 1);
+        this.progressInterval = progressInterval;
+        this.resumeOnStartup = resumeOnStartup;
+        this.leaseTimeout = leaseTimeout;
+        this.clock = Clock.systemUTC();
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "orders-totals");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * start - resume the latest run that did not complete, or start a new one over every order
+     * @param restart true to abandon a run that did not complete and start over
+     * @return Progress of the run, the one already running when there is one
+     */
+    public synchronized Progress start(final boolean restart) {
+        Session current = session;
+        if (current != null && !current.done) {
+            // the run wrote its final status and its coordinator is winding down, wait for it instead of reporting it
+            if (checkpoints.find(current.runId).map(Run::status).orElse(Status.RUNNING) == Status.RUNNING) {
+                return progress(current.runId);
+            }
+            awaitCoordinator(current);
+        }
+
+        Optional<Run> open = checkpoints.latest(Status.RUNNING, Status.STOPPED, Status.FAILED);
+        Run run;
+        if (open.isPresent() && !restart) {
+            run = open.get();
+        } else {
+            open.ifPresent(abandoned -> checkpoints.status(abandoned.id(), Status.ABANDONED, now()));
+            run = checkpoints.create(UUID.randomUUID().toString(), rangeSize, now());
+        }
+        launch(run);
+        return progress(run.id());
+    }
+
+    // on startup, a run the previous instance left RUNNING carries on from its checkpoints, other instances keep the ranges they hold
+    public synchronized void resumeInterrupted() {
+        if (!resumeOnStartup) return;
+        try {
+            checkpoints.latest(Status.RUNNING).ifPresent(run -> {
+                log.info("::METHOD, resumeInterrupted, run " + run.id() + " started " + run.started() + " resumes from its checkpoints.");
+                launch(run);
+            });
+        } catch (final DataAccessException e) {
+            // e.g. a schema without the V11 migration, the application starts and no run is resumed
+            log.warn("::METHOD, resumeInterrupted, checkpoints not readable, nothing resumed. " + e);
+        }
+    }
+
+    /**
+     * stop - workers finish the batch they are on and the run is STOPPED, start() resumes it
+     * @return Progress of the run, empty when nothing ran yet
+     */
+    public synchronized Optional<Progress> stop() {
+        Session current = session;
+        if (current != null && !current.done) {
+            current.stop(Status.STOPPED);
+            awaitCoordinator(current);
+        }
+        return progress();
+    }
+
+    // application shutdown, the run stays RUNNING and resumeInterrupted picks it up on the next start
+    public void shutdown() {
+        Session current = session;
+        if (current != null) current.stop(null);
+        coordinator.shutdown();
+        try {
+            if (!coordinator.awaitTermination(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS)) coordinator.shutdownNow();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (executor instanceof ExecutorService executorService) executorService.shutdownNow();
+    }
+
+    /**
+     * progress - the run this instance works on, or else the latest one
+     * @return Optional of the progress, empty when no run was started yet
+     */
+    public Optional<Progress> progress() {
+        Session current = session;
+        if (current != null) return Optional.of(progress(current.runId));
+        return checkpoints.latest(Status.values()).map(run -> progress(run.id()));
+    }
+
+    Progress progress(final String runId) {
+        Run run = checkpoints.find(runId).orElseThrow();
+        OrdersTotalsCheckpoints.Totals totals = checkpoints.totals(runId);
+        Session current = session;
+        double ordersPerSecond = 0.0;
+        Double remainingSeconds = null;
+        if (current != null && current.runId.equals(runId)) {
+            double seconds = Math.max(current.elapsedNanos(), 1L) / 1_000_000_000.0;
+            ordersPerSecond = current.ordersRead.get() / seconds;
+            double idsPerSecond = current.idsDone.get() / seconds;
+            if (!current.done && idsPerSecond > 0) remainingSeconds = (totals.ids() - totals.idsDone()) / idsPerSecond;
+        }
+        return new Progress(run.id(), run.status(), run.started(), run.finished(), totals.ranges(), totals.rangesCompleted(),
+                totals.ids() == 0 ? 100.0 : totals.idsDone() * 100.0 / totals.ids(),
+                totals.counts().ordersRead(), totals.counts().ordersChanged(), totals.counts().ordersSkipped(),
+                totals.counts().linesChanged(), ordersPerSecond, remainingSeconds);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("orders.totals.recompute.orders", ordersRead, AtomicLong::get).tag("result", "read")
+                .description("orders read by the total recomputation").register(registry);
+        FunctionCounter.builder("orders.totals.recompute.orders", ordersChanged, AtomicLong::get).tag("result", "changed")
+                .description("orders whose totals were written back").register(registry);
+        FunctionCounter.builder("orders.totals.recompute.orders", ordersSkipped, AtomicLong::get).tag("result", "skipped")
+                .description("orders changed by a request while they were recomputed").register(registry);
+        FunctionCounter.builder("orders.totals.recompute.lines", linesChanged, AtomicLong::get)
+                .description("line items whose totals were written back").register(registry);
+        Gauge.builder("orders.totals.recompute.progress", this, recomputation -> {
+                    Session current = recomputation.session;
+                    return current == null || current.ids == 0 ? Double.NaN : (double) current.idsDoneTotal() / current.ids;
+                })
+                .description("share of the current run's id space done").register(registry);
+    }
+
+    private void launch(final Run run) {
+        checkpoints.status(run.id(), Status.RUNNING, null);
+        List<Range> open = checkpoints.open(run.id());
+        OrdersTotalsCheckpoints.Totals totals = checkpoints.totals(run.id());
+        Session started = new Session(run.id(), totals.ids(), totals.idsDone());
+        session = started;
+        started.future = coordinator.submit(() -> run(started, open));
+    }
+
+    private void run(final Session current, final List<Range> open) {
+        try {
+            log.info("::METHOD, run, " + current.runId + ", " + open.size() + " range(s) of " + rangeSize + " ids, " + parallelism + " worker(s).");
+            Queue<Range> ranges = new ConcurrentLinkedQueue<>(open);
+            CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, open.size())];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = CompletableFuture.runAsync(() -> work(current, ranges), executor);
+            }
+            CompletableFuture<Void> all = CompletableFuture.allOf(workers);
+            while (!all.isDone()) {
+                try {
+                    all.get(progressInterval.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (final TimeoutException e) {
+                    log.info("::METHOD, run, " + describe(progress(current.runId)));
+                } catch (final ExecutionException e) {
+                    // failed ranges are counted by their worker
+                }
+            }
+
+            OrdersTotalsCheckpoints.Totals totals = checkpoints.totals(current.runId);
+            Status status = totals.rangesCompleted() == totals.ranges() ? Status.COMPLETED
+                    : current.failures.get() > 0 ? Status.FAILED : current.stopStatus;
+            // stopped by a shutdown, the run stays RUNNING
+            if (status != null) checkpoints.status(current.runId, status, status == Status.COMPLETED ? now() : null);
+            log.info("::METHOD, run, " + describe(progress(current.runId)));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final RuntimeException e) {
+            log.error("::METHOD, run, exception occurred.", e);
+        } finally {
+            current.done = true;
+        }
+    }
+
+    private void work(final Session current, final Queue<Range> ranges) {
+        Range range;
+        while (!current.stopping && (range = ranges.poll()) != null) {
+            Optional<Range> claimed = Optional.empty();
+            try {
+                claimed = checkpoints.claim(range, owner, now(), now().plus(leaseTimeout));
+                if (claimed.isEmpty()) {
+                    log.debug("::METHOD, work, range [" + range.start() + ", " + range.end() + ") is held by another instance.");
+                    continue;
+                }
+                recompute(current, claimed.get());
+            } catch (final LeaseLost e) {
+                log.warn("::METHOD, work, range [" + range.start() + ", " + range.end() + ") of run " + current.runId
+                        + " was taken over by another instance, its last batch is rolled back.");
+            } catch (final RuntimeException e) {
+                current.failures.incrementAndGet();
+                log.error("::METHOD, work, range [" + range.start() + ", " + range.end() + ") of run " + current.runId
+                        + " failed, a resumed run starts it from its checkpoint.", e);
+            } finally {
+                claimed.ifPresent(this::release);
+            }
+        }
+    }
+
+    // the lease runs out by itself when this fails
+    private void release(final Range range) {
+        try {
+            checkpoints.release(range, owner);
+        } catch (final DataAccessException e) {
+            log.warn("::METHOD, release, range [" + range.start() + ", " + range.end() + ") kept until its lease runs out. " + e);
+        }
+    }
+
+    /**
+     * recompute - stream one range from its checkpoint and write back what changed, batch by batch
+     * @param current the run
+     * @param range the range
+     */
+    void recompute(final Session current, final Range range) {
+        RangeCursor cursor = new RangeCursor(current, range);
+        try {
+            reader.query(ORDER_LINES, cursor, range.nextId(), range.end());
+            cursor.finish();
+        } catch (final Stopped e) {
+            log.debug("::METHOD, recompute, range [" + range.start() + ", " + range.end() + ") stopped at " + cursor.nextId + ".");
+        }
+    }
+
+    // one transaction: the guarded order updates, the lines of the orders that were updated, outbox and checkpoint;
+    // rolled back as a whole when the range was taken over, its new owner writes these orders and their events
+    private Counts write(final Range range, final List<OrderTotal> changed, final int read, final long nextId, final boolean completed) {
+        Instant version = now();
+        List<OrderTotal> versioned = changed.stream().filter(order -> order.version != null).toList();
+        List<OrderTotal> unversioned = changed.stream().filter(order -> order.version == null).toList();
+        List<OrderTotal> written = new ArrayList<>(changed.size());
+        written.addAll(updateOrders(UPDATE_ORDER, versioned, version));
+        written.addAll(updateOrders(UPDATE_UNVERSIONED_ORDER, unversioned, version));
+
+        List<LineTotal> lines = written.stream().flatMap(order -> order.lines.stream()).toList();
+        writer.batchUpdate(UPDATE_LINE, lines, batchSize, (update, line) -> {
+            update.setBigDecimal(1, line.totalPrice());
+            update.setLong(2, line.id());
+        });
+        for (OrderTotal order : written) {
+            ordersOutbox.record(new OrderSummary(order.id, order.orderNumber, null, order.total()), version, OrdersChangeEvent.Type.UPDATED);
+            ordersSnapshotCache.evict(order.id);
+        }
+
+        Counts counts = new Counts(read, written.size(), changed.size() - written.size(), lines.size());
+        if (!checkpoints.checkpoint(range, nextId, completed, counts, owner, now().plus(leaseTimeout))) throw new LeaseLost();
+        return counts;
+    }
+
+    private List<OrderTotal> updateOrders(final String sql, final List<OrderTotal> orders, final Instant version) {
+        if (orders.isEmpty()) return List.of();
+        int[] updated = writer.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(final PreparedStatement update, final int i) throws SQLException {
+                OrderTotal order = orders.get(i);
+                update.setBigDecimal(1, order.total());
+                setVersion(update, 2, version, order.version);
+                update.setLong(3, order.id);
+                // the version as it was read, bound back as the driver handed it out
+                if (order.version != null) update.setObject(4, order.version);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return orders.size();
+            }
+        });
+        List<OrderTotal> written = new ArrayList<>(orders.size());
+        for (int i = 0; i < updated.length; i++) {
+            // SUCCESS_NO_INFO (-2) when the driver does not count a batched statement
+            if (updated[i] != 0) written.add(orders.get(i));
+        }
+        return written;
+    }
+
+    // updated_dt as Hibernate binds an Instant: a UTC wall clock on MySQL's DATETIME, an offset where the column keeps one
+    private static void setVersion(final PreparedStatement update, final int index, final Instant version,
+                                   @Nullable final Object read) throws SQLException {
+        if (read instanceof OffsetDateTime) update.setObject(index, version.atOffset(ZoneOffset.UTC));
+        else if (read instanceof LocalDateTime) update.setObject(index, LocalDateTime.ofInstant(version, ZoneOffset.UTC));
+        else update.setTimestamp(index, Timestamp.from(version), (Calendar) UTC.clone());
+    }
+
+    // updated_dt keeps microseconds
+    private Instant now() {
+        return clock.instant().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static String describe(final Progress progress) {
+        return progress.runId() + " " + progress.status() + String.format(", %.1f%% of the ids", progress.percentDone())
+                + ", " + progress.rangesCompleted() + "/" + progress.ranges() + " range(s), " + progress.ordersRead() + " order(s) read, "
+                + progress.ordersChanged() + " changed, " + progress.ordersSkipped() + " skipped, " + progress.linesChanged()
+                + " line(s) changed" + String.format(", %.0f orders/s.", progress.ordersPerSecond());
+    }
+
+    private void awaitCoordinator(final Session current) {
+        try {
+            current.future.get(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException | TimeoutException e) {
+            log.warn("::METHOD, stop, run " + current.runId + " still stopping. " + e);
+        }
+    }
+
+    /*
+        Rows of one range as the cursor hands them out, ordered by order id: an order is complete when the next one
+        starts. Every batchSize orders, the ones that changed are written back and the checkpoint moves past them.
+     */
+    final class RangeCursor implements RowCallbackHandler {
+        final Session current;
+        final Range range;
+        final List<OrderTotal> changed = new ArrayList<>();
+        @Nullable
+        OrderTotal order;
+        int read;
+        long nextId;
+
+        RangeCursor(final Session current, final Range range) {
+            this.current = current;
+            this.range = range;
+            this.nextId = range.nextId();
+        }
+
+        @Override
+        public void processRow(final ResultSet row) throws SQLException {
+            long orderId = row.getLong(1);
+            if (order == null || order.id != orderId) {
+                if (order != null) completed(order);
+                order = new OrderTotal(orderId, row.getString(2), row.getBigDecimal(3), row.getObject(4));
+            }
+            long lineId = row.getLong(5);
+            // no line items, the LEFT JOIN row is all nulls
+            if (!row.wasNull()) order.add(lineId, row.getBigDecimal(6), row.getInt(7), row.getBigDecimal(8));
+        }
+
+        void finish() {
+            if (order != null) {
+                read++;
+                if (order.changed()) changed.add(order);
+            }
+            flush(range.end(), true);
+        }
+
+        private void completed(final OrderTotal completed) {
+            read++;
+            if (completed.changed()) changed.add(completed);
+            if (read >= batchSize) flush(completed.id + 1, false);
+        }
+
+        private void flush(final long upTo, final boolean rangeCompleted) {
+            Counts counts = transactionTemplate.execute(status -> write(range, changed, read, upTo, rangeCompleted));
+            current.add(counts, upTo - nextId);
+            ordersRead.addAndGet(counts.ordersRead());
+            ordersChanged.addAndGet(counts.ordersChanged());
+            ordersSkipped.addAndGet(counts.ordersSkipped());
+            linesChanged.addAndGet(counts.linesChanged());
+            nextId = upTo;
+            changed.clear();
+            read = 0;
+            if (current.stopping && !rangeCompleted) throw new Stopped();
+        }
+    }
+
+    /*
+        Total of one order as its line rows come in, in cents; a price finer than a cent or a total beyond a long
+        carries on as BigDecimal (see OrdersMoney). Totals are compared and written at the scale of the columns.
+     */
+    static final class OrderTotal {
+        final long id;
+        final String orderNumber;
+        @Nullable
+        final BigDecimal storedTotal;
+        @Nullable
+        final Object version;
+        final List<LineTotal> lines = new ArrayList<>(0);
+        long cents;
+        @Nullable
+        BigDecimal exact;
+
+        OrderTotal(final long id, final String orderNumber, @Nullable final BigDecimal storedTotal, @Nullable final Object version) {
+            this.id = id;
+            this.orderNumber = orderNumber;
+            this.storedTotal = storedTotal;
+            this.version = version;
+        }
+
+        void add(final long lineId, final BigDecimal price, final int quantity, @Nullable final BigDecimal storedLineTotal) {
+            BigDecimal lineTotal;
+            try {
+                long lineCents = OrdersMoney.lineTotal(OrdersMoney.exactMinorUnits(price), quantity);
+                if (exact == null) cents = Math.addExact(cents, lineCents);
+                else exact = exact.add(OrdersMoney.toBigDecimal(lineCents));
+                lineTotal = OrdersMoney.toBigDecimal(lineCents);
+            } catch (final ArithmeticException e) {
+                lineTotal = price.multiply(BigDecimal.valueOf(quantity));
+                exact = (exact == null ? OrdersMoney.toBigDecimal(cents) : exact).add(lineTotal);
+                lineTotal = lineTotal.setScale(OrdersMoney.SCALE, RoundingMode.HALF_UP);
+            }
+            if (storedLineTotal == null || storedLineTotal.compareTo(lineTotal) != 0) lines.add(new LineTotal(lineId, lineTotal));
+        }
+
+        BigDecimal total() {
+            return exact == null ? OrdersMoney.toBigDecimal(cents) : exact.setScale(OrdersMoney.SCALE, RoundingMode.HALF_UP);
+        }
+
+        boolean changed() {
+            return !lines.isEmpty() || storedTotal == null || storedTotal.compareTo(total()) != 0;
+        }
+    }
+
+    record LineTotal(long id, BigDecimal totalPrice) {
+    }
+
+    // a run as this instance works on it
+    static final class Session {
+        final String runId;
+        final long ids;
+        final long idsDoneBefore;
+        final long startNanos = System.nanoTime();
+        final AtomicLong ordersRead = new AtomicLong();
+        final AtomicLong idsDone = new AtomicLong();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile boolean stopping;
+        @Nullable
+        volatile Status stopStatus;
+        volatile boolean done;
+        Future<?> future;
+
+        Session(final String runId, final long ids, final long idsDoneBefore) {
+            this.runId = runId;
+            this.ids = ids;
+            this.idsDoneBefore = idsDoneBefore;
+        }
+
+        void add(final Counts counts, final long ids) {
+            ordersRead.addAndGet(counts.ordersRead());
+            idsDone.addAndGet(ids);
+        }
+
+        void stop(@Nullable final Status status) {
+            stopStatus = status;
+            stopping = true;
+        }
+
+        long idsDoneTotal() {
+            return idsDoneBefore + idsDone.get();
+        }
+
+        long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+    }
+
+    // unwinds the cursor of a range once its last batch is written
+    static final class Stopped extends RuntimeException {
+        Stopped() {
+            super(null, null, false, false);
+        }
+    }
+
+    // the range's lease ran out and another instance claimed it
+    static final class LeaseLost extends RuntimeException {
+        LeaseLost() {
+            super(null, null, false, false);
+        }
+    }
+
+    public record Progress(String runId, Status status, Instant started, @Nullable Instant finished,
+                           int ranges, int rangesCompleted, double percentDone,
+                           long ordersRead, long ordersChanged, long ordersSkipped, long linesChanged,
+                           double ordersPerSecond, @Nullable Double remainingSeconds) {
+    }
+}
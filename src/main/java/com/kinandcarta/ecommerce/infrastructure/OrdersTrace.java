@@ -0,0 +1,177 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+    In-process trace of one request: the spans (controller, handler, validation, accounts lookup, discovery,
+    repository calls) opened on the request thread between begin() and end(), nested by the order they open in.
+    Spans opened on other threads (the accounts client's retries, NDJSON streaming, intake workers) are not
+    seen; without a trace on the thread span() costs a ThreadLocal read and records nothing.
+ */
+public final class OrdersTrace {
+    public static final String CONTROLLER = "controller";
+    public static final String HANDLER = "handler";
+    public static final String VALIDATION = "validation";
+    public static final String ACCOUNTS = "accounts";
+    public static final String DISCOVERY = "discovery";
+    public static final String REPOSITORY = "repository";
+
+    private static final ThreadLocal<OrdersTrace> CURRENT = new ThreadLocal<>();
+    private static final Span NOOP = new Span(null, null, null, 0, 0L);
+
+    final Instant start;
+    final long startNanos;
+    final int maxSpans;
+    final List<Span> spans = new ArrayList<>();
+    int depth;
+    int droppedSpans;
+
+    private OrdersTrace(final int maxSpans) {
+        this.start = Instant.now();
+        this.startNanos = System.nanoTime();
+        this.maxSpans = maxSpans;
+    }
+
+    /**
+     * begin - start a trace on the current thread
+     * @param maxSpans spans kept, later ones are only counted
+     * @return OrdersTrace of this request, end() it on the same thread
+     */
+    public static OrdersTrace begin(final int maxSpans) {
+        OrdersTrace trace = new OrdersTrace(maxSpans);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * span - open a span in the current thread's trace, close it (try-with-resources) when the work is done
+     * @param category what kind of work, spans of a category are summed in Server-Timing
+     * @param name the work itself, e.g. OrdersRepository.save
+     * @return Span, a no-op when the thread has no trace
+     */
+    public static Span span(final String category, final String name) {
+        OrdersTrace trace = CURRENT.get();
+        if (trace == null) return NOOP;
+        if (trace.spans.size() >= trace.maxSpans) {
+            trace.droppedSpans++;
+            return NOOP;
+        }
+        Span span = new Span(trace, category, name, trace.depth++, System.nanoTime());
+        trace.spans.add(span);
+        return span;
+    }
+
+    /**
+     * inSpan - run work in a span of its own, the span is marked failed when the work throws
+     * @param category what kind of work, spans of a category are summed in Server-Timing
+     * @param name the work itself, e.g. OrdersHandler.validatePatch
+     * @param work the work to trace
+     * @return T the work's result
+     */
+    public static <T> T inSpan(final String category, final String name, final Supplier<T> work) {
+        try (Span span = span(category, name)) {
+            try {
+                return work.get();
+            } catch (final RuntimeException e) {
+                span.failed(e);
+                throw e;
+            }
+        }
+    }
+
+    // inSpan for work without a result
+    public static void inSpan(final String category, final String name, final Runnable work) {
+        inSpan(category, name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // stop tracing on the current thread
+    public void end() {
+        CURRENT.remove();
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * record - the trace as it is now, open spans show their duration so far
+     * @param method HTTP method
+     * @param uri request URI
+     * @param status response status
+     * @return Record for the recorder, detached from this trace
+     */
+    public Record record(final String method, final String uri, final int status) {
+        long now = System.nanoTime();
+        List<SpanRecord> spanRecords = spans.stream()
+                .map(span -> new SpanRecord(span.category, span.name, span.depth,
+                        millis(span.startNanos - startNanos),
+                        millis((span.endNanos == 0L ? now : span.endNanos) - span.startNanos),
+                        span.error))
+                .toList();
+        return new Record(method, uri, status, start, millis(now - startNanos), spanRecords, droppedSpans);
+    }
+
+    List<Span> spans() {
+        return spans;
+    }
+
+    static double millis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public static final class Span implements AutoCloseable {
+        @Nullable
+        final OrdersTrace trace;
+        final String category;
+        final String name;
+        final int depth;
+        final long startNanos;
+        long endNanos;
+        @Nullable
+        String error;
+
+        Span(@Nullable final OrdersTrace trace, final String category, final String name, final int depth, final long startNanos) {
+            this.trace = trace;
+            this.category = category;
+            this.name = name;
+            this.depth = depth;
+            this.startNanos = startNanos;
+        }
+
+        // the span ended with this exception
+        public void failed(final Throwable error) {
+            if (trace != null) this.error = error.getClass().getSimpleName();
+        }
+
+        @Override
+        public void close() {
+            if (trace == null || endNanos != 0L) return;
+            endNanos = System.nanoTime();
+            trace.depth--;
+        }
+
+        boolean isClosed() {
+            return endNanos != 0L;
+        }
+
+        long durationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+    public record Record(String method, String uri, int status, Instant start, double durationMillis,
+                         List<SpanRecord> spans, int droppedSpans) {
+    }
+
+    public record SpanRecord(String category, String name, int depth, double startMillis, double durationMillis,
+                             @Nullable String error) {
+    }
+}
@@ -0,0 +1,142 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+    Traces each request (OrdersTrace) when it is sampled for OrdersTraceRecorder or when the Server-Timing header
+    is on. The header has to go out before the body: it is added when the response is about to commit, with the
+    spans closed by then summed per category (controller, handler, validation, accounts, discovery, repository;
+    nested categories overlap) and the elapsed total. NDJSON streams are recorded as they are when the request
+    thread hands the stream off.
+ */
+public class OrdersTraceFilter extends OncePerRequestFilter {
+    static final String SERVER_TIMING = "Server-Timing";
+
+    final OrdersTraceRecorder ordersTraceRecorder;
+    final boolean serverTiming;
+    final int maxSpans;
+
+    public OrdersTraceFilter(final OrdersTraceRecorder ordersTraceRecorder, final boolean serverTiming, final int maxSpans) {
+        this.ordersTraceRecorder = ordersTraceRecorder;
+        this.serverTiming = serverTiming;
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        boolean sampled = ordersTraceRecorder.sample();
+        if (!sampled && !serverTiming) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        OrdersTrace trace = OrdersTrace.begin(maxSpans);
+        ServerTimingResponse tracedResponse = new ServerTimingResponse(response, trace);
+        try {
+            filterChain.doFilter(request, tracedResponse);
+        } finally {
+            trace.end();
+            tracedResponse.addServerTiming();
+            if (sampled) {
+                String query = request.getQueryString();
+                ordersTraceRecorder.record(trace.record(request.getMethod(),
+                        query == null ? request.getRequestURI() : request.getRequestURI() + "?" + query, response.getStatus()));
+            }
+        }
+    }
+
+    /**
+     * serverTiming - Server-Timing header value of a trace
+     * @param trace the request's trace
+     * @return String of one metric per span category with the summed duration of its closed spans, then total
+     */
+    static String serverTiming(final OrdersTrace trace) {
+        Map<String, long[]> categories = new LinkedHashMap<>();
+        for (OrdersTrace.Span span : trace.spans()) {
+            if (!span.isClosed()) continue;
+            long[] durationAndCount = categories.computeIfAbsent(span.category, category -> new long[2]);
+            durationAndCount[0] += span.durationNanos();
+            durationAndCount[1]++;
+        }
+        StringBuilder header = new StringBuilder();
+        categories.forEach((category, durationAndCount) -> header
+                .append(category).append(";dur=").append(duration(durationAndCount[0]))
+                .append(";desc=\"").append(durationAndCount[1]).append(durationAndCount[1] == 1 ? " call" : " calls").append("\", "));
+        return header.append("total;dur=").append(duration(trace.elapsedNanos())).toString();
+    }
+
+    private static String duration(final long nanos) {
+        return String.format(Locale.ROOT, "%.1f", OrdersTrace.millis(nanos));
+    }
+
+    // adds Server-Timing once, just before anything commits the response
+    class ServerTimingResponse extends HttpServletResponseWrapper {
+        final OrdersTrace trace;
+        boolean added;
+
+        ServerTimingResponse(final HttpServletResponse response, final OrdersTrace trace) {
+            super(response);
+            this.trace = trace;
+        }
+
+        void addServerTiming() {
+            if (!serverTiming || added || isCommitted()) return;
+            added = true;
+            setHeader(SERVER_TIMING, serverTiming(trace));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(final int status, final String message) throws IOException {
+            addServerTiming();
+            super.sendError(status, message);
+        }
+
+        @Override
+        public void sendError(final int status) throws IOException {
+            addServerTiming();
+            super.sendError(status);
+        }
+
+        @Override
+        public void sendRedirect(final String location) throws IOException {
+            addServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+}
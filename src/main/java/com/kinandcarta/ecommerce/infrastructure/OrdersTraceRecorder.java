@@ -0,0 +1,55 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+    Keeps the last bufferSize sampled traces in a ring, the oldest is overwritten; slowest() answers the slowest
+    N of those. sampleRate of the requests are sampled, 1.0 records every request, 0.0 none.
+ */
+public class OrdersTraceRecorder {
+    final double sampleRate;
+    final int slowest;
+    final OrdersTrace.Record[] ring;
+    int next;
+
+    public OrdersTraceRecorder(final double sampleRate, final int bufferSize, final int slowest) {
+        this.sampleRate = sampleRate;
+        this.slowest = slowest;
+        this.ring = new OrdersTrace.Record[bufferSize];
+    }
+
+    // decided when the request starts, an unsampled request only traces for its Server-Timing header
+    public boolean sample() {
+        return sampleRate >= 1.0 || (sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    public synchronized void record(final OrdersTrace.Record trace) {
+        ring[next] = trace;
+        next = (next + 1) % ring.length;
+    }
+
+    /**
+     * slowest - the slowest recent sampled requests
+     * @return List of up to slowest traces, slowest first
+     */
+    public List<OrdersTrace.Record> slowest() {
+        OrdersTrace.Record[] recent;
+        synchronized (this) {
+            recent = ring.clone();
+        }
+        return Arrays.stream(recent)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingDouble(OrdersTrace.Record::durationMillis).reversed())
+                .limit(slowest)
+                .toList();
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(ring, null);
+        next = 0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+
+/*
+    /actuator/orderstraces           the slowest recent sampled requests as JSON, slowest first, with their spans
+    DELETE /actuator/orderstraces    forget them, e.g. before a load test
+ */
+@Endpoint(id = "orderstraces")
+public class OrdersTracesEndpoint {
+    final OrdersTraceRecorder ordersTraceRecorder;
+
+    public OrdersTracesEndpoint(final OrdersTraceRecorder ordersTraceRecorder) {
+        this.ordersTraceRecorder = ordersTraceRecorder;
+    }
+
+    @ReadOperation
+    public List<OrdersTrace.Record> slowest() {
+        return ordersTraceRecorder.slowest();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        ordersTraceRecorder.clear();
+    }
+}
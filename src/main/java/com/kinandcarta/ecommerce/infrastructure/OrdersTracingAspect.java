@@ -0,0 +1,52 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+
+/*
+    Spans for the request trace (OrdersTrace) around the REST controllers, OrdersHandler, the accounts lookup,
+    accounts service discovery and every Spring Data repository call. Names are the called type and method;
+    for a repository that is its interface, not the proxy.
+ */
+@Aspect
+public class OrdersTracingAspect {
+    @Around("within(@org.springframework.web.bind.annotation.RestController *) && execution(public * *(..))")
+    public Object controller(final ProceedingJoinPoint joinPoint) throws Throwable {
+        return span(OrdersTrace.CONTROLLER, joinPoint.getTarget().getClass().getSimpleName(), joinPoint);
+    }
+
+    @Around("execution(public * com.kinandcarta.ecommerce.OrdersHandler.*(..))")
+    public Object handler(final ProceedingJoinPoint joinPoint) throws Throwable {
+        return span(OrdersTrace.HANDLER, "OrdersHandler", joinPoint);
+    }
+
+    @Around("execution(public * com.kinandcarta.ecommerce.clients.AccountServiceClient.findByAccountIdRef(..))")
+    public Object accounts(final ProceedingJoinPoint joinPoint) throws Throwable {
+        return span(OrdersTrace.ACCOUNTS, "AccountServiceClient", joinPoint);
+    }
+
+    @Around("execution(public * com.kinandcarta.ecommerce.clients.AccountsServiceInstances.choose(..))")
+    public Object discovery(final ProceedingJoinPoint joinPoint) throws Throwable {
+        return span(OrdersTrace.DISCOVERY, "AccountsServiceInstances", joinPoint);
+    }
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public Object repository(final ProceedingJoinPoint joinPoint) throws Throwable {
+        // the target is Spring Data's proxy, its first interface the repository
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(joinPoint.getTarget());
+        return span(OrdersTrace.REPOSITORY, interfaces[0].getSimpleName(), joinPoint);
+    }
+
+    private static Object span(final String category, final String type, final ProceedingJoinPoint joinPoint) throws Throwable {
+        try (OrdersTrace.Span span = OrdersTrace.span(category, type + "." + joinPoint.getSignature().getName())) {
+            try {
+                return joinPoint.proceed();
+            } catch (final Throwable e) {
+                span.failed(e);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    In-process request tracing, no tracing backend: spans on the servlet request thread (OrdersTracingAspect),
+    an optional Server-Timing header and the slowest sampled requests at /actuator/orderstraces.
+    Off with commerce.orders.tracing.enabled=false.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "commerce.orders.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class OrdersTracingConfiguration {
+    @Value("${commerce.orders.tracing.serverTiming:false}") boolean serverTiming;
+
+    @Value("${commerce.orders.tracing.sampleRate:0.1}") double sampleRate;
+
+    @Value("${commerce.orders.tracing.bufferSize:1000}") int bufferSize;
+
+    @Value("${commerce.orders.tracing.slowest:20}") int slowest;
+
+    @Value("${commerce.orders.tracing.maxSpans:200}") int maxSpans;
+
+    @Bean
+    public OrdersTracingAspect ordersTracingAspect() {
+        return new OrdersTracingAspect();
+    }
+
+    @Bean
+    public OrdersTraceRecorder ordersTraceRecorder() {
+        return new OrdersTraceRecorder(sampleRate, bufferSize, slowest);
+    }
+
+    @Bean
+    public OrdersTraceFilter ordersTraceFilter(final OrdersTraceRecorder ordersTraceRecorder) {
+        return new OrdersTraceFilter(ordersTraceRecorder, serverTiming, maxSpans);
+    }
+
+    @Bean
+    public OrdersTracesEndpoint ordersTracesEndpoint(final OrdersTraceRecorder ordersTraceRecorder) {
+        return new OrdersTracesEndpoint(ordersTraceRecorder);
+    }
+}
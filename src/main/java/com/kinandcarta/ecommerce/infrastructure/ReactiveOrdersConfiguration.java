@@ -0,0 +1,68 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import java.time.Duration;
+
+/*
+    Opt-in, commerce.orders.reactive.enabled=true (profile reactive). R2DBC is wired here rather than by
+    Spring Boot's R2DBC auto-configuration, which is excluded in application.yml: in the servlet stack there
+    is no R2DBC URL, and an R2DBC transaction manager bean would replace the JPA one.
+ */
+@Configuration
+@ConditionalOnProperty(name = "commerce.orders.reactive.enabled", havingValue = "true")
+public class ReactiveOrdersConfiguration {
+    @Value("${commerce.orders.reactive.r2dbc.url}") String url;
+
+    @Value("${commerce.orders.reactive.r2dbc.username:}") String username;
+
+    @Value("${commerce.orders.reactive.r2dbc.password:}") String password;
+
+    @Value("${commerce.orders.reactive.r2dbc.pool.maxSize:20}") int poolMaxSize;
+
+    @Value("${commerce.orders.reactive.r2dbc.pool.maxIdleTime:30m}") Duration poolMaxIdleTime;
+
+    @Value("${commerce.orders.reactive.idSource:table}") String idSource;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool reactiveOrdersConnectionFactory() {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (StringUtils.isNotBlank(username)) options.option(ConnectionFactoryOptions.USER, username);
+        if (StringUtils.isNotBlank(password)) options.option(ConnectionFactoryOptions.PASSWORD, password);
+        ConnectionFactory connectionFactory = ConnectionFactories.get(options.build());
+
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("orders-r2dbc")
+                .maxSize(poolMaxSize)
+                .maxIdleTime(poolMaxIdleTime)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient reactiveOrdersDatabaseClient(final ConnectionPool reactiveOrdersConnectionFactory) {
+        return DatabaseClient.create(reactiveOrdersConnectionFactory);
+    }
+
+    // the R2DBC transaction manager stays out of the context, a second TransactionManager bean would switch off the JPA one
+    @Bean
+    public TransactionalOperator reactiveOrdersTransactionalOperator(final ConnectionPool reactiveOrdersConnectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(reactiveOrdersConnectionFactory));
+    }
+
+    @Bean
+    public ReactiveOrdersRepository reactiveOrdersRepository(final DatabaseClient reactiveOrdersDatabaseClient) {
+        return new ReactiveOrdersRepository(reactiveOrdersDatabaseClient, ReactiveOrdersRepository.IdSource.of(idSource));
+    }
+}
@@ -0,0 +1,401 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersAccount;
+import com.kinandcarta.ecommerce.entities.OrdersAddress;
+import com.kinandcarta.ecommerce.entities.OrdersChangeEvent;
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    R2DBC access to the tables mapped by the JPA entities, same columns and join tables, same id sequences.
+    Line items carry their order in order_line_items.order_id.
+    Ids come from the sequences Hibernate's pooled optimizer reads (orders_seq, ...), one value reserves the
+    block (value - 50, value], so ids from both stacks never collide.
+    Creates and deletes write their orders_outbox row as OrdersOutbox does, the caller's transaction commits both.
+ */
+@Slf4j
+public class ReactiveOrdersRepository {
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String ADDRESS_COLUMNS =
+            "a.id, a.address1, a.address2, a.city, a.state, a.province, a.postal_code, a.country, a.is_shipping_address, a.created_dt, a.updated_dt";
+    private static final String LINE_ITEM_COLUMNS =
+            "l.id, l.line_key, l.order_id, l.product_id, l.quantity, l.price, l.total_price, l.created_dt, l.updated_dt";
+
+    public enum IdSource {
+        // H2 and databases with native sequences
+        SEQUENCE,
+        // MySQL, Hibernate emulates the sequences with single row next_val tables
+        TABLE;
+
+        public static IdSource of(final String name) {
+            return IdSource.valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    final DatabaseClient databaseClient;
+    final IdSource idSource;
+    final Map<String, PooledIds> pooledIds = new ConcurrentHashMap<>();
+
+    public ReactiveOrdersRepository(final DatabaseClient databaseClient, final IdSource idSource) {
+        this.databaseClient = databaseClient;
+        this.idSource = idSource;
+    }
+
+    /**
+     * assignIds - take ids for a new order and everything it cascades to, outside of any transaction
+     * so a sequence row (MySQL) is never locked for the length of the insert
+     * @param model transient order
+     * @return Mono of the same order with ids assigned
+     */
+    public Mono<Orders> assignIds(final Orders model) {
+        final Set<OrdersAddress> addresses = Optional.ofNullable(model.getOrdersAccount().getAddresses()).orElseGet(HashSet::new);
+        final Set<OrderLineItems> lineItems = Optional.ofNullable(model.getOrderLineItems()).orElseGet(HashSet::new);
+
+        return Flux.concat(
+                        Flux.fromIterable(addresses).concatMap(address -> nextId("orders_address_seq").doOnNext(address::setId)),
+                        Mono.justOrEmpty(model.getOrdersShippingAddress()).flatMap(address -> nextId("orders_address_seq").doOnNext(address::setId)),
+                        nextId("orders_account_seq").doOnNext(model.getOrdersAccount()::setId),
+                        nextId("orders_seq").doOnNext(model::setId),
+                        Flux.fromIterable(lineItems).concatMap(lineItem -> nextId("order_line_items_seq").doOnNext(lineItem::setId)))
+                .then(Mono.just(model));
+    }
+
+    /**
+     * insert - persist a new order with its account, addresses and line items, as JPA cascades them on save,
+     * and its CREATED change event
+     * @param model transient order, ids assigned by assignIds
+     * @return Mono of the same order with timestamps assigned
+     */
+    public Mono<Orders> insert(final Orders model) {
+        final Instant now = Instant.now(Clock.systemUTC());
+        final OrdersAccount account = model.getOrdersAccount();
+        final Set<OrdersAddress> addresses = Optional.ofNullable(account.getAddresses()).orElseGet(HashSet::new);
+        final Set<OrderLineItems> lineItems = Optional.ofNullable(model.getOrderLineItems()).orElseGet(HashSet::new);
+
+        return Flux.fromIterable(addresses)
+                .concatMap(address -> insertAddress(address, now))
+                .then(insertAccount(account, now))
+                .thenMany(Flux.fromIterable(addresses))
+                .concatMap(address -> databaseClient.sql("INSERT INTO orders_account_addresses (orders_account_id, addresses_id) VALUES (:accountId, :addressId)")
+                        .bind("accountId", account.getId())
+                        .bind("addressId", address.getId())
+                        .then())
+                .then(insertAddress(model.getOrdersShippingAddress(), now))
+                .then(insertOrder(model, now))
+                .thenMany(Flux.fromIterable(lineItems))
+                .concatMap(lineItem -> insertLineItem(model.getId(), lineItem, now))
+                .then(insertChangeEvent(model.getId(), OrdersChangeEvent.Type.CREATED, model.getOrderNumber(), model.getTotalPrice(), now, now))
+                .then(Mono.just(model));
+    }
+
+    /**
+     * findAggregateById - order with account, account addresses, shipping address and line items
+     * @param id order id
+     * @return Mono of the order, empty when there is none
+     */
+    public Mono<Orders> findAggregateById(final Long id) {
+        return databaseClient.sql("SELECT id, orders_account_id, order_number, order_date, orders_shipping_address_id, total_price, created_dt, updated_dt FROM orders WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveOrdersRepository::toOrderRow)
+                .one()
+                .flatMap(row -> Mono.zip(
+                                findAccount(row.accountId()),
+                                findAddress(row.shippingAddressId()),
+                                findLineItems(row.order().getId()))
+                        .map(parts -> {
+                            Orders order = row.order();
+                            order.setOrdersAccount(parts.getT1().orElse(null));
+                            order.setOrdersShippingAddress(parts.getT2().orElse(null));
+                            order.setOrderLineItems(parts.getT3());
+                            return order;
+                        }));
+    }
+
+    /**
+     * findAll - every order aggregate in id order, assembled a few at a time as the subscriber requests them
+     * @return Flux of orders
+     */
+    public Flux<Orders> findAll() {
+        return databaseClient.sql("SELECT id FROM orders ORDER BY id")
+                .map(row -> row.get("id", Long.class))
+                .all()
+                .flatMapSequential(this::findAggregateById, 8);
+    }
+
+    /**
+     * deleteById - remove an order, its line items and its shipping address unless that is an account address,
+     * and write its DELETED change event; the account and its addresses stay, other orders may share them
+     * @param id order id
+     * @return Mono of true when the order existed
+     */
+    public Mono<Boolean> deleteById(final Long id) {
+        return databaseClient.sql("SELECT id, orders_account_id, order_number, order_date, orders_shipping_address_id, total_price, created_dt, updated_dt FROM orders WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveOrdersRepository::toOrderRow)
+                .one()
+                .flatMap(row -> deleteWhere("DELETE FROM order_line_items WHERE order_id = :id", id)
+                        .then(deleteWhere("DELETE FROM orders WHERE id = :id", id))
+                        .then(deleteWhere("DELETE FROM orders_address WHERE id = :id"
+                                + " AND NOT EXISTS (SELECT 1 FROM orders_account_addresses WHERE addresses_id = :id)", row.shippingAddressId()))
+                        .then(Mono.defer(() -> insertChangeEvent(id, OrdersChangeEvent.Type.DELETED, null, null, null, Instant.now(Clock.systemUTC()))))
+                        .thenReturn(true))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * nextId - next id from the named sequence, in blocks of ID_ALLOCATION_SIZE
+     * @param sequence sequence name, e.g. orders_seq
+     * @return Mono of an id no other caller, reactive or JPA, is given
+     */
+    public Mono<Long> nextId(final String sequence) {
+        final PooledIds ids = pooledIds.computeIfAbsent(sequence, name -> new PooledIds());
+        return Mono.defer(() -> {
+            Long id = ids.next();
+            return id != null ? Mono.just(id) : nextBlock(sequence).map(ids::install);
+        });
+    }
+
+    private Mono<Long> nextBlock(final String sequence) {
+        if (idSource == IdSource.SEQUENCE) {
+            return databaseClient.sql("SELECT NEXT VALUE FOR " + sequence)
+                    .map(row -> row.get(0, Long.class))
+                    .one();
+        }
+        // LAST_INSERT_ID(expr) is per connection, both statements run on the same one
+        return databaseClient.inConnection(connection -> Mono.from(connection
+                        .createStatement("UPDATE " + sequence + " SET next_val = LAST_INSERT_ID(next_val) + " + ID_ALLOCATION_SIZE)
+                        .execute())
+                .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                .then(Mono.from(connection.createStatement("SELECT LAST_INSERT_ID()").execute()))
+                .flatMap(result -> Mono.from(result.map(row -> row.get(0, Long.class)))));
+    }
+
+    private Mono<Void> insertAddress(final OrdersAddress address, final Instant now) {
+        if (address == null) return Mono.empty();
+        return Mono.defer(() -> {
+            final Long id = address.getId();
+            address.setCreateDateTime(now);
+            address.setUpdateDateTime(now);
+            return bindNullable(databaseClient.sql("INSERT INTO orders_address (id, address1, address2, city, state, province, postal_code, country, is_shipping_address, created_dt, updated_dt) " +
+                            "VALUES (:id, :address1, :address2, :city, :state, :province, :postalCode, :country, :isShippingAddress, :created, :updated)")
+                    .bind("id", id)
+                    .bind("isShippingAddress", address.isShippingAddress())
+                    .bind("created", now)
+                    .bind("updated", now), Map.of(
+                    "address1", Optional.ofNullable(address.getAddress1()),
+                    "address2", Optional.ofNullable(address.getAddress2()),
+                    "city", Optional.ofNullable(address.getCity()),
+                    "state", Optional.ofNullable(address.getState()),
+                    "province", Optional.ofNullable(address.getProvince()),
+                    "postalCode", Optional.ofNullable(address.getPostalCode()),
+                    "country", Optional.ofNullable(address.getCountry())), String.class)
+                    .then();
+        });
+    }
+
+    private Mono<Void> insertAccount(final OrdersAccount account, final Instant now) {
+        return Mono.defer(() -> {
+            final Long id = account.getId();
+            account.setCreateDateTime(now);
+            account.setUpdateDateTime(now);
+            return bindNullable(databaseClient.sql("INSERT INTO orders_account (id, account_ref_id, first_name, last_name, email_address, created_dt, updated_dt) " +
+                            "VALUES (:id, :accountRefId, :firstName, :lastName, :emailAddress, :created, :updated)")
+                    .bind("id", id)
+                    .bind("created", now)
+                    .bind("updated", now), Map.of(
+                    "accountRefId", Optional.ofNullable(account.getAccountRefId()),
+                    "firstName", Optional.ofNullable(account.getFirstName()),
+                    "lastName", Optional.ofNullable(account.getLastName()),
+                    "emailAddress", Optional.ofNullable(account.getEmailAddress())), String.class)
+                    .then();
+        });
+    }
+
+    private Mono<Void> insertOrder(final Orders order, final Instant now) {
+        return Mono.defer(() -> {
+            final Long id = order.getId();
+            order.setCreateDateTime(now);
+            order.setUpdateDateTime(now);
+            DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO orders (id, orders_account_id, order_number, order_date, orders_shipping_address_id, total_price, created_dt, updated_dt) " +
+                            "VALUES (:id, :accountId, :orderNumber, :orderDate, :shippingAddressId, :totalPrice, :created, :updated)")
+                    .bind("id", id)
+                    .bind("accountId", order.getOrdersAccount().getId())
+                    .bind("created", now)
+                    .bind("updated", now);
+            insert = bindNullable(insert, Map.of("orderNumber", Optional.ofNullable(order.getOrderNumber())), String.class);
+            insert = bindNullable(insert, Map.of("orderDate", Optional.ofNullable(order.getOrderDate())), Instant.class);
+            insert = bindNullable(insert, Map.of("totalPrice", Optional.ofNullable(order.getTotalPrice())), BigDecimal.class);
+            insert = bindNullable(insert, Map.of("shippingAddressId", Optional.ofNullable(
+                    order.getOrdersShippingAddress() == null ? null : order.getOrdersShippingAddress().getId())), Long.class);
+            return insert.then();
+        });
+    }
+
+    private Mono<Void> insertLineItem(final Long orderId, final OrderLineItems lineItem, final Instant now) {
+        return Mono.defer(() -> {
+            final Long id = lineItem.getId();
+            lineItem.setOrderId(orderId);
+            lineItem.setCreateDateTime(now);
+            lineItem.setUpdateDateTime(now);
+            DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO order_line_items (id, line_key, order_id, product_id, quantity, price, total_price, created_dt, updated_dt) " +
+                            "VALUES (:id, :lineKey, :orderId, :productId, :quantity, :price, :totalPrice, :created, :updated)")
+                    .bind("id", id)
+                    .bind("lineKey", lineItem.getLineKey())
+                    .bind("orderId", orderId)
+                    .bind("quantity", lineItem.getQuantity())
+                    .bind("created", now)
+                    .bind("updated", now);
+            insert = bindNullable(insert, Map.of("productId", Optional.ofNullable(lineItem.getProductId())), Long.class);
+            insert = bindNullable(insert, Map.of("price", Optional.ofNullable(lineItem.getPrice()),
+                    "totalPrice", Optional.ofNullable(lineItem.getTotalPrice())), BigDecimal.class);
+            return insert.then();
+        });
+    }
+
+    // the event id is taken in the caller's transaction, on MySQL a new block locks orders_outbox_seq until it commits
+    private Mono<Void> insertChangeEvent(final Long orderId, final OrdersChangeEvent.Type type, final String orderNumber,
+                                         final BigDecimal totalPrice, final Instant version, final Instant now) {
+        return nextId("orders_outbox_seq").flatMap(id -> {
+            DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO orders_outbox (id, order_id, change_type, order_number, total_price, order_version, created_dt) " +
+                            "VALUES (:id, :orderId, :changeType, :orderNumber, :totalPrice, :orderVersion, :created)")
+                    .bind("id", id)
+                    .bind("orderId", orderId)
+                    .bind("changeType", type.name())
+                    .bind("created", now);
+            insert = bindNullable(insert, Map.of("orderNumber", Optional.ofNullable(orderNumber)), String.class);
+            insert = bindNullable(insert, Map.of("totalPrice", Optional.ofNullable(totalPrice)), BigDecimal.class);
+            insert = bindNullable(insert, Map.of("orderVersion", Optional.ofNullable(version)), Instant.class);
+            return insert.then();
+        });
+    }
+
+    private Mono<Optional<OrdersAccount>> findAccount(final Long accountId) {
+        if (accountId == null) return Mono.just(Optional.empty());
+        return databaseClient.sql("SELECT id, account_ref_id, first_name, last_name, email_address, created_dt, updated_dt FROM orders_account WHERE id = :id")
+                .bind("id", accountId)
+                .map(row -> OrdersAccount.builder()
+                        .id(row.get("id", Long.class))
+                        .accountRefId(row.get("account_ref_id", String.class))
+                        .firstName(row.get("first_name", String.class))
+                        .lastName(row.get("last_name", String.class))
+                        .emailAddress(row.get("email_address", String.class))
+                        .createDateTime(row.get("created_dt", Instant.class))
+                        .updateDateTime(row.get("updated_dt", Instant.class)).build())
+                .one()
+                .flatMap(account -> databaseClient.sql("SELECT " + ADDRESS_COLUMNS + " FROM orders_address a " +
+                                "JOIN orders_account_addresses j ON j.addresses_id = a.id WHERE j.orders_account_id = :id")
+                        .bind("id", accountId)
+                        .map(ReactiveOrdersRepository::toAddress)
+                        .all()
+                        .collect(HashSet<OrdersAddress>::new, Set::add)
+                        .map(addresses -> {
+                            account.setAddresses(addresses);
+                            return Optional.of(account);
+                        }))
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private Mono<Optional<OrdersAddress>> findAddress(final Long addressId) {
+        if (addressId == null) return Mono.just(Optional.empty());
+        return databaseClient.sql("SELECT " + ADDRESS_COLUMNS + " FROM orders_address a WHERE a.id = :id")
+                .bind("id", addressId)
+                .map(ReactiveOrdersRepository::toAddress)
+                .one()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private Mono<Set<OrderLineItems>> findLineItems(final Long orderId) {
+        return databaseClient.sql("SELECT " + LINE_ITEM_COLUMNS + " FROM order_line_items l WHERE l.order_id = :id")
+                .bind("id", orderId)
+                .map(row -> OrderLineItems.builder()
+                        .id(row.get("id", Long.class))
+                        .lineKey(row.get("line_key", String.class))
+                        .orderId(row.get("order_id", Long.class))
+                        .productId(row.get("product_id", Long.class))
+                        .quantity(Optional.ofNullable(row.get("quantity", Integer.class)).orElse(0))
+                        .price(row.get("price", BigDecimal.class))
+                        .totalPrice(row.get("total_price", BigDecimal.class))
+                        .createDateTime(row.get("created_dt", Instant.class))
+                        .updateDateTime(row.get("updated_dt", Instant.class)).build())
+                .all()
+                .collect(HashSet::new, Set::add);
+    }
+
+    private Mono<Void> deleteWhere(final String sql, final Long id) {
+        if (id == null) return Mono.empty();
+        return databaseClient.sql(sql).bind("id", id).then();
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                      final Map<String, Optional<T>> values,
+                                                                      final Class<T> type) {
+        for (Map.Entry<String, Optional<T>> value : values.entrySet()) {
+            spec = value.getValue().isPresent() ?
+                    spec.bind(value.getKey(), value.getValue().get()) :
+                    spec.bindNull(value.getKey(), type);
+        }
+        return spec;
+    }
+
+    private static OrderRow toOrderRow(final Readable row) {
+        Orders order = Orders.builder()
+                .id(row.get("id", Long.class))
+                .orderNumber(row.get("order_number", String.class))
+                .orderDate(row.get("order_date", Instant.class))
+                .totalPrice(row.get("total_price", BigDecimal.class))
+                .createDateTime(row.get("created_dt", Instant.class))
+                .updateDateTime(row.get("updated_dt", Instant.class)).build();
+        return new OrderRow(order, row.get("orders_account_id", Long.class), row.get("orders_shipping_address_id", Long.class));
+    }
+
+    private static OrdersAddress toAddress(final Readable row) {
+        return OrdersAddress.builder()
+                .id(row.get("id", Long.class))
+                .address1(row.get("address1", String.class))
+                .address2(row.get("address2", String.class))
+                .city(row.get("city", String.class))
+                .state(row.get("state", String.class))
+                .province(row.get("province", String.class))
+                .postalCode(row.get("postal_code", String.class))
+                .country(row.get("country", String.class))
+                .isShippingAddress(Boolean.TRUE.equals(row.get("is_shipping_address", Boolean.class)))
+                .createDateTime(row.get("created_dt", Instant.class))
+                .updateDateTime(row.get("updated_dt", Instant.class)).build();
+    }
+
+    private record OrderRow(Orders order, Long accountId, Long shippingAddressId) {
+    }
+
+    // ids left in the current block, handed out under the lock, the block itself is fetched outside it
+    static final class PooledIds {
+        private long next = 1;
+        private long hi = 0;
+
+        synchronized Long next() {
+            return next <= hi ? next++ : null;
+        }
+
+        // a racing caller may install a newer block first, the rest of the older one is then left unused
+        synchronized long install(final long blockHi) {
+            hi = blockHi;
+            next = Math.max(1, blockHi - ID_ALLOCATION_SIZE + 1);
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/*
+    Streams the JFR jdk.VirtualThreadPinned event, raised when a virtual thread blocks while it cannot
+    unmount from its carrier (inside synchronized, or a native frame). Each event over the threshold is
+    logged with its top frames and counted in orders.virtual.threads.pinned.
+    For a one-off trace of every pinning, start the JVM with -Djdk.tracePinnedThreads=short|full instead.
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    final Duration threshold;
+    final Counter pinned;
+    RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(final MeterRegistry meterRegistry, final Duration threshold) {
+        this.threshold = threshold;
+        this.pinned = Counter.builder("orders.virtual.threads.pinned")
+                .description("Virtual threads pinned to their carrier for longer than the threshold")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+    }
+
+    @Override
+    public void close() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    void onPinned(final RecordedEvent event) {
+        pinned.increment();
+        String frames = event.getStackTrace() == null ? "" : event.getStackTrace().getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::frame)
+                .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+        log.warn("::METHOD, onPinned, virtual thread pinned for " + event.getDuration().toMillis() + "ms" + frames);
+    }
+
+    private static String frame(final RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
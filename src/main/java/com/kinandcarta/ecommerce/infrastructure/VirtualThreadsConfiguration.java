@@ -0,0 +1,53 @@
+package com.kinandcarta.ecommerce.infrastructure;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.time.Duration;
+
+/*
+    Opt-in, commerce.threads.virtual.enabled=true (profile virtual-threads), needs a JDK 21 runtime.
+    Tomcat request handling, and with it the handler's blocking JDBC and account lookups, runs on
+    virtual threads. MVC async work (NDJSON streaming) uses the applicationTaskExecutor defined here.
+ */
+@Configuration
+@ConditionalOnProperty(name = "commerce.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfiguration {
+    static final int VIRTUAL_THREADS_FEATURE_VERSION = 21;
+
+    public VirtualThreadsConfiguration() {
+        if (Runtime.version().feature() < VIRTUAL_THREADS_FEATURE_VERSION) {
+            throw new IllegalStateException("commerce.threads.virtual.enabled requires JDK "
+                    + VIRTUAL_THREADS_FEATURE_VERSION + "+, running on " + Runtime.version());
+        }
+        log.info("Virtual threads enabled for Tomcat request handling and application tasks.");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(new VirtualThreadExecutor("orders-http-"));
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(new VirtualThreadExecutor("orders-task-"));
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "commerce.threads.virtual.pinning.monitor", havingValue = "true")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            final MeterRegistry meterRegistry,
+            @Value("${commerce.threads.virtual.pinning.threshold:20ms}") final Duration threshold) {
+        return new VirtualThreadPinningMonitor(meterRegistry, threshold);
+    }
+}
@@ -0,0 +1,8 @@
+-- Replica lag: OrdersReplicaHeartbeat writes beat_dt on the primary and reads it back off the replica.
+
+CREATE TABLE orders_replica_heartbeat
+(
+    id      BIGINT      NOT NULL,
+    beat_dt DATETIME(6) NOT NULL,
+    CONSTRAINT pk_orders_replica_heartbeat PRIMARY KEY (id)
+);
@@ -0,0 +1,27 @@
+-- Total recomputation runs (OrdersTotalsRecomputation): the id space of orders split into ranges when a run starts,
+-- each range checkpointed by the first id not yet written back. A restart resumes every range from its next_id.
+
+CREATE TABLE orders_totals_run
+(
+    id          VARCHAR(36) NOT NULL,
+    status      VARCHAR(16) NOT NULL,
+    range_size  BIGINT      NOT NULL,
+    started_dt  DATETIME(6) NOT NULL,
+    finished_dt DATETIME(6) NULL,
+    CONSTRAINT pk_orders_totals_run PRIMARY KEY (id)
+);
+
+CREATE TABLE orders_totals_range
+(
+    run_id         VARCHAR(36) NOT NULL,
+    range_start    BIGINT      NOT NULL,
+    range_end      BIGINT      NOT NULL,
+    next_id        BIGINT      NOT NULL,
+    completed      BOOLEAN     NOT NULL,
+    orders_read    BIGINT      NOT NULL DEFAULT 0,
+    orders_changed BIGINT      NOT NULL DEFAULT 0,
+    orders_skipped BIGINT      NOT NULL DEFAULT 0,
+    lines_changed  BIGINT      NOT NULL DEFAULT 0,
+    CONSTRAINT pk_orders_totals_range PRIMARY KEY (run_id, range_start),
+    CONSTRAINT fk_orders_totals_range_run FOREIGN KEY (run_id) REFERENCES orders_totals_run (id)
+);
@@ -0,0 +1,5 @@
+-- A range of a total recomputation run is worked on by one instance at a time: the instance that claimed it
+-- (owner) until lease_until, which every checkpoint moves on. An expired lease is taken over by the next claim.
+
+ALTER TABLE orders_totals_range ADD COLUMN owner VARCHAR(36) NULL;
+ALTER TABLE orders_totals_range ADD COLUMN lease_until DATETIME(6) NULL;
@@ -0,0 +1,4 @@
+-- A retried intake is not claimed again before next_attempt_dt, set with an exponential backoff on every failed
+-- attempt (OrdersIntakeHandler) so an outage does not use up the attempts within seconds. NULL, claimable now.
+
+ALTER TABLE orders_intake ADD COLUMN next_attempt_dt DATETIME(6) NULL;
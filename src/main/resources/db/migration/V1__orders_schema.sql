@@ -0,0 +1,82 @@
+-- Orders schema as the hand-run scripts under database/ left it, v1 to v1.2.3_4pm and v.1.3.9.12.23 (account_ref_id),
+-- each table once. Constraint names are the ones those databases carry, later migrations refer to them.
+
+CREATE TABLE orders_account
+(
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    account_ref_id VARCHAR(255) NOT NULL,
+    first_name     VARCHAR(200) NOT NULL DEFAULT '',
+    last_name      VARCHAR(200) NOT NULL DEFAULT '',
+    email_address  VARCHAR(200) NOT NULL DEFAULT '',
+    created_dt     DATETIME(6)  NULL,
+    updated_dt     DATETIME(6)  NULL,
+    CONSTRAINT pk_orders_account PRIMARY KEY (id),
+    CONSTRAINT uc_orders_account_accountrefid UNIQUE (account_ref_id),
+    CONSTRAINT UK_k732ux7cwqdx4etbqrsce2ar5 UNIQUE (email_address)
+);
+
+CREATE TABLE orders_address
+(
+    id                  BIGINT       NOT NULL AUTO_INCREMENT,
+    address1            VARCHAR(200) NOT NULL DEFAULT '',
+    address2            VARCHAR(200) NULL DEFAULT '',
+    city                VARCHAR(200) NOT NULL DEFAULT '',
+    state               VARCHAR(2)   NOT NULL DEFAULT '',
+    province            VARCHAR(200) NULL DEFAULT '',
+    postal_code         VARCHAR(10)  NOT NULL DEFAULT '',
+    country             VARCHAR(100) NOT NULL DEFAULT '',
+    is_shipping_address BIT(1)       NOT NULL,
+    created_dt          DATETIME(6)  NULL,
+    updated_dt          DATETIME(6)  NULL,
+    CONSTRAINT pk_orders_address PRIMARY KEY (id)
+);
+
+CREATE TABLE orders_account_addresses
+(
+    orders_account_id BIGINT NOT NULL,
+    addresses_id      BIGINT NOT NULL,
+    CONSTRAINT pk_orders_account_addresses PRIMARY KEY (addresses_id, orders_account_id),
+    CONSTRAINT UK_tevlbknu2xuqw3gclj1u4ftko UNIQUE (addresses_id),
+    CONSTRAINT FK4feipnevrcgykl8mvshgcqqiu FOREIGN KEY (orders_account_id) REFERENCES orders_account (id),
+    CONSTRAINT FK63oenx5nqjksqlo0m4y9qx4mv FOREIGN KEY (addresses_id) REFERENCES orders_address (id)
+);
+
+CREATE TABLE orders
+(
+    id                         BIGINT         NOT NULL AUTO_INCREMENT,
+    orders_account_id          BIGINT         NULL,
+    order_number               VARCHAR(255)   NOT NULL,
+    order_date                 DATETIME(6)    NOT NULL,
+    orders_shipping_address_id BIGINT         NULL,
+    total_price                DECIMAL(38, 2) NULL DEFAULT 0,
+    created_dt                 DATETIME(6)    NULL,
+    updated_dt                 DATETIME(6)    NULL,
+    CONSTRAINT pk_orders PRIMARY KEY (id),
+    CONSTRAINT UK_facafmsdjis54fumvjed88yvu UNIQUE (orders_account_id),
+    CONSTRAINT UK_poyi7irlwb6a8xoqmeyi80tam UNIQUE (orders_shipping_address_id),
+    CONSTRAINT FKsr8i3b6omt0pwx7j828271ld3 FOREIGN KEY (orders_account_id) REFERENCES orders_account (id),
+    CONSTRAINT FKpv2wsbgdlf05tcymwhhld5ikj FOREIGN KEY (orders_shipping_address_id) REFERENCES orders_address (id)
+);
+
+CREATE TABLE order_line_items
+(
+    id          BIGINT         NOT NULL AUTO_INCREMENT,
+    order_id    BIGINT         NULL,
+    product_id  BIGINT         NOT NULL,
+    quantity    INT            NOT NULL,
+    price       DECIMAL(38, 2) NOT NULL,
+    total_price DECIMAL(38, 2) NULL,
+    created_dt  DATETIME(6)    NULL,
+    updated_dt  DATETIME(6)    NULL,
+    CONSTRAINT pk_order_line_items PRIMARY KEY (id)
+);
+
+CREATE TABLE orders_order_line_items
+(
+    orders_id           BIGINT NOT NULL,
+    order_line_items_id BIGINT NOT NULL,
+    CONSTRAINT pk_orders_order_line_items PRIMARY KEY (order_line_items_id, orders_id),
+    CONSTRAINT UK_o61x047ux9nbd024nnx3ic8af UNIQUE (order_line_items_id),
+    CONSTRAINT FKl3pvnok4r4sd35u5nikhfmp9p FOREIGN KEY (orders_id) REFERENCES orders (id),
+    CONSTRAINT FKm0e5kk32751gt5iqn11vdbipv FOREIGN KEY (order_line_items_id) REFERENCES order_line_items (id)
+);
@@ -0,0 +1,30 @@
+-- MySQL has no sequences, Hibernate emulates each @SequenceGenerator with a one row table.
+-- The pooled optimizer hands out (next_val - 49) .. next_val, so seed 50 past the current max id.
+
+CREATE TABLE orders_seq
+(
+    next_val BIGINT NULL
+);
+
+INSERT INTO orders_seq (next_val) SELECT COALESCE(MAX(id), 0) + 51 FROM orders;
+
+CREATE TABLE orders_account_seq
+(
+    next_val BIGINT NULL
+);
+
+INSERT INTO orders_account_seq (next_val) SELECT COALESCE(MAX(id), 0) + 51 FROM orders_account;
+
+CREATE TABLE orders_address_seq
+(
+    next_val BIGINT NULL
+);
+
+INSERT INTO orders_address_seq (next_val) SELECT COALESCE(MAX(id), 0) + 51 FROM orders_address;
+
+CREATE TABLE order_line_items_seq
+(
+    next_val BIGINT NULL
+);
+
+INSERT INTO order_line_items_seq (next_val) SELECT COALESCE(MAX(id), 0) + 51 FROM order_line_items;
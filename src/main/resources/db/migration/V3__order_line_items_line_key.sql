@@ -0,0 +1,10 @@
+-- OrderLineItems equals/hashCode use line_key, a business key assigned once when the line is created.
+-- Existing lines are backfilled with a random UUID before the column becomes NOT NULL and UNIQUE.
+
+ALTER TABLE order_line_items ADD COLUMN line_key VARCHAR(36) NULL;
+
+UPDATE order_line_items SET line_key = UUID() WHERE line_key IS NULL;
+
+ALTER TABLE order_line_items MODIFY line_key VARCHAR(36) NOT NULL;
+
+ALTER TABLE order_line_items ADD CONSTRAINT uc_order_line_items_line_key UNIQUE (line_key);
@@ -0,0 +1,6 @@
+-- orders.updated_dt is the order version behind cached JSON and ETags on GET /orders/{id} and /orders/{id}/lines.
+-- At second precision two updates within the same second would share a version, keep microseconds instead.
+-- V1 already creates the column as DATETIME(6), this is a no-op there. Kept for databases baselined from the
+-- hand-run scripts and so the applied V4 keeps its script (Flyway validate fails on a missing version).
+
+ALTER TABLE orders MODIFY updated_dt DATETIME(6) NULL;
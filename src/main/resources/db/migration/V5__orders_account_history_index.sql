@@ -0,0 +1,4 @@
+-- Account order history pages newest first with (order_date, id) as the keyset cursor.
+-- The index covers the seek and the sort, each page reads only its own rows.
+
+CREATE INDEX idx_orders_account_history ON orders (orders_account_id, order_date DESC, id);
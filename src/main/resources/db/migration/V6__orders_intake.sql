@@ -0,0 +1,29 @@
+-- Append-only intake log of POST /orders:async. A row is written before the 202 goes out and moves
+-- ACCEPTED -> PROCESSING -> CREATED | FAILED, the worker pool claims rows off idx_orders_intake_status.
+
+CREATE TABLE orders_intake
+(
+    id              BIGINT        NOT NULL,
+    tracking_id     VARCHAR(36)   NOT NULL,
+    idempotency_key VARCHAR(255)  NULL,
+    request_hash    VARCHAR(64)   NOT NULL,
+    payload         LONGTEXT      NOT NULL,
+    status          VARCHAR(16)   NOT NULL,
+    attempts        INT           NOT NULL DEFAULT 0,
+    order_id        BIGINT        NULL,
+    error           VARCHAR(1024) NULL,
+    created_dt      DATETIME(6)   NULL,
+    updated_dt      DATETIME(6)   NULL,
+    CONSTRAINT pk_orders_intake PRIMARY KEY (id),
+    CONSTRAINT uc_orders_intake_tracking_id UNIQUE (tracking_id),
+    CONSTRAINT uc_orders_intake_idempotency_key UNIQUE (idempotency_key)
+);
+
+CREATE INDEX idx_orders_intake_status ON orders_intake (status, id);
+
+CREATE TABLE orders_intake_seq
+(
+    next_val BIGINT NULL
+);
+
+INSERT INTO orders_intake_seq (next_val) VALUES (51);
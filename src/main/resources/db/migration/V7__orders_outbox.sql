@@ -0,0 +1,24 @@
+-- Order change events, written in the transaction of the create / update / delete they describe.
+-- feed_position is assigned by the relay as it publishes, GET /orders/changes?since= pages on it.
+
+CREATE TABLE orders_outbox
+(
+    id            BIGINT         NOT NULL,
+    order_id      BIGINT         NOT NULL,
+    change_type   VARCHAR(16)    NOT NULL,
+    order_number  VARCHAR(255)   NULL,
+    total_price   DECIMAL(38, 2) NULL,
+    order_version DATETIME(6)    NULL,
+    created_dt    DATETIME(6)    NULL,
+    feed_position BIGINT         NULL,
+    published_dt  DATETIME(6)    NULL,
+    CONSTRAINT pk_orders_outbox PRIMARY KEY (id),
+    CONSTRAINT uc_orders_outbox_feed_position UNIQUE (feed_position)
+);
+
+CREATE TABLE orders_outbox_seq
+(
+    next_val BIGINT NULL
+);
+
+INSERT INTO orders_outbox_seq (next_val) VALUES (51);
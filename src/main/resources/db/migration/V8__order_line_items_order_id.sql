@@ -0,0 +1,18 @@
+-- Orders.orderLineItems is mapped on order_line_items.order_id, the orders_order_line_items join table goes.
+-- One insert per line instead of two, an order's lines are read off idx_order_line_items_order_id without a join.
+
+-- Backfill order_id from the join table. Lines no order links to, left behind by earlier updates, are deleted.
+UPDATE order_line_items
+SET order_id = (SELECT j.orders_id FROM orders_order_line_items j WHERE j.order_line_items_id = order_line_items.id)
+WHERE id IN (SELECT order_line_items_id FROM orders_order_line_items);
+
+DELETE FROM order_line_items WHERE order_id IS NULL;
+
+ALTER TABLE order_line_items MODIFY order_id BIGINT NOT NULL;
+
+CREATE INDEX idx_order_line_items_order_id ON order_line_items (order_id);
+
+ALTER TABLE order_line_items
+    ADD CONSTRAINT fk_order_line_items_on_orders FOREIGN KEY (order_id) REFERENCES orders (id);
+
+DROP TABLE orders_order_line_items;
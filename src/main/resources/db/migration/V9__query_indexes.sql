@@ -0,0 +1,14 @@
+-- One index per repository access path that had none, see OrdersQueryPlanTests for the query each one serves.
+
+-- orders per account: many orders share an account since account history (v1.7), the unique key from the
+-- one-to-one mapping goes; idx_orders_account_history leads with orders_account_id and backs the foreign key.
+-- The foreign key is dropped around it, some engines hand the unique index over to the key instead of dropping it.
+ALTER TABLE orders DROP FOREIGN KEY FKsr8i3b6omt0pwx7j828271ld3;
+ALTER TABLE orders DROP CONSTRAINT UK_facafmsdjis54fumvjed88yvu;
+ALTER TABLE orders ADD CONSTRAINT FKsr8i3b6omt0pwx7j828271ld3 FOREIGN KEY (orders_account_id) REFERENCES orders_account (id);
+
+-- order lookups by order number
+CREATE INDEX idx_orders_order_number ON orders (order_number);
+
+-- line items by product
+CREATE INDEX idx_order_line_items_product_id ON order_line_items (product_id);
@@ -0,0 +1,149 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static com.kinandcarta.ecommerce.TestModels.newAccount;
+import static com.kinandcarta.ecommerce.TestModels.newLineItem;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+    Account history, newest first with ties on the order date broken by id, paged on the (order_date, id) keyset.
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrdersHandler.class, OrdersConfiguration.class})
+@ActiveProfiles("test")
+class OrdersAccountHistoryTests {
+    private static final int ORDERS = 7;
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    TestEntityManager entityManager;
+
+    Statistics statistics;
+    Long accountId;
+    List<Long> newestFirst;
+
+    @BeforeEach
+    void setUp() {
+        OrdersAccount account = entityManager.persist(newAccount());
+        accountId = account.getId();
+
+        // two orders share each order date, so the id decides between them
+        List<Orders> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Orders order = newOrder(account, Set.of(newLineItem(1L, 2, "10")));
+            order.setOrderDate(NOW.minus(i / 2, ChronoUnit.DAYS));
+            orders.add(entityManager.persist(order));
+        }
+        newestFirst = orders.stream()
+                .sorted(Comparator.comparing(Orders::getOrderDate).reversed().thenComparing(Orders::getId))
+                .map(Orders::getId).toList();
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldPage_accountHistory_newestFirst_withContinuationTokens() {
+        List<Long> paged = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            AccountOrdersPage<Orders> page = ordersHandler.findOrdersForAccountId(accountId, continuationToken, 3);
+            page.getOrders().forEach(order -> paged.add(order.getId()));
+            pageSizes.add(page.getOrders().size());
+            continuationToken = page.getContinuationToken();
+        } while (continuationToken != null);
+
+        assertThat(paged).containsExactlyElementsOf(newestFirst);
+        assertThat(pageSizes).containsExactly(3, 3, 1);
+    }
+
+    @Test
+    void shouldPage_accountHistorySummaries_inOneStatementPerPage() {
+        List<Long> paged = new ArrayList<>();
+        String continuationToken = null;
+        int pages = 0;
+        do {
+            AccountOrdersPage<OrderSummary> page = ordersHandler.findOrderSummariesForAccountId(accountId, continuationToken, 3);
+            page.getOrders().forEach(summary -> paged.add(summary.id()));
+            continuationToken = page.getContinuationToken();
+            pages++;
+        } while (continuationToken != null);
+
+        assertThat(paged).containsExactlyElementsOf(newestFirst);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(pages);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void shouldLoad_aPage_inThreeStatements() {
+        AccountOrdersPage<Orders> page = ordersHandler.findOrdersForAccountId(accountId, null, 5);
+
+        // the ids off the index, the aggregates of just those ids, then the shared account's addresses once
+        // (no second-level cache here), never joined into the line item rows
+        assertThat(page.getOrders()).hasSize(5)
+                .allSatisfy(order -> assertThat(order.getOrderLineItems()).hasSize(1))
+                .allSatisfy(order -> assertThat(order.getOrdersAccount().getAddresses()).hasSize(1));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldStream_accountHistory_newestFirst() {
+        List<Long> streamed = new ArrayList<>();
+
+        ordersHandler.streamOrdersForAccountId(accountId, order -> streamed.add(order.getId()));
+
+        assertThat(streamed).containsExactlyElementsOf(newestFirst);
+    }
+
+    @Test
+    void shouldKeep_dateOrder_inTheAccountOrdersSet() {
+        Set<Orders> orders = ordersHandler.findOrdersForAccountId(accountId);
+
+        assertThat(orders).extracting(Orders::getOrderDate).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void shouldReject_invalidContinuationToken() {
+        assertThatThrownBy(() -> ordersHandler.findOrdersForAccountId(accountId, "not-a-token", 3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldDelete_oneOrder_andKeepTheSharedAccount() {
+        Long deleted = newestFirst.get(0);
+
+        ordersHandler.delete(deleted);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(entityManager.find(Orders.class, deleted)).isNull();
+        assertThat(entityManager.find(OrdersAccount.class, accountId)).isNotNull();
+        assertThat(ordersHandler.findOrdersForAccountId(accountId)).extracting(Orders::getId)
+                .containsExactlyInAnyOrderElementsOf(newestFirst.subList(1, ORDERS));
+    }
+}
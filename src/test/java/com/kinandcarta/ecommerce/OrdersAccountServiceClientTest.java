@@ -5,28 +5,52 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.kinandcarta.ecommerce.clients.AccountServiceClient;
+import com.kinandcarta.ecommerce.clients.AccountsServiceInstances;
 import com.kinandcarta.ecommerce.entities.OrdersAccount;
 import com.kinandcarta.ecommerce.entities.OrdersAddress;
+import com.kinandcarta.ecommerce.exceptions.AccountNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mockito;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.web.client.AutoConfigureWebClient;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
 
 
 @Slf4j
 @ExtendWith(MockitoExtension.class)
 @AutoConfigureWebClient
 class OrdersAccountServiceClientTest {
+    private static final int CONCURRENT_CREATES = 500;
+    private static final String ACCOUNTS_SERVICE_NAME = "accounts-service";
     AccountServiceClient accountServiceClient;
-    WebClient.Builder webClientBuilder = Mockito.mock(WebClient.Builder.class);
+    WebClient.Builder webClientBuilder = WebClient.builder();
+    SimpleMeterRegistry meterRegistry;
+    @Mock
+    ReactiveDiscoveryClient reactiveDiscoveryClient;
+    AccountsServiceInstances accountsServiceInstances;
 
     final String expectedId = "4f464483-a1f0-4ce9-a19e-3c0f23e84a67";
     OrdersAddress ordersAddress = OrdersAddress.builder().id(100L)
@@ -54,7 +78,29 @@ class OrdersAccountServiceClientTest {
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         mapper.registerModule(new JavaTimeModule());
 
-        accountServiceClient = new AccountServiceClient(webClientBuilder);
+        meterRegistry = new SimpleMeterRegistry();
+        accountsServiceInstances = new AccountsServiceInstances(reactiveDiscoveryClient);
+        ReflectionTestUtils.setField(accountsServiceInstances, "baseURL", "http://localhost:8001");
+        ReflectionTestUtils.setField(accountsServiceInstances, "accountsServiceName", ACCOUNTS_SERVICE_NAME);
+
+        accountServiceClient = spy(new AccountServiceClient(webClientBuilder, meterRegistry, accountsServiceInstances));
+        ReflectionTestUtils.setField(accountServiceClient, "getAccountIdUri", "/accounts/{id}/reference");
+        ReflectionTestUtils.setField(accountServiceClient, "cacheMaximumSize", 100L);
+        ReflectionTestUtils.setField(accountServiceClient, "cacheExpireAfterWrite", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(accountServiceClient, "cacheRefreshAfterWrite", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(accountServiceClient, "cacheNotFoundExpireAfterWrite", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(accountServiceClient, "connectTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(accountServiceClient, "readTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(accountServiceClient, "poolMaxConnections", 16);
+        ReflectionTestUtils.setField(accountServiceClient, "poolPendingAcquireMaxCount", 1000);
+        ReflectionTestUtils.setField(accountServiceClient, "poolPendingAcquireTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(accountServiceClient, "poolMaxIdleTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(accountServiceClient, "poolMaxLifeTime", Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountServiceClient.destroy();
     }
 
 
@@ -63,4 +109,155 @@ class OrdersAccountServiceClientTest {
         assertThat(ordersAccount).isNotNull();
     }
 
+    @Test
+    void shouldCoalesce_concurrentLookups_intoOneRemoteCall() throws Exception {
+        // slow accounts service, every caller arrives while the load is in flight
+        doAnswer(invocation -> Mono.delay(Duration.ofMillis(200)).thenReturn(ordersAccount))
+                .when(accountServiceClient).fetchByAccountIdRef(expectedId);
+        accountServiceClient.init();
+
+        ExecutorService creates = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OrdersAccount>> found = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CREATES; i++) {
+            found.add(creates.submit(() -> {
+                start.await();
+                return accountServiceClient.findByAccountIdRef(expectedId);
+            }));
+        }
+        start.countDown();
+        for (Future<OrdersAccount> account : found) {
+            assertThat(account.get(5, TimeUnit.SECONDS).getAccountRefId()).isEqualTo(expectedId);
+        }
+        creates.shutdown();
+
+        verify(accountServiceClient, times(1)).fetchByAccountIdRef(expectedId);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "accounts").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "accounts").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(CONCURRENT_CREATES - 1);
+        assertThat(meterRegistry.get("cache.load.duration").tag("cache", "accounts")
+                .timeGauge().value()).isGreaterThan(0);
+    }
+
+    @Test
+    void shouldCache_accountNotFound() {
+        doReturn(Mono.error(new AccountNotFoundException("Account not found for accountIdRef: " + expectedId)))
+                .when(accountServiceClient).fetchByAccountIdRef(expectedId);
+        accountServiceClient.init();
+
+        assertThatThrownBy(() -> accountServiceClient.findByAccountIdRef(expectedId)).isInstanceOf(AccountNotFoundException.class);
+        assertThatThrownBy(() -> accountServiceClient.findByAccountIdRef(expectedId)).isInstanceOf(AccountNotFoundException.class)
+                .hasMessageContaining(expectedId);
+
+        verify(accountServiceClient, times(1)).fetchByAccountIdRef(expectedId);
+    }
+
+    @Test
+    void shouldExpire_accountNotFound_beforeFoundAccounts() {
+        final String missingId = "missing-account-ref";
+        ReflectionTestUtils.setField(accountServiceClient, "cacheNotFoundExpireAfterWrite", Duration.ZERO);
+        doReturn(Mono.just(ordersAccount)).when(accountServiceClient).fetchByAccountIdRef(expectedId);
+        doReturn(Mono.error(new AccountNotFoundException("Account not found for accountIdRef: " + missingId)))
+                .when(accountServiceClient).fetchByAccountIdRef(missingId);
+        accountServiceClient.init();
+
+        for (int i = 0; i < 2; i++) {
+            accountServiceClient.findByAccountIdRef(expectedId);
+            assertThatThrownBy(() -> accountServiceClient.findByAccountIdRef(missingId)).isInstanceOf(AccountNotFoundException.class);
+        }
+
+        verify(accountServiceClient, times(1)).fetchByAccountIdRef(expectedId);
+        verify(accountServiceClient, times(2)).fetchByAccountIdRef(missingId);
+    }
+
+    @Test
+    void shouldReturn_aCopy_ofTheCachedAccount() {
+        doReturn(Mono.just(ordersAccount)).when(accountServiceClient).fetchByAccountIdRef(expectedId);
+        accountServiceClient.init();
+
+        OrdersAccount first = accountServiceClient.findByAccountIdRef(expectedId);
+        first.setEmailAddress("changed@enjoy.com");
+
+        assertThat(accountServiceClient.findByAccountIdRef(expectedId).getEmailAddress()).isEqualTo("dukefirst.last@enjoy.com");
+    }
+
+    @Test
+    void shouldSend_oneRequest_perLookup() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        DisposableServer accountsService = accountsService(requests);
+        try {
+            ReflectionTestUtils.setField(accountsServiceInstances, "baseURL", "http://localhost:" + accountsService.port());
+            accountServiceClient.init();
+
+            assertThat(accountServiceClient.fetchByAccountIdRef(expectedId).block().getAccountRefId()).isEqualTo(expectedId);
+            assertThat(requests.get()).isEqualTo(1);
+
+            assertThat(accountServiceClient.findByAccountIdRefReactive(expectedId).block().getAccountRefId()).isEqualTo(expectedId);
+            assertThat(requests.get()).isEqualTo(2);
+
+            assertThatThrownBy(() -> accountServiceClient.findByAccountIdRef("missing-account-ref"))
+                    .isInstanceOf(AccountNotFoundException.class);
+            assertThat(requests.get()).isEqualTo(3);
+        } finally {
+            accountsService.disposeNow();
+        }
+    }
+
+    @Test
+    void shouldShare_clientAndInstances_acrossConcurrentLookups() throws Exception {
+        AtomicInteger firstRequests = new AtomicInteger();
+        AtomicInteger secondRequests = new AtomicInteger();
+        DisposableServer first = accountsService(firstRequests);
+        DisposableServer second = accountsService(secondRequests);
+        ExecutorService creates = Executors.newFixedThreadPool(64);
+        try {
+            when(reactiveDiscoveryClient.getInstances(ACCOUNTS_SERVICE_NAME)).thenAnswer(invocation -> Flux.just(
+                    new DefaultServiceInstance("accounts-1", ACCOUNTS_SERVICE_NAME, "localhost", first.port(), false),
+                    new DefaultServiceInstance("accounts-2", ACCOUNTS_SERVICE_NAME, "localhost", second.port(), false)));
+            accountsServiceInstances.refresh().block();
+            accountServiceClient.init();
+            WebClient webClient = (WebClient) ReflectionTestUtils.getField(accountServiceClient, "webClient");
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<OrdersAccount>> found = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_CREATES; i++) {
+                final boolean refresh = i % 50 == 0;
+                found.add(creates.submit(() -> {
+                    start.await();
+                    if (refresh) {
+                        // background refreshes race with lookups
+                        accountsServiceInstances.refresh().block();
+                    }
+                    // uncached, every lookup goes to the accounts service
+                    return accountServiceClient.fetchByAccountIdRef(expectedId).block();
+                }));
+            }
+            start.countDown();
+            for (Future<OrdersAccount> account : found) {
+                assertThat(account.get(10, TimeUnit.SECONDS).getAccountRefId()).isEqualTo(expectedId);
+            }
+
+            // round-robin, the shared counter hands each instance exactly half
+            assertThat(firstRequests.get()).isEqualTo(CONCURRENT_CREATES / 2);
+            assertThat(secondRequests.get()).isEqualTo(CONCURRENT_CREATES / 2);
+            assertThat(ReflectionTestUtils.getField(accountServiceClient, "webClient")).isSameAs(webClient);
+        } finally {
+            creates.shutdown();
+            first.disposeNow();
+            second.disposeNow();
+        }
+    }
+
+    private DisposableServer accountsService(final AtomicInteger requests) throws Exception {
+        String body = mapper.writeValueAsString(ordersAccount);
+        return HttpServer.create().port(0)
+                .route(routes -> routes.get("/accounts/{id}/reference", (request, response) -> {
+                    requests.incrementAndGet();
+                    return expectedId.equals(request.param("id")) ?
+                            response.header("Content-Type", "application/json").sendString(Mono.just(body)) :
+                            response.status(404).send();
+                }))
+                .bindNow();
+    }
 }
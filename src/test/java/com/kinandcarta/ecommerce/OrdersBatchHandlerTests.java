@@ -0,0 +1,126 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.kinandcarta.ecommerce.TestModels.mapper;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static com.kinandcarta.ecommerce.TestModels.twoLineItems;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Runs outside a test transaction, the batch handler commits its own chunks.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "commerce.orders.batch.chunkSize=4"
+})
+@Import({OrdersHandler.class, OrdersBatchHandler.class, OrdersConfiguration.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrdersBatchHandlerTests {
+    @Autowired
+    OrdersBatchHandler ordersBatchHandler;
+    @Autowired
+    OrdersRepository ordersRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldCreateAll_fromJsonArray_andReportInvalidItems() throws Exception {
+        Orders noEmail = newOrder();
+        noEmail.getOrdersAccount().setEmailAddress(null);
+        String json = mapper.writeValueAsString(List.of(newOrder(), noEmail, newOrder()));
+
+        OrdersBatchResult result = ordersBatchHandler.createAll(stream(json));
+
+        assertThat(result.getReceived()).isEqualTo(3);
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getItems()).extracting(OrdersBatchItemResult::getStatus)
+                .containsExactly(OrdersBatchItemResult.CREATED, OrdersBatchItemResult.FAILED, OrdersBatchItemResult.CREATED);
+        assertThat(result.getItems().get(1).getError()).startsWith("InvalidAccountException");
+        assertThat(ordersRepository.findById(result.getItems().get(2).getId())).isPresent();
+    }
+
+    @Test
+    void shouldCreateAll_fromNdjson() throws Exception {
+        String ndjson = mapper.writeValueAsString(newOrder()) + "\n" + mapper.writeValueAsString(newOrder()) + "\n";
+
+        OrdersBatchResult result = ordersBatchHandler.createAll(stream(ndjson));
+
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getItems()).allMatch(item -> item.getId() != null);
+    }
+
+    @Test
+    void shouldIsolate_databaseFailure_toTheOffendingItem() throws Exception {
+        // passes request validation, fails bean validation when the chunk is flushed
+        Orders shortOrderNumber = newOrder();
+        shortOrderNumber.setOrderNumber("short");
+        String json = mapper.writeValueAsString(List.of(newOrder(), shortOrderNumber, newOrder()));
+
+        OrdersBatchResult result = ordersBatchHandler.createAll(stream(json));
+
+        assertThat(result.getItems()).extracting(OrdersBatchItemResult::getStatus)
+                .containsExactly(OrdersBatchItemResult.CREATED, OrdersBatchItemResult.FAILED, OrdersBatchItemResult.CREATED);
+        assertThat(result.getItems().get(1).getOrderNumber()).isEqualTo("short");
+    }
+
+    @Test
+    void shouldReport_readItems_whenBodyIsTruncated() throws Exception {
+        String json = "[" + mapper.writeValueAsString(newOrder()) + ", {\"orderNumber\": ";
+
+        OrdersBatchResult result = ordersBatchHandler.createAll(stream(json));
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getItems().get(1).getStatus()).isEqualTo(OrdersBatchItemResult.FAILED);
+    }
+
+    @Test
+    void shouldBatchInserts_acrossTheChunk() throws Exception {
+        final int orders = 20;
+        List<Orders> models = new ArrayList<>();
+        for (int i = 0; i < orders; i++) models.add(newOrder(twoLineItems()));
+
+        OrdersBatchResult result = ordersBatchHandler.createAll(stream(mapper.writeValueAsString(models)));
+
+        assertThat(result.getCreated()).isEqualTo(orders);
+        // order, account, account address, shipping address, two line items and the outbox event per order, plus the account address link rows
+        log.info("inserted {} entities with {} prepared statements", statistics.getEntityInsertCount(), statistics.getPrepareStatementCount());
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(orders * 7L);
+        // un-batched that is at least one statement per row
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(statistics.getEntityInsertCount() / 2);
+    }
+
+    private static ByteArrayInputStream stream(final String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
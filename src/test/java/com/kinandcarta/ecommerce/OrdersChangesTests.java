@@ -0,0 +1,167 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.contracts.OrdersChangeSink;
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.FileOrdersChangeSink;
+import com.kinandcarta.ecommerce.infrastructure.OrdersChangeEventRepository;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.kinandcarta.ecommerce.TestModels.mapper;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+    Runs outside a test transaction, the outbox rows commit (or roll back) with the orders they describe.
+    The scheduled relay is slowed down, the tests relay by hand.
+ */
+@Slf4j
+@DataJpaTest(properties = "commerce.orders.outbox.relayInterval=1h")
+@Import({OrdersHandler.class, OrdersChangesHandler.class, OrdersConfiguration.class, OrdersChangesTests.InMemorySink.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrdersChangesTests {
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersChangesHandler ordersChangesHandler;
+    @Autowired
+    OrdersChangeEventRepository ordersChangeEventRepository;
+    @Autowired
+    InMemorySink sink;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        // events committed by earlier tests are relayed before the sink is reset
+        int relayed;
+        do {
+            relayed = ordersChangesHandler.relayBatch();
+        } while (relayed > 0);
+        sink.published.clear();
+        sink.failNext.set(false);
+    }
+
+    @Test
+    void shouldPublish_createUpdateDelete_inCommitOrder() {
+        Orders created = ordersHandler.create(newOrder());
+        Orders changes = Orders.builder().totalPrice(new BigDecimal("42.00")).build();
+        ordersHandler.update(created.getId(), changes);
+        ordersHandler.delete(created.getId());
+
+        assertThat(ordersChangesHandler.relayBatch()).isEqualTo(3);
+
+        assertThat(sink.published).extracting(OrdersChangeEvent::getType)
+                .containsExactly(OrdersChangeEvent.Type.CREATED, OrdersChangeEvent.Type.UPDATED, OrdersChangeEvent.Type.DELETED);
+        assertThat(sink.published).allSatisfy(event -> assertThat(event.getOrderId()).isEqualTo(created.getId()));
+        assertThat(sink.published.get(1).getTotalPrice()).isEqualByComparingTo("42.00");
+        assertThat(sink.published.subList(0, 2)).allSatisfy(event -> assertThat(event.getOrderVersion()).isNotNull());
+        assertThat(sink.published).extracting(OrdersChangeEvent::getPosition).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void shouldRecordNothing_whenTheOrderRollsBack() {
+        Orders rolledBack = new TransactionTemplate(transactionManager).execute(status -> {
+            Orders created = ordersHandler.create(newOrder());
+            status.setRollbackOnly();
+            return created;
+        });
+
+        ordersChangesHandler.relayBatch();
+
+        assertThat(sink.published).extracting(OrdersChangeEvent::getOrderId).doesNotContain(rolledBack.getId());
+    }
+
+    @Test
+    void shouldNotDelete_andAnnounce_anUnknownOrder() {
+        ordersHandler.delete(Long.MAX_VALUE);
+
+        assertThat(ordersChangesHandler.relayBatch()).isZero();
+    }
+
+    @Test
+    void shouldKeep_aBatchTheSinkRefused_forTheNextRelay() {
+        Orders created = ordersHandler.create(newOrder());
+        sink.failNext.set(true);
+
+        assertThatThrownBy(() -> ordersChangesHandler.relayBatch()).isInstanceOf(IllegalStateException.class);
+        assertThat(ordersChangesHandler.findChangesSince(0L, 1000).getChanges())
+                .extracting(OrdersChangeEvent::getOrderId).doesNotContain(created.getId());
+
+        assertThat(ordersChangesHandler.relayBatch()).isEqualTo(1);
+        assertThat(sink.published).singleElement().extracting(OrdersChangeEvent::getOrderId).isEqualTo(created.getId());
+    }
+
+    @Test
+    void shouldPage_theChangesFeed_fromACursor() {
+        long start = ordersChangeEventRepository.findLastPosition();
+        for (int i = 0; i < 5; i++) ordersHandler.create(newOrder());
+        ordersChangesHandler.relayBatch();
+
+        OrdersChangesPage first = ordersChangesHandler.findChangesSince(start, 3);
+        OrdersChangesPage second = ordersChangesHandler.findChangesSince(first.getNextCursor(), 3);
+        OrdersChangesPage caughtUp = ordersChangesHandler.findChangesSince(second.getNextCursor(), 3);
+
+        assertThat(first.getChanges()).hasSize(3);
+        assertThat(second.getChanges()).hasSize(2);
+        assertThat(caughtUp.getChanges()).isEmpty();
+        assertThat(caughtUp.getNextCursor()).isEqualTo(second.getNextCursor());
+        assertThat(List.of(first, second)).flatExtracting(OrdersChangesPage::getChanges)
+                .extracting(OrdersChangeEvent::getOrderId).containsExactlyElementsOf(sink.published.stream().map(OrdersChangeEvent::getOrderId).toList());
+    }
+
+    @Test
+    void shouldAppend_oneJsonLinePerEvent_toTheFileSink(@TempDir final Path directory) throws Exception {
+        Path file = directory.resolve("changes/orders-changes.ndjson");
+        FileOrdersChangeSink fileSink = new FileOrdersChangeSink(file, mapper.writer());
+        OrdersChangeEvent event = OrdersChangeEvent.builder().id(1L).orderId(7L).type(OrdersChangeEvent.Type.CREATED).position(1L).build();
+
+        fileSink.publish(List.of(event, event));
+        fileSink.publish(List.of(event));
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(3);
+        assertThat(mapper.readValue(lines.get(2), OrdersChangeEvent.class).getOrderId()).isEqualTo(7L);
+    }
+
+    @TestConfiguration
+    static class InMemorySink implements OrdersChangeSink {
+        final List<OrdersChangeEvent> published = new CopyOnWriteArrayList<>();
+        final AtomicBoolean failNext = new AtomicBoolean();
+
+        @Override
+        public void publish(final List<OrdersChangeEvent> changes) {
+            if (failNext.getAndSet(false)) throw new IllegalStateException("sink unavailable");
+            published.addAll(changes);
+        }
+
+        @Bean
+        @Primary
+        OrdersChangeSink inMemoryOrdersChangeSink() {
+            return this;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 
 import java.math.BigDecimal;
 import java.time.Clock;
@@ -152,7 +153,7 @@ class OrdersControllerTest {
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         mapper.registerModule(new JavaTimeModule());
 
-        controller = new OrdersController(ordersHandler, accountServiceClient);
+        controller = new OrdersController(ordersHandler, accountServiceClient, new MappingJackson2HttpMessageConverter(mapper));
     }
 
     @Test void initClassUnderTest() {
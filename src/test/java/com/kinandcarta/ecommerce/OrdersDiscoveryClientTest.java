@@ -1,5 +1,6 @@
 package com.kinandcarta.ecommerce;
 
+import com.kinandcarta.ecommerce.clients.AccountsServiceInstances;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +14,7 @@ import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryClient;
 import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryProperties;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
 
 import java.util.ArrayList;
@@ -65,4 +67,25 @@ class OrdersDiscoveryClientTest {
         log.info("FLUX response:");
         serviceInstanceFluxResponse.toStream().forEach(System.out::println);
     }
+
+    @Test
+    void shouldRoundRobin_andKeepLastKnownInstances_whenDiscoveryIsEmpty() {
+        ReactiveDiscoveryClient reactiveDiscoveryClient = Mockito.mock(ReactiveDiscoveryClient.class);
+        serviceInstancesList.add(
+                new DefaultServiceInstance(
+                        "eureka-0002", ACCOUNTS_SERVICE_NAME, "localhost", 8002, NOT_SECURE_SVC));
+        when(reactiveDiscoveryClient.getInstances(ACCOUNTS_SERVICE_NAME))
+                .thenReturn(Flux.fromIterable(serviceInstancesList), Flux.empty());
+        AccountsServiceInstances instances = new AccountsServiceInstances(reactiveDiscoveryClient);
+        ReflectionTestUtils.setField(instances, "baseURL", "http://accounts-service:8001");
+        ReflectionTestUtils.setField(instances, "accountsServiceName", ACCOUNTS_SERVICE_NAME);
+
+        assertThat(instances.choose()).isEqualTo("http://accounts-service:8001");
+
+        instances.refresh().block();
+        assertThat(List.of(instances.choose(), instances.choose(), instances.choose()))
+                .containsExactly("http://localhost:8001", "http://localhost:8002", "http://localhost:8001");
+
+        assertThat(instances.refresh().block()).hasSize(2);
+    }
 }
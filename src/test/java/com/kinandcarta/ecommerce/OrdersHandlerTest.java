@@ -4,6 +4,7 @@ import com.kinandcarta.ecommerce.entities.*;
 import com.kinandcarta.ecommerce.exceptions.InvalidAccountException;
 import com.kinandcarta.ecommerce.exceptions.MissingAccountException;
 import com.kinandcarta.ecommerce.exceptions.MissingAddressException;
+import com.kinandcarta.ecommerce.exceptions.OrdersNotFoundException;
 import com.kinandcarta.ecommerce.infrastructure.OrdersAccountRepository;
 import com.kinandcarta.ecommerce.infrastructure.OrdersAddressRepository;
 import com.kinandcarta.ecommerce.infrastructure.OrdersLineItemsRepository;
@@ -14,11 +15,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -248,10 +251,8 @@ class OrdersHandlerTest {
     void should_UpdateOrder() {
         // create
         when(ordersRepository.save(davidKingMoonMousePad_Order2)).thenReturn(davidKingMoonMousePad_Order2);
-        // exists
-        when(ordersRepository.existsById(2L)).thenReturn(Boolean.TRUE);
         // find by id
-        when(ordersRepository.getReferenceById(2L)).thenReturn(davidKingMoonMousePad_Order2);
+        when(ordersRepository.findAggregateById(2L)).thenReturn(Optional.of(davidKingMoonMousePad_Order2));
         // update
         Orders update = ordersHandler.update(2L, davidKingMoonMousePad_Order2);
         update.setOrderLineItems(Set.of(firstProduct, secondProduct));
@@ -266,16 +267,14 @@ class OrdersHandlerTest {
 
     @Test
     void shouldDelete_Order() {
-        when (ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
         willDoNothing().given(ordersRepository).deleteById(1L);
         ordersHandler.delete(1L);
-        assertThat(ordersHandler.findById(1L)).isNull();
+        assertThatThrownBy(() -> ordersHandler.findById(1L)).isInstanceOf(OrdersNotFoundException.class);
     }
 
     @Test
     void shouldFindOrder_byId() {
-        when (ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
-        when (ordersRepository.getReferenceById(1L)).thenReturn(davidKingMoonMousePad);
+        when (ordersRepository.findAggregateById(1L)).thenReturn(Optional.of(davidKingMoonMousePad));
         Orders orderOneFound = ordersHandler.findById(1L);
         assertThat(orderOneFound).isNotNull();
         assertThat(orderOneFound.getOrderNumber()).isEqualTo(orderNumber);
@@ -293,6 +292,35 @@ class OrdersHandlerTest {
                 .hasSize(FOUR_ORDERS_TWO_ITEMS_EACH);
     }
 
+    @Test
+    void shouldFindOrdersPage_afterCursor_withNextCursor() {
+        when(ordersRepository.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(davidKingMoonMousePad_Order2, davidKingMoonMousePad_Order3, davidKingMoonMousePad_Order4));
+        OrdersPage<Orders> page = ordersHandler.findAllAfter(1L, 2);
+        assertThat(page.getOrders()).containsExactly(davidKingMoonMousePad_Order2, davidKingMoonMousePad_Order3);
+        assertThat(page.getLimit()).isEqualTo(2);
+        assertThat(page.getNextCursor()).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldFindOrdersPage_lastPage_withoutNextCursor() {
+        when(ordersRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, OrdersHandler.MAX_PAGE_LIMIT + 1)))
+                .thenReturn(List.of(davidKingMoonMousePad, davidKingMoonMousePad_Order2));
+        OrdersPage<Orders> page = ordersHandler.findAllAfter(null, 100_000);
+        assertThat(page.getOrders()).hasSize(2);
+        assertThat(page.getLimit()).isEqualTo(OrdersHandler.MAX_PAGE_LIMIT);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldStreamAllOrders_toSink_inIdOrder() {
+        when(ordersRepository.streamAllByOrderByIdAsc())
+                .thenReturn(Stream.of(davidKingMoonMousePad, davidKingMoonMousePad_Order2));
+        List<Orders> written = new ArrayList<>();
+        ordersHandler.streamAll(written::add);
+        assertThat(written).containsExactly(davidKingMoonMousePad, davidKingMoonMousePad_Order2);
+    }
+
     @Test
     void shouldFindAllOrders_byAccountId_orderedByDate() {
         // save the graph and its dependencies using entity manager first for tests, JPA does this automatically.
@@ -313,8 +341,7 @@ class OrdersHandlerTest {
                     .build();
 
         // base state
-        when (ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
-        when (ordersRepository.getReferenceById(1L)).thenReturn(davidKingMoonMousePad);
+        when (ordersRepository.findDetailsById(1L)).thenReturn(Optional.of(davidKingMoonMousePad));
 
         // custom view for order-details-view
         assertThat(accountOrderDetails).isNotNull();
@@ -351,8 +378,7 @@ class OrdersHandlerTest {
         toFind.sumLineItems(toFind.getOrderLineItems());
 
         when(ordersRepository.save(toFind)).thenReturn(toFind);
-        when (ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
-        when(ordersRepository.getReferenceById(1L)).thenReturn(toFind);
+        when(ordersRepository.findLineItemsById(1L)).thenReturn(Optional.of(toFind));
 
         Set<OrderLineItems> itemsForOrderId = ordersHandler.findOrderLineItemsFor(1L);
         assertThat(itemsForOrderId).isNotNull().hasSize(2);
@@ -360,8 +386,7 @@ class OrdersHandlerTest {
 
     @Test void shouldFindOrderDetailsView_withCustomView() throws Exception {
         // base state
-        when (ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
-        when(ordersRepository.getReferenceById(1L)).thenReturn(davidKingMoonMousePad);
+        when(ordersRepository.findDetailsById(1L)).thenReturn(Optional.of(davidKingMoonMousePad));
         AccountOrderDetails accountOrderDetails =
                 AccountOrderDetails.builder()
                         .lineItems(davidKingMoonMousePad.getOrderLineItems())
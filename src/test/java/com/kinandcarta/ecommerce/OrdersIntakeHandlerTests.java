@@ -0,0 +1,243 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.kinandcarta.ecommerce.clients.AccountServiceClient;
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.exceptions.AccountNotFoundException;
+import com.kinandcarta.ecommerce.exceptions.IdempotencyKeyReusedException;
+import com.kinandcarta.ecommerce.exceptions.InvalidAccountException;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersIntakeRepository;
+import com.kinandcarta.ecommerce.infrastructure.OrdersRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.kinandcarta.ecommerce.TestModels.newAccount;
+import static com.kinandcarta.ecommerce.TestModels.newLineItem;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/*
+    Runs outside a test transaction, the intake and its workers commit their own rows.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "commerce.orders.intake.pollInterval=100ms",
+        "commerce.orders.intake.leaseTimeout=1m",
+        "commerce.orders.intake.retryBackoff=200ms",
+        "commerce.orders.intake.maxRetryBackoff=1s"
+})
+@Import({OrdersHandler.class, OrdersIntakeHandler.class, OrdersConfiguration.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrdersIntakeHandlerTests {
+    private static final Duration SETTLE_TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    OrdersIntakeHandler ordersIntakeHandler;
+    @Autowired
+    OrdersIntakeRepository ordersIntakeRepository;
+    @SpyBean
+    OrdersRepository ordersRepository;
+    @MockBean
+    AccountServiceClient accountServiceClient;
+
+    @Test
+    void shouldAccept_thenCreateTheOrder_onAWorker() throws Exception {
+        Orders model = newOrder();
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenReturn(model.getOrdersAccount());
+
+        OrdersIntakeStatus accepted = ordersIntakeHandler.accept(model, null);
+        OrdersIntakeStatus settled = settle(accepted.getTrackingId());
+
+        assertThat(accepted.getStatus()).isIn(OrdersIntake.Status.ACCEPTED, OrdersIntake.Status.PROCESSING);
+        assertThat(settled.getStatus()).isEqualTo(OrdersIntake.Status.CREATED);
+        assertThat(settled.getAttempts()).isEqualTo(1);
+        assertThat(ordersRepository.findById(settled.getOrderId())).get()
+                .extracting(Orders::getOrderNumber).isEqualTo(model.getOrderNumber());
+    }
+
+    @Test
+    void shouldReplay_anIdempotencyKey_withoutCreatingASecondOrder() throws Exception {
+        Orders model = newOrder(Set.of(newLineItem(1L, 2, "10"), newLineItem(2L, 1, "13.74"), newLineItem(3L, 5, "0.99")));
+        // the body a client sends, and sends again on a retry: no line keys, each request is deserialized on its own
+        ObjectNode body = TestModels.mapper.valueToTree(model);
+        body.withArray("orderLineItems").forEach(line -> ((ObjectNode) line).remove("lineKey"));
+        String key = UUID.randomUUID().toString();
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenReturn(model.getOrdersAccount());
+
+        OrdersIntakeStatus first = ordersIntakeHandler.accept(TestModels.mapper.treeToValue(body, Orders.class), key);
+        settle(first.getTrackingId());
+        OrdersIntakeStatus replayed = ordersIntakeHandler.accept(TestModels.mapper.treeToValue(body, Orders.class), key);
+
+        assertThat(replayed.getTrackingId()).isEqualTo(first.getTrackingId());
+        assertThat(replayed.getStatus()).isEqualTo(OrdersIntake.Status.CREATED);
+        verify(accountServiceClient, times(1)).findByAccountIdRef(model.getOrdersAccount().getAccountRefId());
+    }
+
+    @Test
+    void shouldRefuse_anIdempotencyKey_reusedForADifferentOrder() {
+        String key = UUID.randomUUID().toString();
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenAnswer(invocation -> newAccount());
+        ordersIntakeHandler.accept(newOrder(), key);
+
+        assertThatThrownBy(() -> ordersIntakeHandler.accept(newOrder(), key))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+
+    @Test
+    void shouldFail_withoutRetrying_whenTheAccountIsUnknown() throws Exception {
+        Orders model = newOrder();
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenThrow(new AccountNotFoundException("no such account"));
+
+        OrdersIntakeStatus settled = settle(ordersIntakeHandler.accept(model, null).getTrackingId());
+
+        assertThat(settled.getStatus()).isEqualTo(OrdersIntake.Status.FAILED);
+        assertThat(settled.getAttempts()).isEqualTo(1);
+        assertThat(settled.getError()).startsWith("AccountNotFoundException");
+        assertThat(settled.getOrderId()).isNull();
+    }
+
+    @Test
+    void shouldRetry_whenTheAccountsServiceIsUnavailable() throws Exception {
+        Orders model = newOrder();
+        when(accountServiceClient.findByAccountIdRef(anyString()))
+                .thenThrow(new IllegalStateException("accounts-service unavailable"))
+                .thenReturn(model.getOrdersAccount());
+
+        OrdersIntakeStatus settled = settle(ordersIntakeHandler.accept(model, null).getTrackingId());
+
+        assertThat(settled.getStatus()).isEqualTo(OrdersIntake.Status.CREATED);
+        assertThat(settled.getAttempts()).isEqualTo(2);
+        assertThat(settled.getError()).isNull();
+    }
+
+    @Test
+    void shouldRetry_whenTheFirstSaveFailsTransiently() throws Exception {
+        Orders model = newOrder();
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenReturn(model.getOrdersAccount());
+        // the spy wraps the repository proxy, its default answer delegates to it (there is no real method to call)
+        doThrow(new CannotAcquireLockException("Lock wait timeout exceeded"))
+                .doAnswer(mockingDetails(ordersRepository).getMockCreationSettings().getDefaultAnswer())
+                .when(ordersRepository).save(any(Orders.class));
+
+        OrdersIntakeStatus settled = settle(ordersIntakeHandler.accept(model, null).getTrackingId());
+
+        assertThat(settled.getStatus()).isEqualTo(OrdersIntake.Status.CREATED);
+        assertThat(settled.getAttempts()).isEqualTo(2);
+        assertThat(ordersRepository.findById(settled.getOrderId())).isPresent();
+    }
+
+    @Test
+    void shouldBackOff_betweenAttempts_whileTheAccountsServiceStaysDown() throws Exception {
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenThrow(new IllegalStateException("accounts-service unavailable"));
+        Instant accepted = Instant.now();
+
+        OrdersIntakeStatus settled = settle(ordersIntakeHandler.accept(newOrder(), null).getTrackingId());
+
+        assertThat(settled.getStatus()).isEqualTo(OrdersIntake.Status.FAILED);
+        assertThat(settled.getAttempts()).isEqualTo(5);
+        // 200ms, 400ms, 800ms and 1s (capped) between the five attempts
+        assertThat(Duration.between(accepted, Instant.now())).isGreaterThanOrEqualTo(Duration.ofMillis(2400));
+        assertThat(ordersIntakeHandler.backoff(1)).isEqualTo(Duration.ofMillis(200));
+        assertThat(ordersIntakeHandler.backoff(3)).isEqualTo(Duration.ofMillis(800));
+        assertThat(ordersIntakeHandler.backoff(40)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldNotClaim_aRetriedIntake_beforeItsNextAttempt() throws Exception {
+        Orders model = newOrder();
+        OrdersIntake waiting = ordersIntakeRepository.save(OrdersIntake.builder()
+                .trackingId(UUID.randomUUID().toString())
+                .requestHash("0")
+                .payload(TestModels.mapper.writeValueAsString(model))
+                .status(OrdersIntake.Status.ACCEPTED)
+                .attempts(1)
+                .updateDateTime(Instant.now())
+                .nextAttemptDateTime(Instant.now().plus(Duration.ofHours(1))).build());
+
+        ordersIntakeHandler.process(waiting.getId());
+
+        OrdersIntake unchanged = ordersIntakeRepository.findById(waiting.getId()).orElseThrow();
+        assertThat(unchanged.getStatus()).isEqualTo(OrdersIntake.Status.ACCEPTED);
+        assertThat(unchanged.getAttempts()).isEqualTo(1);
+        verify(accountServiceClient, never()).findByAccountIdRef(model.getOrdersAccount().getAccountRefId());
+    }
+
+    @Test
+    void shouldResume_anIntakeLeftProcessing_afterItsLeaseExpired() throws Exception {
+        Orders model = newOrder();
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenReturn(model.getOrdersAccount());
+        // as a worker that died mid-order leaves it
+        OrdersIntake orphan = ordersIntakeRepository.save(OrdersIntake.builder()
+                .trackingId(UUID.randomUUID().toString())
+                .requestHash("0")
+                .payload(TestModels.mapper.writeValueAsString(model))
+                .status(OrdersIntake.Status.PROCESSING)
+                .attempts(1)
+                .updateDateTime(Instant.now().minus(Duration.ofHours(1))).build());
+
+        OrdersIntakeStatus settled = settle(orphan.getTrackingId());
+
+        assertThat(settled.getStatus()).isEqualTo(OrdersIntake.Status.CREATED);
+        assertThat(settled.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReject_anInvalidOrder_beforeAcceptingIt() {
+        Orders noEmail = newOrder();
+        noEmail.getOrdersAccount().setEmailAddress(null);
+        long intakes = ordersIntakeRepository.count();
+
+        assertThatThrownBy(() -> ordersIntakeHandler.accept(noEmail, null)).isInstanceOf(InvalidAccountException.class);
+        assertThat(ordersIntakeRepository.count()).isEqualTo(intakes);
+    }
+
+    @Test
+    void shouldAnswer_202WithATrackingLocation_and422ForAReusedKey() {
+        OrdersIntakeController controller = new OrdersIntakeController(ordersIntakeHandler);
+        String key = UUID.randomUUID().toString();
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenAnswer(invocation -> newAccount());
+
+        ResponseEntity<OrdersIntakeStatus> accepted = controller.createAsync(newOrder(), key);
+        ResponseEntity<OrdersIntakeStatus> reused = controller.createAsync(newOrder(), key);
+        ResponseEntity<OrdersIntakeStatus> unknown = controller.findByTrackingId(UUID.randomUUID().toString());
+
+        assertThat(accepted.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(accepted.getHeaders().getLocation()).hasToString("/orders:async/" + accepted.getBody().getTrackingId());
+        assertThat(controller.findByTrackingId(accepted.getBody().getTrackingId()).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(unknown.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private OrdersIntakeStatus settle(final String trackingId) throws InterruptedException {
+        Instant deadline = Instant.now().plus(SETTLE_TIMEOUT);
+        OrdersIntakeStatus status = ordersIntakeHandler.findByTrackingId(trackingId);
+        while ((status.getStatus() == OrdersIntake.Status.ACCEPTED || status.getStatus() == OrdersIntake.Status.PROCESSING)
+                && Instant.now().isBefore(deadline)) {
+            Thread.sleep(50);
+            status = ordersIntakeHandler.findByTrackingId(trackingId);
+        }
+        return status;
+    }
+}
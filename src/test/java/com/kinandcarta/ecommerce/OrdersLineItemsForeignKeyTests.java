@@ -0,0 +1,101 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersLineItemsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.*;
+
+import static com.kinandcarta.ecommerce.TestModels.newLineItems;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Line items reference their order through order_line_items.order_id, one insert per line and no join rows.
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrdersHandler.class, OrdersConfiguration.class})
+@ActiveProfiles("test")
+class OrdersLineItemsForeignKeyTests {
+    private static final int LINES = 20;
+
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersLineItemsRepository ordersLineItemsRepository;
+    @Autowired
+    TestEntityManager entityManager;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldInsert_eachLine_once_withItsOrderId() {
+        Orders order = newOrder(newLineItems(LINES));
+
+        Long orderId = entityManager.persistAndFlush(order).getId();
+
+        // account, its address, shipping address, order and the lines, the account's address row is the only link row
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(4L + LINES);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        entityManager.clear();
+        assertThat(ordersLineItemsRepository.findOrderLineItemsByOrderId(orderId)).hasSize(LINES);
+    }
+
+    @Test
+    void shouldRead_theLines_ofAnOrder_inOneStatement() {
+        Long orderId = entityManager.persistAndFlush(newOrder(newLineItems(LINES))).getId();
+        entityManager.clear();
+        statistics.clear();
+
+        Set<OrderLineItems> lineItems = ordersHandler.findOrderLineItemsFor(orderId);
+
+        assertThat(lineItems).hasSize(LINES).allSatisfy(line -> assertThat(line.getOrderId()).isEqualTo(orderId));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldDelete_replacedLines_onUpdate() {
+        Orders order = entityManager.persistAndFlush(newOrder(newLineItems(3)));
+        Long orderId = order.getId();
+        List<Long> replacedIds = order.getOrderLineItems().stream().map(OrderLineItems::getId).toList();
+        entityManager.clear();
+
+        Orders model = Orders.builder().orderLineItems(newLineItems(2)).build();
+        ordersHandler.update(orderId, model);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(ordersLineItemsRepository.findOrderLineItemsByOrderId(orderId)).hasSize(2)
+                .extracting(OrderLineItems::getId).doesNotContainAnyElementsOf(replacedIds);
+        assertThat(ordersLineItemsRepository.findAllById(replacedIds)).isEmpty();
+    }
+
+    @Test
+    void shouldDelete_theLines_withTheOrder() {
+        Long orderId = entityManager.persistAndFlush(newOrder(newLineItems(3))).getId();
+        entityManager.clear();
+
+        ordersHandler.delete(orderId);
+        entityManager.flush();
+
+        assertThat(ordersLineItemsRepository.findOrderLineItemsByOrderId(orderId)).isEmpty();
+    }
+}
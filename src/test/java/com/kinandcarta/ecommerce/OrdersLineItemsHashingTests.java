@@ -0,0 +1,71 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.Orders;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.kinandcarta.ecommerce.TestModels.newLineItems;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Line items hash on line_key, so a transient line stays findable in its set once the id is generated
+    and large sets spread over buckets instead of sharing one.
+ */
+@Slf4j
+@DataJpaTest
+@ActiveProfiles("test")
+class OrdersLineItemsHashingTests {
+    private static final int LINE_ITEMS = 1_000;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Test
+    void shouldKeep_transientLineItems_inTheirSet_acrossPersist() {
+        Set<OrderLineItems> lineItems = newLineItems(LINE_ITEMS);
+        Set<OrderLineItems> transientLineItems = new HashSet<>(lineItems);
+
+        Orders order = entityManager.persistAndFlush(newOrder(lineItems));
+
+        assertThat(order.getOrderLineItems()).allSatisfy(lineItem -> assertThat(lineItem.getId()).isNotNull());
+        assertThat(transientLineItems).hasSize(LINE_ITEMS).containsAll(order.getOrderLineItems());
+    }
+
+    @Test
+    void shouldMatch_loadedLineItems_byLineKey() {
+        Set<OrderLineItems> lineItems = newLineItems(LINE_ITEMS);
+        Long orderId = entityManager.persistAndFlush(newOrder(lineItems)).getId();
+        entityManager.clear();
+
+        Set<OrderLineItems> loaded = entityManager.find(Orders.class, orderId).getOrderLineItems();
+
+        assertThat(new HashSet<>(loaded)).isEqualTo(lineItems);
+        assertThat(loaded.stream().map(OrderLineItems::hashCode).collect(Collectors.toSet())).hasSize(LINE_ITEMS);
+    }
+
+    @Test
+    void shouldFind_anOrder_inItsSet_afterItsOrderNumberChanges() {
+        Orders order = entityManager.persistAndFlush(newOrder(newLineItems(1)));
+        Set<Orders> orders = new HashSet<>(Set.of(order));
+        entityManager.clear();
+        Orders detached = Orders.builder().id(order.getId()).orderNumber(order.getOrderNumber()).build();
+
+        order.setOrderNumber("ord-" + UUID.randomUUID());
+        Orders loaded = entityManager.find(Orders.class, order.getId());
+
+        // equal by id, so the same hash whatever the order number
+        assertThat(loaded).isEqualTo(order).hasSameHashCodeAs(order).hasSameHashCodeAs(detached);
+        assertThat(orders).contains(order, loaded, detached);
+    }
+}
@@ -0,0 +1,143 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.exceptions.OrdersNotFoundException;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersLineItemsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static com.kinandcarta.ecommerce.TestModels.mapper;
+import static com.kinandcarta.ecommerce.TestModels.newLineItem;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+    PATCH /orders/{id}/lines on an order with many lines, only the named lines are read or written and the total
+    moves by the difference of their line totals.
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrdersHandler.class, OrdersConfiguration.class})
+@ActiveProfiles("test")
+class OrdersLineItemsPatchTests {
+    private static final int LINES = 200;
+
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersLineItemsRepository ordersLineItemsRepository;
+    @Autowired
+    TestEntityManager entityManager;
+
+    Statistics statistics;
+    Long orderId;
+    List<Long> lineIds;
+
+    @BeforeEach
+    void setUp() {
+        Set<OrderLineItems> lineItems = new HashSet<>();
+        for (int i = 0; i < LINES; i++) {
+            lineItems.add(OrderLineItems.builder().productId((long) i).quantity(2).price(new BigDecimal("1.50")).build());
+        }
+        Orders order = newOrder(lineItems);
+        order.sumLineItems(order.getOrderLineItems());
+        orderId = entityManager.persistAndFlush(order).getId();
+        lineIds = order.getOrderLineItems().stream().map(OrderLineItems::getId).sorted().toList();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldApply_addChangeRemove_andMoveTheTotal_byTheDelta() throws Exception {
+        OrderLineItemsPatch patch = mapper.readValue("""
+                { "operations": [
+                    { "op": "add", "productId": 900, "quantity": 3, "price": 2.00 },
+                    { "op": "change", "id": %d, "quantity": 5 },
+                    { "op": "remove", "id": %d } ] }
+                """.formatted(lineIds.get(0), lineIds.get(1)), OrderLineItemsPatch.class);
+
+        OrderLineItemsPatchResult result = ordersHandler.patchOrderLineItems(orderId, patch);
+        entityManager.flush();
+
+        // 600.00 + 6.00 (add) + 4.50 (change, 2 -> 5 at 1.50) - 3.00 (remove)
+        assertThat(result.getTotalPrice()).isEqualByComparingTo("607.50");
+        assertThat(result.getTotalPrice()).isEqualByComparingTo(ordersLineItemsRepository.sumLineTotalsByOrderId(orderId));
+        assertThat(result.getAdded()).singleElement().satisfies(line -> assertThat(line.getId()).isNotNull());
+        assertThat(result.getChanged()).isEqualTo(1);
+        assertThat(result.getRemoved()).isEqualTo(1);
+        // the other lines are neither loaded nor rewritten
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(2L);
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(statistics.getCollectionRecreateCount()).isZero();
+
+        entityManager.clear();
+        Orders reloaded = ordersHandler.findById(orderId);
+        assertThat(reloaded.getOrderLineItems()).hasSize(LINES);
+        assertThat(reloaded.getTotalPrice()).isEqualByComparingTo("607.50");
+        assertThat(reloaded.getUpdateDateTime()).isEqualTo(result.getVersion());
+        assertThat(reloaded.getOrderLineItems()).allSatisfy(line -> assertThat(line.getOrderId()).isEqualTo(orderId));
+        assertThat(reloaded.getOrderLineItems()).filteredOn(line -> line.getProductId() == 900L).singleElement()
+                .satisfies(line -> assertThat(line.getCreateDateTime()).isEqualTo(result.getAdded().get(0).getCreateDateTime()));
+    }
+
+    @Test
+    void shouldSum_theLinesOnce_whenTheOrderHasNoTotal() {
+        Orders noTotal = newOrder(Set.of(newLineItem(1L, 4, "2.50")));
+        Long noTotalId = entityManager.persistAndFlush(noTotal).getId();
+        Long lineId = noTotal.getOrderLineItems().iterator().next().getId();
+        entityManager.clear();
+
+        OrderLineItemsPatchResult result = ordersHandler.patchOrderLineItems(noTotalId, patch(
+                OrderLineItemsPatch.Operation.builder().op(OrderLineItemsPatch.Op.CHANGE).id(lineId).price(new BigDecimal("3.00")).build()));
+
+        assertThat(result.getTotalPrice()).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void shouldRefuse_aLineOfAnotherOrder() {
+        Orders other = newOrder(Set.of(newLineItem(1L, 1, "1")));
+        entityManager.persistAndFlush(other);
+        Long otherLineId = other.getOrderLineItems().iterator().next().getId();
+
+        assertThatThrownBy(() -> ordersHandler.patchOrderLineItems(orderId, patch(
+                OrderLineItemsPatch.Operation.builder().op(OrderLineItemsPatch.Op.REMOVE).id(otherLineId).build())))
+                .isInstanceOf(OrdersNotFoundException.class)
+                .hasMessageContaining(otherLineId.toString());
+    }
+
+    @Test
+    void shouldRefuse_invalidOperations() {
+        assertThatThrownBy(() -> OrdersHandler.validatePatch(patch()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OrdersHandler.validatePatch(patch(
+                OrderLineItemsPatch.Operation.builder().op(OrderLineItemsPatch.Op.ADD).productId(1L).quantity(0).price(BigDecimal.ONE).build())))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OrdersHandler.validatePatch(patch(
+                OrderLineItemsPatch.Operation.builder().op(OrderLineItemsPatch.Op.CHANGE).id(1L).quantity(2).build(),
+                OrderLineItemsPatch.Operation.builder().op(OrderLineItemsPatch.Op.REMOVE).id(1L).build())))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ordersHandler.patchOrderLineItems(Long.MAX_VALUE, patch(
+                OrderLineItemsPatch.Operation.builder().op(OrderLineItemsPatch.Op.REMOVE).id(1L).build())))
+                .isInstanceOf(OrdersNotFoundException.class);
+    }
+
+    private static OrderLineItemsPatch patch(final OrderLineItemsPatch.Operation... operations) {
+        return OrderLineItemsPatch.builder().operations(List.of(operations)).build();
+    }
+}
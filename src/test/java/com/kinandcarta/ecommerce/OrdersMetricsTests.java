@@ -0,0 +1,119 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersMetricsConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersRequestMetricsFilter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.data.RepositoryMetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.prometheus.PrometheusMetricsExportAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.jdbc.DataSourcePoolMetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.orm.jpa.HibernateMetricsAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    The metrics auto-configurations a full application context brings, around the handler and its repositories
+    on H2 (a Hikari pool, not the embedded test database). The request filter runs on a mock request whose chain
+    calls the handler.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders_metrics;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "commerce.orders.metrics.slowQueryThreshold=50ms"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@AutoConfigureObservability(tracing = false)
+@ImportAutoConfiguration({AopAutoConfiguration.class, MetricsAutoConfiguration.class,
+        CompositeMeterRegistryAutoConfiguration.class, PrometheusMetricsExportAutoConfiguration.class,
+        DataSourcePoolMetricsAutoConfiguration.class, HibernateMetricsAutoConfiguration.class,
+        RepositoryMetricsAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrdersHandler.class, OrdersConfiguration.class, OrdersMetricsConfiguration.class})
+@ActiveProfiles("test")
+class OrdersMetricsTests {
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    PrometheusMeterRegistry prometheusMeterRegistry;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void handlerMethods_andRepositoryQueries_areTimed() {
+        Orders order = ordersHandler.create(newOrder());
+        ordersHandler.findOrderLineItemsFor(order.getId());
+
+        assertThat(meterRegistry.get("orders.handler").tag("class", OrdersHandler.class.getName())
+                .tag("method", "create").timer().count()).isPositive();
+        assertThat(meterRegistry.get("orders.handler").tag("method", "findOrderLineItemsFor").timer().count()).isPositive();
+        assertThat(meterRegistry.get("spring.data.repository.invocations").tag("repository", "OrdersRepository")
+                .timers()).isNotEmpty();
+    }
+
+    @Test
+    void requestFilter_recordsStatementsAndEntityLoads_perRequest() throws Exception {
+        Orders order = ordersHandler.create(newOrder());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/" + order.getId() + "/lines");
+
+        new OrdersRequestMetricsFilter(meterRegistry).doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/orders/{id}/lines");
+            ordersHandler.findOrderLineItemsFor(order.getId());
+        });
+
+        DistributionSummary statements = meterRegistry.get("orders.request.statements")
+                .tag("method", "GET").tag("uri", "/orders/{id}/lines").summary();
+        DistributionSummary entityLoads = meterRegistry.get("orders.request.entity.loads")
+                .tag("method", "GET").tag("uri", "/orders/{id}/lines").summary();
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isGreaterThanOrEqualTo(1);
+        assertThat(entityLoads.count()).isEqualTo(1);
+        assertThat(entityLoads.totalAmount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void hikariPool_andHibernate_areBound() {
+        assertThat(meterRegistry.get("hikaricp.connections.max").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("hibernate.statements").functionCounters()).isNotEmpty();
+    }
+
+    @Test
+    void slowQueryThreshold_isHandedToHibernate() {
+        assertThat(entityManagerFactory.getProperties().get(AvailableSettings.LOG_SLOW_QUERY)).isEqualTo(50L);
+    }
+
+    @Test
+    void prometheusScrape_hasTheOrdersMeters() {
+        Orders order = ordersHandler.create(newOrder());
+        ordersHandler.findOrderLineItemsFor(order.getId());
+
+        assertThat(prometheusMeterRegistry.scrape())
+                .contains("orders_handler_seconds_count")
+                .contains("spring_data_repository_invocations_seconds_count")
+                .contains("hikaricp_connections_max")
+                .contains("hibernate_statements_total");
+    }
+}
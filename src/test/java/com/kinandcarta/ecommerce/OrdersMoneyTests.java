@@ -0,0 +1,113 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersMoney;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.IntRange;
+import net.jqwik.api.constraints.Size;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+    Properties of the cents arithmetic against the BigDecimal arithmetic Orders.sumLineItems used before
+    (price times quantity, summed exactly), and against the half-up rounding of the decimal(38, 2) columns.
+ */
+class OrdersMoneyTests {
+
+    @Property
+    void sumLineItems_equalsTheBigDecimalSum_atTheColumnScale(@ForAll @Size(max = 200) List<@From("centPrices") BigDecimal> prices,
+                                                              @ForAll @IntRange(max = 100_000) int quantity) {
+        Set<OrderLineItems> lines = lines(prices, quantity);
+        Orders order = Orders.builder().orderLineItems(lines).build();
+
+        BigDecimal total = order.sumLineItems(lines);
+
+        assertThat(total).isEqualByComparingTo(bigDecimalSum(lines));
+        assertThat(total.scale()).isEqualTo(OrdersMoney.SCALE);
+        assertThat(order.getTotalPrice()).isSameAs(total);
+        assertThat(lines).allSatisfy(line -> assertThat(line.getTotalPrice())
+                .isEqualByComparingTo(line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity()))));
+    }
+
+    @Property
+    void subCentPrices_fallBackToTheExactSum(@ForAll @Size(max = 50) List<@From("centPrices") BigDecimal> prices,
+                                             @ForAll("subCentPrices") BigDecimal subCent,
+                                             @ForAll @IntRange(min = 1, max = 1_000) int quantity) {
+        List<BigDecimal> withSubCent = new ArrayList<>(prices);
+        withSubCent.add(subCent);
+        Set<OrderLineItems> lines = lines(withSubCent, quantity);
+
+        assertThat(Orders.builder().build().sumLineItems(lines)).isEqualTo(bigDecimalSum(lines));
+    }
+
+    @Property
+    void toMinorUnits_roundsHalfUp_likeTheColumn(@ForAll("anyScalePrices") BigDecimal amount) {
+        assertThat(OrdersMoney.toBigDecimal(OrdersMoney.toMinorUnits(amount)))
+                .isEqualTo(amount.setScale(OrdersMoney.SCALE, RoundingMode.HALF_UP));
+    }
+
+    @Property
+    void lineTotal_equalsPriceTimesQuantity(@ForAll("anyScalePrices") BigDecimal price, @ForAll @IntRange(max = 1_000_000) int quantity) {
+        assertThat(new OrderLineItems().computeTotalPrice(price, quantity))
+                .isEqualByComparingTo(price.multiply(BigDecimal.valueOf(quantity)));
+    }
+
+    @Example
+    void totalsBeyondALong_fallBackToBigDecimal() {
+        BigDecimal maxCents = OrdersMoney.toBigDecimal(Long.MAX_VALUE);
+        Set<OrderLineItems> lines = lines(List.of(maxCents, new BigDecimal("0.01")), 1);
+
+        assertThat(Orders.builder().build().sumLineItems(lines)).isEqualTo(bigDecimalSum(lines));
+        assertThat(new OrderLineItems().computeTotalPrice(maxCents, 2)).isEqualTo(maxCents.multiply(BigDecimal.valueOf(2)));
+        assertThatThrownBy(() -> OrdersMoney.lineTotal(Long.MAX_VALUE, 2)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> OrdersMoney.toMinorUnits(maxCents.add(BigDecimal.ONE))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Example
+    void emptyOrder_totalsZero() {
+        assertThat(Orders.builder().build().sumLineItems(Set.of())).isEqualTo(new BigDecimal("0.00"));
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> centPrices() {
+        return Arbitraries.integers().between(0, OrdersMoney.SCALE).flatMap(scale ->
+                Arbitraries.bigDecimals().between(BigDecimal.ZERO, new BigDecimal("10000000")).ofScale(scale));
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> subCentPrices() {
+        return Arbitraries.integers().between(OrdersMoney.SCALE + 1, 6).flatMap(scale ->
+                        Arbitraries.bigDecimals().between(BigDecimal.ZERO, new BigDecimal("10000")).ofScale(scale))
+                .filter(price -> price.stripTrailingZeros().scale() > OrdersMoney.SCALE);
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> anyScalePrices() {
+        return Arbitraries.integers().between(0, 8).flatMap(scale ->
+                Arbitraries.bigDecimals().between(new BigDecimal("-10000000"), new BigDecimal("10000000")).ofScale(scale));
+    }
+
+    // before OrdersMoney: every line's price times quantity, summed as BigDecimal
+    private static BigDecimal bigDecimalSum(final Set<OrderLineItems> lines) {
+        return lines.stream()
+                .map(line -> line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static Set<OrderLineItems> lines(final List<BigDecimal> prices, final int quantity) {
+        Set<OrderLineItems> lines = new HashSet<>();
+        for (int i = 0; i < prices.size(); i++) {
+            lines.add(OrderLineItems.builder().productId((long) i).price(prices.get(i)).quantity(quantity + i).build());
+        }
+        return lines;
+    }
+}
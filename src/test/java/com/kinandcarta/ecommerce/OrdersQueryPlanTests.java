@@ -0,0 +1,175 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.OrdersIntake;
+import com.kinandcarta.ecommerce.infrastructure.*;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    The Flyway chain in db/migration on H2 in MySQL mode, the mapping validated against it (ddl-auto: validate).
+    Every repository query method is run, the SQL Hibernate sends is captured and EXPLAINed, and the plan has to
+    read the index that migration added for it, no table is scanned. Methods that read a whole table on purpose
+    (findAll, findAllSummaries, streamAllByOrderByIdAsc, findLastPosition) are left out.
+    H2 names primary key indexes primary_key_<n> and backs each foreign key with an index of its own, MySQL reuses
+    idx_orders_account_history for the account key; account history is checked on its lookup column for that reason.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders_plans;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.kinandcarta.ecommerce.OrdersQueryPlanTests$Statements"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class OrdersQueryPlanTests {
+    private static final String PRIMARY_KEY = "primary_key_";
+    private static final String ACCOUNT_LOOKUP = "orders_account_id = ?1";
+    private static final String LINES_BY_ORDER = "idx_order_line_items_order_id";
+    private static final Instant NOW = Instant.parse("2023-09-01T12:00:00Z");
+    private static final PageRequest PAGE = PageRequest.ofSize(10);
+
+    public static class Statements implements StatementInspector {
+        static final List<String> sql = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(final String statement) {
+            sql.add(statement);
+            return statement;
+        }
+    }
+
+    @Autowired
+    OrdersRepository ordersRepository;
+    @Autowired
+    OrdersLineItemsRepository ordersLineItemsRepository;
+    @Autowired
+    OrdersAccountRepository ordersAccountRepository;
+    @Autowired
+    OrdersIntakeRepository ordersIntakeRepository;
+    @Autowired
+    OrdersChangeEventRepository ordersChangeEventRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Statements.sql.clear();
+    }
+
+    @Test
+    void ordersRepository_readsOrders_byPrimaryKey() {
+        assertPlan(() -> ordersRepository.findAggregateById(1L), PRIMARY_KEY, LINES_BY_ORDER);
+        assertPlan(() -> ordersRepository.findDetailsById(1L), PRIMARY_KEY, LINES_BY_ORDER);
+        assertPlan(() -> ordersRepository.findLineItemsById(1L), PRIMARY_KEY, LINES_BY_ORDER);
+        assertPlan(() -> ordersRepository.findAggregatesByIdIn(List.of(1L, 2L)), PRIMARY_KEY, LINES_BY_ORDER);
+        assertPlan(() -> ordersRepository.findVersionById(1L), PRIMARY_KEY);
+        assertPlan(() -> ordersRepository.findAccountIdById(1L), PRIMARY_KEY);
+        assertPlan(() -> ordersRepository.findSummaryById(1L), PRIMARY_KEY);
+        assertPlan(() -> ordersRepository.findByIdGreaterThanOrderByIdAsc(0L, PAGE), PRIMARY_KEY);
+        assertPlan(() -> ordersRepository.findSummariesByIdGreaterThan(0L, PAGE), PRIMARY_KEY);
+        assertPlan(() -> ordersRepository.touchById(1L, NOW), PRIMARY_KEY);
+        assertPlan(() -> ordersRepository.addToTotalPrice(1L, BigDecimal.ONE), PRIMARY_KEY);
+        assertPlan(() -> ordersRepository.updateTotalPrice(1L, BigDecimal.ONE), PRIMARY_KEY);
+    }
+
+    @Test
+    void ordersRepository_readsAccountHistory_offAnAccountIndex() {
+        assertPlan(() -> ordersRepository.findAllByOrdersAccountIdOrderByOrderDateDesc(1L), ACCOUNT_LOOKUP);
+        assertPlan(() -> ordersRepository.findHistoryIdsByAccountId(1L, PAGE), ACCOUNT_LOOKUP);
+        assertPlan(() -> ordersRepository.findHistoryIdsByAccountIdAfter(1L, NOW, 1L, PAGE), ACCOUNT_LOOKUP);
+        assertPlan(() -> ordersRepository.findSummariesByAccountId(1L), ACCOUNT_LOOKUP);
+        assertPlan(() -> ordersRepository.findHistorySummariesByAccountId(1L, PAGE), ACCOUNT_LOOKUP);
+        assertPlan(() -> ordersRepository.findHistorySummariesByAccountIdAfter(1L, NOW, 1L, PAGE), ACCOUNT_LOOKUP);
+        assertPlan(() -> {
+            try (Stream<?> orders = ordersRepository.streamByOrdersAccountIdOrderByOrderDateDescIdAsc(1L)) {
+                orders.forEach(order -> { });
+            }
+        }, ACCOUNT_LOOKUP);
+    }
+
+    @Test
+    void ordersLineItemsRepository_readsLines_byOrder() {
+        assertPlan(() -> ordersLineItemsRepository.findOrderLineItemsByOrderId(1L), LINES_BY_ORDER);
+        assertPlan(() -> ordersLineItemsRepository.sumLineTotalsByOrderId(1L), LINES_BY_ORDER);
+        assertPlan(() -> ordersLineItemsRepository.findByOrderAndIdIn(1L, Set.of(1L, 2L)), PRIMARY_KEY);
+        assertPlan(() -> ordersLineItemsRepository.deleteAllByIdIn(Set.of(1L, 2L)), PRIMARY_KEY);
+    }
+
+    @Test
+    void ordersAccountRepository_readsAccounts_byNaturalId() {
+        assertPlan(() -> ordersAccountRepository.findByAccountRefId("4f464483-a1f0-4ce9-a19e-3c0f5e7a1a2b"), "uc_orders_account_accountrefid");
+    }
+
+    @Test
+    void ordersIntakeRepository_readsIntake_offItsKeys() {
+        assertPlan(() -> ordersIntakeRepository.findByTrackingId("t"), "uc_orders_intake_tracking_id");
+        assertPlan(() -> ordersIntakeRepository.findByIdempotencyKey("k"), "uc_orders_intake_idempotency_key");
+        assertPlan(() -> ordersIntakeRepository.findDueIdsByStatus(OrdersIntake.Status.ACCEPTED, NOW, PAGE), "idx_orders_intake_status");
+        assertPlan(() -> ordersIntakeRepository.releaseExpired(NOW, NOW), "idx_orders_intake_status");
+        assertPlan(() -> ordersIntakeRepository.claim(1L, NOW), "idx_orders_intake_status");
+    }
+
+    @Test
+    void ordersChangeEventRepository_readsTheFeed_offFeedPosition() {
+        assertPlan(() -> ordersChangeEventRepository.findByPositionIsNullOrderByIdAsc(PAGE), "uc_orders_outbox_feed_position");
+        assertPlan(() -> ordersChangeEventRepository.findPublishedAfter(0L, PAGE), "uc_orders_outbox_feed_position");
+    }
+
+    @Test
+    void lookups_byOrderNumber_andProduct_useTheirIndexes() {
+        assertThat(explain("select id from orders where order_number = ?")).contains("idx_orders_order_number");
+        assertThat(explain("select id, order_id from order_line_items where product_id = ?")).contains("idx_order_line_items_product_id");
+    }
+
+    private void assertPlan(final Runnable query, final String... indexes) {
+        Statements.sql.clear();
+        query.run();
+        List<String> plans = new ArrayList<>();
+        for (String statement : Statements.sql) {
+            plans.add(explain(statement));
+        }
+        log.info("plans -> {}", plans);
+        assertThat(plans).isNotEmpty().noneMatch(plan -> plan.contains(".tablescan"));
+        assertThat(String.join("\n", plans)).contains(indexes);
+    }
+
+    // parameters stay unbound values to the optimizer, the plan is the one a prepared statement gets
+    private String explain(final String sql) {
+        return jdbcTemplate.execute((java.sql.Connection connection) -> {
+            try (PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+                for (int i = 1; i <= explain.getParameterMetaData().getParameterCount(); i++) {
+                    explain.setNull(i, Types.NULL);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) plan.append(rows.getString(1));
+                }
+                return plan.toString().toLowerCase();
+            }
+        });
+    }
+}
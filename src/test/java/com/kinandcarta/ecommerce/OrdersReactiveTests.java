@@ -0,0 +1,217 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.clients.AccountServiceClient;
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.exceptions.AccountNotFoundException;
+import com.kinandcarta.ecommerce.exceptions.OrdersNotFoundException;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersRepository;
+import com.kinandcarta.ecommerce.infrastructure.ReactiveOrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.ReactiveOrdersRepository;
+import io.r2dbc.pool.ConnectionPool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static com.kinandcarta.ecommerce.TestModels.twoLineItems;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/*
+    JPA creates the schema and R2DBC shares the same in-memory H2 database, so every reactive write is read
+    back through the JPA repository and the other way around.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders_reactive;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrdersHandler.class, OrdersConfiguration.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrdersReactiveTests {
+    private static final int CONCURRENT_CREATES = 200;
+
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersRepository ordersRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    AccountServiceClient accountServiceClient = Mockito.mock(AccountServiceClient.class);
+    ConnectionPool connectionPool;
+    ReactiveOrdersHandler reactiveOrdersHandler;
+    WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        ReactiveOrdersConfiguration configuration = new ReactiveOrdersConfiguration();
+        ReflectionTestUtils.setField(configuration, "url", "r2dbc:h2:mem:///orders_reactive");
+        ReflectionTestUtils.setField(configuration, "username", "sa");
+        ReflectionTestUtils.setField(configuration, "password", "");
+        ReflectionTestUtils.setField(configuration, "poolMaxSize", 10);
+        ReflectionTestUtils.setField(configuration, "poolMaxIdleTime", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(configuration, "idSource", "sequence");
+
+        connectionPool = configuration.reactiveOrdersConnectionFactory();
+        DatabaseClient databaseClient = configuration.reactiveOrdersDatabaseClient(connectionPool);
+        TransactionalOperator transactionalOperator = configuration.reactiveOrdersTransactionalOperator(connectionPool);
+        ReactiveOrdersRepository reactiveOrdersRepository = configuration.reactiveOrdersRepository(databaseClient);
+
+        when(accountServiceClient.findByAccountIdRefReactive(anyString()))
+                .thenAnswer(invocation -> Mono.just(OrdersAccount.builder().accountRefId(invocation.getArgument(0)).build()));
+        reactiveOrdersHandler = new ReactiveOrdersHandler(reactiveOrdersRepository, accountServiceClient, transactionalOperator);
+        webTestClient = WebTestClient.bindToRouterFunction(new OrdersRouter().ordersRoutes(reactiveOrdersHandler)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionPool.dispose();
+    }
+
+    @Test
+    void shouldCreate_throughRouter_andReadBack_throughJpa() {
+        Orders created = webTestClient.post().uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newOrder(twoLineItems()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Orders.class).returnResult().getResponseBody();
+
+        assertThat(created).isNotNull();
+        Orders persisted = ordersHandler.findById(created.getId());
+        assertThat(persisted.getOrderNumber()).isEqualTo(created.getOrderNumber());
+        assertThat(persisted.getOrdersAccount().getAccountRefId()).isEqualTo(created.getOrdersAccount().getAccountRefId());
+        assertThat(persisted.getOrdersAccount().getAddresses()).hasSize(1);
+        assertThat(persisted.getOrdersShippingAddress().getCity()).isEqualTo("Food Forest City");
+        assertThat(persisted.getOrderLineItems()).extracting(OrderLineItems::getProductId).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    void shouldFind_jpaCreatedOrder_throughRouter() {
+        Orders saved = ordersHandler.create(newOrder(twoLineItems()));
+
+        webTestClient.get().uri("/orders/{id}", saved.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.orderNumber").isEqualTo(saved.getOrderNumber())
+                .jsonPath("$.ordersAccount.addresses.length()").isEqualTo(1)
+                .jsonPath("$.orderLineItems.length()").isEqualTo(2);
+
+        webTestClient.get().uri("/orders/{id}/details", saved.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.orderId").isEqualTo(saved.getId())
+                .jsonPath("$.lineItems.length()").isEqualTo(2);
+    }
+
+    @Test
+    void shouldCreate_concurrently_withoutIdCollisions_betweenStacks() {
+        long existing = ordersRepository.count();
+        List<Long> reactiveIds = Flux.range(0, CONCURRENT_CREATES)
+                .flatMap(i -> reactiveOrdersHandler.create(newOrder(twoLineItems())), CONCURRENT_CREATES)
+                .map(Orders::getId)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        Long jpaId = ordersHandler.create(newOrder(twoLineItems())).getId();
+
+        assertThat(reactiveIds).hasSize(CONCURRENT_CREATES).doesNotHaveDuplicates().doesNotContain(jpaId);
+        assertThat(ordersRepository.count()).isEqualTo(existing + CONCURRENT_CREATES + 1);
+
+        Set<Long> streamed = reactiveOrdersHandler.findAll().map(Orders::getId).collect(Collectors.toSet()).block();
+        assertThat(streamed).containsAll(reactiveIds).contains(jpaId);
+    }
+
+    @Test
+    void shouldAnswer_likeTheServletController_forInvalidCreates() {
+        Orders noAccount = newOrder(twoLineItems());
+        noAccount.setOrdersAccount(null);
+        webTestClient.post().uri("/orders").contentType(MediaType.APPLICATION_JSON).bodyValue(noAccount)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        Orders unknownAccount = newOrder(twoLineItems());
+        when(accountServiceClient.findByAccountIdRefReactive(eq(unknownAccount.getOrdersAccount().getAccountRefId())))
+                .thenReturn(Mono.error(new AccountNotFoundException("Account not found")));
+        webTestClient.post().uri("/orders").contentType(MediaType.APPLICATION_JSON).bodyValue(unknownAccount)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldDelete_orderAndCascadedRows() {
+        Orders created = reactiveOrdersHandler.create(newOrder(twoLineItems())).block();
+
+        webTestClient.delete().uri("/orders/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/orders/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+        assertThatThrownBy(() -> ordersHandler.findById(created.getId())).isInstanceOf(OrdersNotFoundException.class);
+    }
+
+    @Test
+    void shouldRecord_createdAndDeletedChanges_inTheOutbox() {
+        Orders created = reactiveOrdersHandler.create(newOrder(twoLineItems())).block();
+        reactiveOrdersHandler.delete(created.getId()).block();
+
+        List<String> changes = jdbcTemplate.queryForList(
+                "SELECT change_type FROM orders_outbox WHERE order_id = ? ORDER BY id", String.class, created.getId());
+        assertThat(changes).containsExactly(OrdersChangeEvent.Type.CREATED.name(), OrdersChangeEvent.Type.DELETED.name());
+        assertThat(jdbcTemplate.queryForObject("SELECT order_number FROM orders_outbox WHERE order_id = ? AND change_type = 'CREATED'",
+                String.class, created.getId())).isEqualTo(created.getOrderNumber());
+    }
+
+    @Test
+    void shouldDelete_oneOrder_andKeepTheSharedAccount() {
+        Orders deleted = reactiveOrdersHandler.create(newOrder(twoLineItems())).block();
+        Orders kept = reactiveOrdersHandler.create(newOrder(twoLineItems())).block();
+        // reactive creates bring their own account, the second order is moved onto the first one's
+        jdbcTemplate.update("UPDATE orders SET orders_account_id = ? WHERE id = ?", deleted.getOrdersAccount().getId(), kept.getId());
+        // and the deleted one ships to the account's address
+        jdbcTemplate.update("UPDATE orders SET orders_shipping_address_id = (SELECT addresses_id FROM orders_account_addresses"
+                + " WHERE orders_account_id = ?) WHERE id = ?", deleted.getOrdersAccount().getId(), deleted.getId());
+
+        webTestClient.delete().uri("/orders/{id}", deleted.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        assertThatThrownBy(() -> ordersHandler.findById(deleted.getId())).isInstanceOf(OrdersNotFoundException.class);
+        Orders remaining = ordersHandler.findById(kept.getId());
+        assertThat(remaining.getOrdersAccount().getId()).isEqualTo(deleted.getOrdersAccount().getId());
+        assertThat(remaining.getOrdersAccount().getAddresses()).hasSize(1);
+    }
+}
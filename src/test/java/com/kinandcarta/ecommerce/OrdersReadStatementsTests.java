@@ -0,0 +1,125 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.kinandcarta.ecommerce.TestModels.newAddress;
+import static com.kinandcarta.ecommerce.TestModels.newLineItem;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Statement budget per read endpoint, the whole response is serialized so any lazy
+    association the fetch graph missed would show up as an extra statement.
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrdersHandler.class, OrdersConfiguration.class})
+@ActiveProfiles("test")
+class OrdersReadStatementsTests {
+    private static final long ONE_ROUND_TRIP = 1L;
+
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    TestEntityManager entityManager;
+
+    final ObjectMapper mapper = new OrdersConfiguration().mappingJackson2HttpMessageConverter().getObjectMapper();
+    Statistics statistics;
+    Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        OrdersAccount account = OrdersAccount.builder()
+                .accountRefId(UUID.randomUUID().toString())
+                .firstName("DukeFirstName")
+                .lastName("DukeLastName")
+                .emailAddress("dukefirst.last@enjoy.com")
+                .addresses(Set.of(newAddress("100 Main"), newAddress("200 Side"))).build();
+
+        Orders order = Orders.builder()
+                .ordersAccount(account)
+                .ordersShippingAddress(newAddress("100 Main"))
+                .orderNumber("ord-" + UUID.randomUUID())
+                .orderDate(Instant.now(Clock.systemUTC()))
+                .orderLineItems(Set.of(newLineItem(1L, 2, "10"), newLineItem(3L, 1, "13.99"), newLineItem(5L, 4, "1.25"))).build();
+        order.sumLineItems(order.getOrderLineItems());
+
+        orderId = entityManager.persistAndFlush(order).getId();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findById_loadsAggregate_inOneStatement_andAccountAddressesInASecond() throws Exception {
+        Orders found = ordersHandler.findById(orderId);
+        String json = mapper.writeValueAsString(found);
+
+        assertThat(found.getOrderLineItems()).hasSize(3);
+        assertThat(found.getOrdersAccount().getAddresses()).hasSize(2);
+        assertThat(json).contains("ordersShippingAddress");
+        // no second-level cache here, the addresses are not joined into the line item rows
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(ONE_ROUND_TRIP + 1);
+    }
+
+    @Test
+    void findByIdDetailedView_loadsDetails_inOneStatement() throws Exception {
+        AccountOrderDetails details = ordersHandler.findByIdDetailedView(orderId);
+        mapper.writeValueAsString(details);
+
+        assertThat(details.getLineItems()).hasSize(3);
+        assertThat(details.getShippingAddressDTO()).isNotNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(ONE_ROUND_TRIP);
+    }
+
+    @Test
+    void findOrderLineItemsFor_loadsLineItems_inOneStatement() throws Exception {
+        Set<OrderLineItems> lineItems = ordersHandler.findOrderLineItemsFor(orderId);
+        mapper.writeValueAsString(lineItems);
+
+        assertThat(lineItems).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(ONE_ROUND_TRIP);
+    }
+
+    @Test
+    void findVersionById_readsVersion_inOneStatement_withoutLoadingTheOrder() {
+        OrdersVersion version = ordersHandler.findVersionById(orderId);
+
+        assertThat(version.id()).isEqualTo(orderId);
+        assertThat(version.updateDateTime()).isNotNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(ONE_ROUND_TRIP);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findOrderSummaries_selectsColumns_inOneStatement_withoutEntities() throws Exception {
+        List<OrderSummary> summaries = ordersHandler.findOrderSummaries(null);
+        String json = mapper.writeValueAsString(summaries);
+
+        // other test classes may have committed orders into the same database
+        assertThat(summaries).filteredOn(summary -> summary.id().equals(orderId)).singleElement()
+                .satisfies(summary -> assertThat(summary.totalPrice()).isEqualByComparingTo("38.99"));
+        assertThat(json).doesNotContain("ordersAccount", "orderLineItems");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(ONE_ROUND_TRIP);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
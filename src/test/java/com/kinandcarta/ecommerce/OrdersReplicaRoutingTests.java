@@ -0,0 +1,183 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersDataSourceConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersReplicaHeartbeat;
+import com.kinandcarta.ecommerce.infrastructure.OrdersReplicaReads;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Two H2 databases, the primary and a replica that only changes when a test replicates: the primary is copied
+    over whole (SCRIPT / RUNSCRIPT), the heartbeat is beaten by hand. A row changed on the replica alone shows
+    which database a read went to.
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders_routing_primary;DB_CLOSE_DELAY=-1",
+        "commerce.orders.datasource.replica.enabled=true",
+        "commerce.orders.datasource.replica.url=jdbc:h2:mem:orders_routing_replica;DB_CLOSE_DELAY=-1",
+        "commerce.orders.datasource.replica.maxLag=5s",
+        "commerce.orders.datasource.replica.heartbeatInterval=1h"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrdersHandler.class, OrdersConfiguration.class, OrdersDataSourceConfiguration.class})
+@ActiveProfiles("test")
+class OrdersReplicaRoutingTests {
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersReplicaReads ordersReplicaReads;
+    @Autowired
+    OrdersReplicaHeartbeat ordersReplicaHeartbeat;
+    @Autowired
+    @Qualifier("ordersPrimaryDataSource")
+    HikariDataSource primary;
+    @Autowired
+    @Qualifier("ordersReplicaDataSource")
+    HikariDataSource replica;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS orders_replica_heartbeat");
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V10__orders_replica_heartbeat.sql"));
+        }
+        catchUp();
+    }
+
+    @Test
+    void readOnlyReads_goToTheReplica() throws SQLException {
+        Orders order = ordersHandler.create(newOrder());
+        catchUp();
+        String onReplica = changeOnReplica(order.getId());
+
+        assertThat(ordersHandler.findOrdersForAccountId(order.getOrdersAccount().getId()))
+                .extracting(Orders::getOrderNumber).containsExactly(onReplica);
+        assertThat(ordersHandler.findOrderLineItemsFor(order.getId())).hasSize(1);
+    }
+
+    @Test
+    void writes_pinTheirOrderAndAccount_toThePrimary_untilTheReplicaHasThem() throws SQLException {
+        Orders written = ordersHandler.create(newOrder());
+        Orders other = ordersHandler.create(newOrder());
+        catchUp();
+        String otherOnReplica = changeOnReplica(other.getId());
+
+        String updatedNumber = "ord-updated-" + UUID.randomUUID();
+        ordersHandler.update(written.getId(), Orders.builder().orderNumber(updatedNumber).build());
+        // the replica keeps up (lag within maxLag) but has not applied the update yet
+        ordersReplicaHeartbeat.beat();
+        assertThat(ordersReplicaReads.lag()).hasValueSatisfying(lag -> assertThat(lag).isLessThan(Duration.ofSeconds(5)));
+        assertThat(orderNumberOn(primary, written.getId())).isEqualTo(updatedNumber);
+
+        assertThat(ordersHandler.findOrdersForAccountId(written.getOrdersAccount().getId()))
+                .extracting(Orders::getOrderNumber).containsExactly(updatedNumber);
+        assertThat(ordersHandler.findById(written.getId()).getOrderNumber()).isEqualTo(updatedNumber);
+        // nothing pins the other account
+        assertThat(ordersHandler.findOrdersForAccountId(other.getOrdersAccount().getId()))
+                .extracting(Orders::getOrderNumber).containsExactly(otherOnReplica);
+
+        catchUp();
+        String writtenOnReplica = changeOnReplica(written.getId());
+        assertThat(ordersHandler.findOrdersForAccountId(written.getOrdersAccount().getId()))
+                .extracting(Orders::getOrderNumber).containsExactly(writtenOnReplica);
+    }
+
+    @Test
+    void replicaBeyondMaxLag_readsStayOnThePrimary() throws SQLException {
+        Orders order = ordersHandler.create(newOrder());
+        catchUp();
+        changeOnReplica(order.getId());
+
+        // beat_dt holds UTC wall clock time
+        executeOnReplica("UPDATE orders_replica_heartbeat SET beat_dt = ?", LocalDateTime.now(ZoneOffset.UTC).minusSeconds(60));
+        ordersReplicaHeartbeat.beat();
+
+        assertThat(ordersReplicaReads.lag()).hasValueSatisfying(lag -> assertThat(lag).isGreaterThan(Duration.ofSeconds(5)));
+        assertThat(ordersHandler.findOrdersForAccountId(order.getOrdersAccount().getId()))
+                .extracting(Orders::getOrderNumber).containsExactly(order.getOrderNumber());
+    }
+
+    @Test
+    void unreadableReplica_readsStayOnThePrimary() throws SQLException {
+        Orders order = ordersHandler.create(newOrder());
+        catchUp();
+        changeOnReplica(order.getId());
+
+        executeOnReplica("DROP TABLE orders_replica_heartbeat");
+        ordersReplicaHeartbeat.beat();
+
+        assertThat(ordersReplicaReads.lag()).isEmpty();
+        assertThat(ordersHandler.findOrdersForAccountId(order.getOrdersAccount().getId()))
+                .extracting(Orders::getOrderNumber).containsExactly(order.getOrderNumber());
+    }
+
+    // a heartbeat written before the copy is the one the replica shows afterwards
+    private void catchUp() throws SQLException {
+        ordersReplicaHeartbeat.beat();
+        List<String> script = new ArrayList<>();
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SCRIPT")) {
+            while (rows.next()) script.add(rows.getString(1));
+        }
+        try (Connection connection = replicaConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : script) statement.execute(sql);
+        }
+        ordersReplicaHeartbeat.beat();
+    }
+
+    private String changeOnReplica(final Long orderId) throws SQLException {
+        String onReplica = "ord-replica-" + UUID.randomUUID();
+        executeOnReplica("UPDATE orders SET order_number = ? WHERE id = ?", onReplica, orderId);
+        return onReplica;
+    }
+
+    private void executeOnReplica(final String sql, final Object... parameters) throws SQLException {
+        try (Connection connection = replicaConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) statement.setObject(i + 1, parameters[i]);
+            statement.execute();
+        }
+    }
+
+    // the replica pool is read-only, the test writes to it on a connection of its own
+    private Connection replicaConnection() throws SQLException {
+        return DriverManager.getConnection(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword());
+    }
+
+    private static String orderNumberOn(final HikariDataSource dataSource, final Long orderId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement("SELECT order_number FROM orders WHERE id = ?")) {
+            select.setLong(1, orderId);
+            try (ResultSet row = select.executeQuery()) {
+                return row.next() ? row.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.OrdersAccountRepository;
+import com.kinandcarta.ecommerce.infrastructure.OrdersCacheConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersCacheStatisticsEndpoint;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Every test commits, READ_WRITE regions are only filled and invalidated when a transaction completes.
+ */
+@Slf4j
+@DataJpaTest
+@Import({OrdersHandler.class, OrdersConfiguration.class, OrdersCacheConfiguration.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrdersSecondLevelCacheTests {
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersAccountRepository ordersAccountRepository;
+    @Autowired
+    OrdersRepository ordersRepository;
+    @Autowired
+    OrdersCacheStatisticsEndpoint ordersCacheStatisticsEndpoint;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transactionTemplate;
+    Statistics statistics;
+    Orders saved;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        saved = ordersHandler.create(newOrder());
+        ordersCacheStatisticsEndpoint.reset();
+    }
+
+    @Test
+    void shouldRead_accountAndAddresses_fromCache_onOrderReads() {
+        // inserts fill the entity regions, a collection region is only filled by its first load
+        transactionTemplate.executeWithoutResult(status ->
+                ordersHandler.findOrdersForAccountId(saved.getOrdersAccount().getId()).iterator().next().getOrdersAccount().getAddresses().size());
+        ordersCacheStatisticsEndpoint.reset();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Orders found = ordersHandler.findOrdersForAccountId(saved.getOrdersAccount().getId()).iterator().next();
+            assertThat(found.getOrdersAccount().getAddresses()).hasSize(1);
+            assertThat(found.getOrdersShippingAddress().getCity()).isEqualTo("Food Forest City");
+        });
+
+        // only the orders select, account, its addresses and the shipping address come from the regions
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+        assertThat(ordersCacheStatisticsEndpoint.region(OrdersCacheConfiguration.ACCOUNT_REGION).hits()).isEqualTo(1L);
+        assertThat(ordersCacheStatisticsEndpoint.region(OrdersCacheConfiguration.ACCOUNT_ADDRESSES_REGION).hits()).isEqualTo(1L);
+        assertThat(ordersCacheStatisticsEndpoint.region(OrdersCacheConfiguration.ADDRESS_REGION).hits()).isPositive();
+    }
+
+    @Test
+    void shouldRead_accountAddresses_fromCache_onAggregateReads() {
+        Long orderId = saved.getId();
+        transactionTemplate.executeWithoutResult(status ->
+                ordersRepository.findAggregateById(orderId).orElseThrow().getOrdersAccount().getAddresses().size());
+        ordersCacheStatisticsEndpoint.reset();
+
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(ordersRepository.findAggregateById(orderId).orElseThrow().getOrdersAccount().getAddresses()).hasSize(1));
+
+        // the aggregate select only, the addresses are not joined in and come from their collection region
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+        assertThat(ordersCacheStatisticsEndpoint.region(OrdersCacheConfiguration.ACCOUNT_ADDRESSES_REGION).hits()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldResolve_accountByNaturalId_withoutStatements() {
+        String accountRefId = saved.getOrdersAccount().getAccountRefId();
+
+        OrdersAccount found = transactionTemplate.execute(status -> ordersAccountRepository.findByAccountRefId(accountRefId).orElseThrow());
+
+        assertThat(found.getId()).isEqualTo(saved.getOrdersAccount().getId());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldInvalidate_cachedAccount_onUpdate() {
+        Long accountId = saved.getOrdersAccount().getId();
+
+        transactionTemplate.executeWithoutResult(status ->
+                ordersAccountRepository.findById(accountId).orElseThrow().setFirstName("RenamedFirstName"));
+
+        OrdersAccount found = transactionTemplate.execute(status -> ordersAccountRepository.findById(accountId).orElseThrow());
+        assertThat(found.getFirstName()).isEqualTo("RenamedFirstName");
+        // the update is the only statement, the region entry was replaced on commit and both reads hit it
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+        assertThat(ordersCacheStatisticsEndpoint.region(OrdersCacheConfiguration.ACCOUNT_REGION).hits()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldReport_hitRatio_perRegion() {
+        transactionTemplate.executeWithoutResult(status -> ordersAccountRepository.findById(saved.getOrdersAccount().getId()));
+        transactionTemplate.executeWithoutResult(status -> ordersAccountRepository.findById(Long.MAX_VALUE));
+
+        OrdersCacheStatisticsEndpoint.CacheStatistics cacheStatistics = ordersCacheStatisticsEndpoint.statistics();
+        assertThat(cacheStatistics.enabled()).isTrue();
+        assertThat(cacheStatistics.regions()).extracting(OrdersCacheStatisticsEndpoint.RegionStatistics::region)
+                .containsExactly(OrdersCacheConfiguration.ACCOUNT_REGION, OrdersCacheConfiguration.ACCOUNT_NATURAL_ID_REGION,
+                        OrdersCacheConfiguration.ACCOUNT_ADDRESSES_REGION, OrdersCacheConfiguration.ADDRESS_REGION);
+        assertThat(ordersCacheStatisticsEndpoint.region(OrdersCacheConfiguration.ACCOUNT_REGION).hitRatio()).isEqualTo(0.5);
+        assertThat(ordersCacheStatisticsEndpoint.region(OrdersCacheConfiguration.ACCOUNT_REGION).elementsInMemory()).isPositive();
+        assertThat(ordersCacheStatisticsEndpoint.region("orders")).isNull();
+    }
+}
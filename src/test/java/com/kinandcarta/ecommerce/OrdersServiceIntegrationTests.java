@@ -1,10 +1,16 @@
 package com.kinandcarta.ecommerce;
 
 import com.kinandcarta.ecommerce.clients.AccountServiceClient;
+import com.kinandcarta.ecommerce.entities.AccountOrdersCursor;
 import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.OrderSummary;
 import com.kinandcarta.ecommerce.entities.Orders;
+import com.kinandcarta.ecommerce.entities.OrdersBatchItemResult;
+import com.kinandcarta.ecommerce.entities.OrdersBatchResult;
+import com.kinandcarta.ecommerce.entities.OrdersVersion;
 import com.kinandcarta.ecommerce.infrastructure.OrdersAccountRepository;
 import com.kinandcarta.ecommerce.infrastructure.OrdersAddressRepository;
+import com.kinandcarta.ecommerce.infrastructure.OrdersJsonCache;
 import com.kinandcarta.ecommerce.infrastructure.OrdersLineItemsRepository;
 import com.kinandcarta.ecommerce.infrastructure.OrdersRepository;
 import jakarta.persistence.EntityManager;
@@ -15,21 +21,31 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static com.kinandcarta.ecommerce.TestModels.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 
@@ -40,6 +56,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.
 class OrdersServiceIntegrationTests {
     EntityManager entityManager = Mockito.mock(EntityManager.class);
     MockMvc mockMvc;
+    final Instant version = Instant.parse("2023-09-01T10:15:30.123456Z");
 
     OrdersHandler ordersHandler;
 
@@ -53,12 +70,14 @@ class OrdersServiceIntegrationTests {
     OrdersAddressRepository ordersAddressRepository;
     @Mock
     AccountServiceClient mockAccountServiceClient;
+    @Mock
+    OrdersBatchHandler ordersBatchHandler;
 
 
     @BeforeEach
     void setUp() {
         ordersHandler = new OrdersHandler(ordersRepository,ordersLineItemsRepository,ordersAccountRepository,ordersAddressRepository);
-        this.mockMvc = MockMvcBuilders.standaloneSetup(new OrdersController(ordersHandler, mockAccountServiceClient)).build();
+        this.mockMvc = MockMvcBuilders.standaloneSetup(new OrdersController(ordersHandler, mockAccountServiceClient, new MappingJackson2HttpMessageConverter(mapper))).build();
     }
 
     @Test
@@ -109,6 +128,24 @@ class OrdersServiceIntegrationTests {
     }
 
 
+    @Test
+    void shouldCreateOrders_inBatch_fromNdjson() throws Exception {
+        when(ordersBatchHandler.createAll(any())).thenReturn(OrdersBatchResult.builder()
+                .received(1).created(1)
+                .items(List.of(OrdersBatchItemResult.builder().index(0).status(OrdersBatchItemResult.CREATED).id(51L).build()))
+                .build());
+
+        MockMvcBuilders.standaloneSetup(new OrdersBatchController(ordersBatchHandler)).build()
+                .perform(MockMvcRequestBuilders.post("/orders:batch")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(mapper.writeValueAsString(ordersAccount) + "\n"))
+                .andDo(print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].id").value(51));
+    }
+
     @Test void shouldUpdateAnOrder() throws Exception {
         final String json = mapper.writeValueAsString(
                 Orders.builder()
@@ -130,15 +167,13 @@ class OrdersServiceIntegrationTests {
                 .orderDate(Instant.now())
                 .build());
 
-        when(ordersRepository.existsById(20L)).thenReturn(Boolean.TRUE);
-
-        when(ordersRepository.getReferenceById(20L)).thenReturn(
+        when(ordersRepository.findAggregateById(20L)).thenReturn(Optional.of(
                 Orders.builder()
                         .id(20L)
                         .ordersAccount(ordersAccount)
                         .orderNumber(orderNumber)
                         .orderDate(Instant.now())
-                        .build());
+                        .build()));
 
         mockMvc.perform(MockMvcRequestBuilders.put("/orders/{id}", 20L)
                         .accept(MediaType.APPLICATION_JSON)
@@ -178,8 +213,8 @@ class OrdersServiceIntegrationTests {
 
         toFind.sumLineItems(toFind.getOrderLineItems());
 
-        when(ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
-        when(ordersRepository.getReferenceById(1L)).thenReturn(toFind);
+        when(ordersRepository.findVersionById(1L)).thenReturn(Optional.of(new OrdersVersion(1L, version)));
+        when(ordersRepository.findAggregateById(1L)).thenReturn(Optional.of(toFind));
 
         mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}", 1L)
                         .accept(MediaType.APPLICATION_JSON)
@@ -188,6 +223,92 @@ class OrdersServiceIntegrationTests {
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test void shouldAnswer_ifNoneMatch_withNotModified_withoutReadingTheOrder() throws Exception {
+        Orders found = findByIdOrders();
+        found.setUpdateDateTime(version);
+        whenConditionsFor_FindByIdOrders(found);
+
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1))
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).startsWith("\"").doesNotStartWith("W/");
+        Mockito.clearInvocations(ordersRepository);
+
+        // polling inside the revalidation window, neither the version nor the order is read
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}", 1L)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(MockMvcResultMatchers.content().bytes(new byte[0]));
+        Mockito.verifyNoInteractions(ordersRepository);
+    }
+
+    @Test void shouldRevalidate_withVersionOnly_andServeNewETag_onceTheOrderChanged() throws Exception {
+        Instant changed = version.plusMillis(1);
+        when(ordersRepository.findVersionById(1L)).thenReturn(
+                Optional.of(new OrdersVersion(1L, version)),
+                Optional.of(new OrdersVersion(1L, version)),
+                Optional.of(new OrdersVersion(1L, changed)));
+        Orders lines = findByIdOrders();
+        when(ordersRepository.findLineItemsById(1L)).thenReturn(Optional.of(lines));
+        // nothing is trusted without a version check
+        mockMvc = MockMvcBuilders.standaloneSetup(new OrdersController(ordersHandler, mockAccountServiceClient,
+                new MappingJackson2HttpMessageConverter(mapper),
+                new OrdersJsonCache(mapper.writer(), 1_000_000, Duration.ofMinutes(1), Duration.ZERO))).build();
+
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}/lines", 1L))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}/lines", 1L).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+        String changedETag = mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}/lines", 1L).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(lines.getOrderLineItems().size()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(changedETag).isNotEqualTo(eTag);
+        // loaded for the first and the changed version only, the 304 in between read the version alone
+        Mockito.verify(ordersRepository, Mockito.times(2)).findLineItemsById(1L);
+    }
+
+    @Test void shouldLabel_aStaleSnapshot_withItsOwnVersion() throws Exception {
+        Instant changed = version.plusMillis(1);
+        Orders found = findByIdOrders();
+        found.setUpdateDateTime(version);
+        whenConditionsFor_FindByIdOrders(found);
+        mockMvc = MockMvcBuilders.standaloneSetup(new OrdersController(ordersHandler, mockAccountServiceClient,
+                new MappingJackson2HttpMessageConverter(mapper),
+                new OrdersJsonCache(mapper.writer(), 1_000_000, Duration.ofMinutes(1), Duration.ZERO))).build();
+
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        // written on another instance, this one's snapshot cache still holds the order as of version
+        when(ordersRepository.findVersionById(1L)).thenReturn(Optional.of(new OrdersVersion(1L, changed)));
+
+        MvcResult stale = mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        Orders served = mapper.readValue(stale.getResponse().getContentAsByteArray(), Orders.class);
+        assertThat(served.getUpdateDateTime()).isEqualTo(version);
+        assertThat(stale.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo(eTag);
+
+        // once the snapshot is current the new version's ETag no longer matches the stale one
+        found.setUpdateDateTime(changed);
+        ordersHandler.ordersSnapshotCache.evictAll();
+        String changedETag = mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}", 1L)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changedETag).isNotEqualTo(eTag);
+    }
+
     @Test void shouldFind_AllOrders() throws Exception {
         OrderLineItems firstProduct = OrderLineItems.builder()
                 .orderId(1L)
@@ -217,6 +338,108 @@ class OrdersServiceIntegrationTests {
                 .andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test void shouldFindOrdersPage_withKeysetCursor() throws Exception {
+        Orders first = Orders.builder().id(7L).ordersAccount(ordersAccount).orderNumber(orderNumber).build();
+        Orders second = Orders.builder().id(9L).ordersAccount(ordersAccount).orderNumber(orderNumber).build();
+
+        when(ordersRepository.findByIdGreaterThanOrderByIdAsc(5L, PageRequest.of(0, 2))).thenReturn(List.of(first, second));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders").param("after", "5").param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.orders[0].id").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.orders.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(7));
+    }
+
+    @Test void shouldFindAccountHistoryPage_withContinuationToken() throws Exception {
+        Orders newest = Orders.builder().id(9L).ordersAccount(ordersAccount).orderNumber(orderNumber)
+                .orderDate(Instant.parse("2023-09-02T10:00:00Z")).build();
+        Orders older = Orders.builder().id(7L).ordersAccount(ordersAccount).orderNumber(orderNumber)
+                .orderDate(Instant.parse("2023-09-01T10:00:00Z")).build();
+        String continuationToken = AccountOrdersCursor.after(newest).encode();
+
+        when(ordersRepository.findHistoryIdsByAccountIdAfter(100L, newest.getOrderDate(), 9L, PageRequest.of(0, 1)))
+                .thenReturn(new SliceImpl<>(List.of(7L), PageRequest.of(0, 1), true));
+        when(ordersRepository.findAggregatesByIdIn(List.of(7L))).thenReturn(List.of(older));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders").param("accountId", "100").param("limit", "1")
+                        .param("continuation", continuationToken)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.accountId").value(100))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.orders[0].id").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.continuationToken").value(AccountOrdersCursor.after(older).encode()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders").param("accountId", "100").param("limit", "1")
+                        .param("continuation", "not-a-token")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test void shouldStreamAllOrders_asNdjson() throws Exception {
+        Orders first = Orders.builder().id(7L).ordersAccount(ordersAccount).orderNumber(orderNumber).build();
+        Orders second = Orders.builder().id(9L).ordersAccount(ordersAccount).orderNumber(orderNumber).build();
+
+        when(ordersRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(first, second));
+
+        MvcResult streaming = mockMvc.perform(MockMvcRequestBuilders.get("/orders")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(streaming))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(mapper.readValue(lines[1], Orders.class).getId()).isEqualTo(9L);
+    }
+
+    @Test void shouldFindOrders_forAccountId_asJson_withoutAnNdjsonAccept() throws Exception {
+        Orders toFind = Orders.builder().id(7L).ordersAccount(ordersAccount).orderNumber(orderNumber).build();
+
+        when(ordersRepository.findAllByOrdersAccountIdOrderByOrderDateDesc(100L)).thenReturn(List.of(toFind));
+
+        // no Accept and */*, what JSON clients send, neither gets the NDJSON history stream
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders").param("accountId", "100"))
+                .andExpect(MockMvcResultMatchers.request().asyncNotStarted())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(7));
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders").param("accountId", "100")
+                        .accept(MediaType.ALL))
+                .andExpect(MockMvcResultMatchers.request().asyncNotStarted())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(7));
+        Mockito.verify(ordersRepository, Mockito.never()).streamByOrdersAccountIdOrderByOrderDateDescIdAsc(any());
+    }
+
+    @Test void shouldStreamOrders_forAccountId_asNdjson() throws Exception {
+        Orders newest = Orders.builder().id(9L).ordersAccount(ordersAccount).orderNumber(orderNumber).build();
+        Orders older = Orders.builder().id(7L).ordersAccount(ordersAccount).orderNumber(orderNumber).build();
+
+        when(ordersRepository.streamByOrdersAccountIdOrderByOrderDateDescIdAsc(100L)).thenReturn(Stream.of(newest, older));
+
+        MvcResult streaming = mockMvc.perform(MockMvcRequestBuilders.get("/orders/stream").param("accountId", "100"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(streaming))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(mapper.readValue(lines[0], Orders.class).getId()).isEqualTo(9L);
+        assertThat(mapper.readValue(lines[1], Orders.class).getId()).isEqualTo(7L);
+    }
+
     @Test void shouldFindOrders_forOrderId() throws Exception {
         Orders toFind = Orders.builder()
                 .id(1L)
@@ -242,8 +465,8 @@ class OrdersServiceIntegrationTests {
 
         toFind.sumLineItems(toFind.getOrderLineItems());
 
-        when (ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
-        when(ordersRepository.getReferenceById(1L)).thenReturn(toFind);
+        when(ordersRepository.findVersionById(1L)).thenReturn(Optional.of(new OrdersVersion(1L, version)));
+        when(ordersRepository.findLineItemsById(1L)).thenReturn(Optional.of(toFind));
         mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}/lines", 1L)
                         .accept(MediaType.APPLICATION_JSON)
                         .contentType(MediaType.APPLICATION_JSON))
@@ -273,8 +496,7 @@ class OrdersServiceIntegrationTests {
                 .orderDate(Instant.now(Clock.systemUTC()))
                 .orderLineItems(Set.of(firstProduct)).build();
 
-        when (ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
-        when(ordersRepository.getReferenceById(1L)).thenReturn(davidKingMoonMousePad);
+        when(ordersRepository.findDetailsById(1L)).thenReturn(Optional.of(davidKingMoonMousePad));
 
         mockMvc.perform(MockMvcRequestBuilders.get("/orders/{id}/details", 1L)
                         .accept(MediaType.APPLICATION_JSON)
@@ -410,6 +632,46 @@ class OrdersServiceIntegrationTests {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[*].orderLineItems").exists());
     }
 
+    @Test
+    void shouldFindOrderSummaries_forAccount_withSummaryView() throws Exception {
+        Instant orderDate = Instant.parse("2023-09-01T10:00:00Z");
+        when(ordersRepository.findSummariesByAccountId(100L)).thenReturn(List.of(
+                new OrderSummary(7L, orderNumber, orderDate, new BigDecimal("33.99"))));
+
+        // no Accept or */*, the listing is JSON, the NDJSON history stream is only on /orders/stream
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders").param("accountId", "100").param("view", "summary"))
+                .andDo(print())
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].orderNumber").value(orderNumber))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].orderDate").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].totalPrice").value(33.99))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].ordersAccount").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].orderLineItems").doesNotExist());
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders").param("accountId", "100").param("view", "summary")
+                        .accept(MediaType.ALL))
+                .andExpect(MockMvcResultMatchers.request().asyncNotStarted())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(7));
+        Mockito.verify(ordersRepository, Mockito.never()).findAllByOrdersAccountIdOrderByOrderDateDesc(any());
+        Mockito.verify(ordersRepository, Mockito.never()).streamByOrdersAccountIdOrderByOrderDateDescIdAsc(any());
+    }
+
+    @Test
+    void shouldFindOrderSummariesPage_withKeysetCursor() throws Exception {
+        when(ordersRepository.findSummariesByIdGreaterThan(5L, PageRequest.of(0, 2))).thenReturn(List.of(
+                new OrderSummary(7L, orderNumber, Instant.now(), BigDecimal.TEN),
+                new OrderSummary(9L, orderNumber, Instant.now(), BigDecimal.ONE)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/orders").param("view", "summary").param("after", "5").param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.orders.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.orders[0].id").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(7));
+    }
+
     private Orders findByIdOrders() {
         Orders toFind = Orders.builder()
                 .id(1L)
@@ -437,7 +699,7 @@ class OrdersServiceIntegrationTests {
         return toFind;
     }
     private void whenConditionsFor_FindByIdOrders(final Orders foundOrder) {
-        when(ordersRepository.existsById(1L)).thenReturn(Boolean.TRUE);
-        when(ordersRepository.getReferenceById(1L)).thenReturn(foundOrder);
+        when(ordersRepository.findVersionById(1L)).thenReturn(Optional.of(new OrdersVersion(1L, version)));
+        when(ordersRepository.findAggregateById(1L)).thenReturn(Optional.of(foundOrder));
     }
 }
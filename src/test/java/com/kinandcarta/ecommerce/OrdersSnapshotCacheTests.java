@@ -0,0 +1,159 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.exceptions.OrdersNotFoundException;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersSnapshotCache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static com.kinandcarta.ecommerce.TestModels.twoLineItems;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+    Every write commits, the snapshot cache only caches outside of transactions.
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrdersHandler.class, OrdersConfiguration.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrdersSnapshotCacheTests {
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersSnapshotCache ordersSnapshotCache;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    Statistics statistics;
+    Orders saved;
+
+    @BeforeEach
+    void setUp() {
+        ordersSnapshotCache.evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Orders model = newOrder(twoLineItems());
+        model.setTotalPrice(new BigDecimal("33.99"));
+        saved = ordersHandler.create(model);
+        statistics.clear();
+    }
+
+    @Test
+    void shouldServe_repeatReads_fromSnapshots() {
+        Orders first = ordersHandler.findById(saved.getId());
+        AccountOrderDetails firstDetails = ordersHandler.findByIdDetailedView(saved.getId());
+        long statementsToLoad = statistics.getPrepareStatementCount();
+
+        Orders second = ordersHandler.findById(saved.getId());
+        AccountOrderDetails secondDetails = ordersHandler.findByIdDetailedView(saved.getId());
+
+        // the aggregate, the account's addresses (left lazy) and the details view
+        assertThat(statementsToLoad).isEqualTo(3L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statementsToLoad);
+        // each read gets its own detached copy, changing one cannot reach the cache
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getOrderLineItems()).isEqualTo(first.getOrderLineItems());
+        assertThat(secondDetails.getLineItems()).hasSize(2).isEqualTo(firstDetails.getLineItems());
+        first.setOrderNumber("ord-mutated-by-a-caller");
+        assertThat(ordersHandler.findById(saved.getId()).getOrderNumber()).isEqualTo(saved.getOrderNumber());
+    }
+
+    @Test
+    void shouldNotServe_staleOrder_afterUpdate() {
+        assertThat(ordersHandler.findById(saved.getId()).getTotalPrice()).isEqualByComparingTo("33.99");
+        assertThat(ordersHandler.findByIdDetailedView(saved.getId()).getTotalPrice()).isEqualByComparingTo("33.99");
+
+        Orders changes = ordersHandler.findById(saved.getId());
+        changes.setOrderNumber("ord-" + UUID.randomUUID());
+        changes.setTotalPrice(new BigDecimal("99.00"));
+        ordersHandler.update(saved.getId(), changes);
+
+        Orders found = ordersHandler.findById(saved.getId());
+        assertThat(found.getOrderNumber()).isEqualTo(changes.getOrderNumber());
+        assertThat(found.getTotalPrice()).isEqualByComparingTo("99.00");
+        AccountOrderDetails details = ordersHandler.findByIdDetailedView(saved.getId());
+        assertThat(details.getOrderNumber()).isEqualTo(changes.getOrderNumber());
+        assertThat(details.getTotalPrice()).isEqualByComparingTo("99.00");
+    }
+
+    @Test
+    void shouldNotServe_deletedOrder() {
+        ordersHandler.findById(saved.getId());
+
+        ordersHandler.delete(saved.getId());
+
+        assertThatThrownBy(() -> ordersHandler.findById(saved.getId())).isInstanceOf(OrdersNotFoundException.class);
+    }
+
+    @Test
+    void shouldDrop_loadThatRacedTheCommit() throws Exception {
+        OrdersSnapshotCache cache = new OrdersSnapshotCache(1_000, Duration.ofMinutes(1));
+        OrdersSnapshot before = OrdersSnapshot.of(saved, true);
+        OrdersSnapshot after = OrdersSnapshot.of(Orders.builder().id(saved.getId()).orderNumber("ord-after-commit").build(), true);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+
+        // the writer evicts, then a reader loads the old row before the writer has committed
+        CompletableFuture<OrdersSnapshot> reader = new TransactionTemplate(transactionManager).execute(status -> {
+            cache.evict(saved.getId());
+            CompletableFuture<OrdersSnapshot> racing = CompletableFuture.supplyAsync(() ->
+                    cache.get(saved.getId(), OrdersSnapshotCache.View.AGGREGATE, id -> {
+                        loads.incrementAndGet();
+                        loading.countDown();
+                        sleep(300);
+                        return before;
+                    }));
+            await(loading);
+            return racing;
+        });
+
+        assertThat(reader.get(5, TimeUnit.SECONDS)).isSameAs(before);
+        OrdersSnapshot afterCommit = cache.get(saved.getId(), OrdersSnapshotCache.View.AGGREGATE, id -> {
+            loads.incrementAndGet();
+            return after;
+        });
+        assertThat(afterCommit).isSameAs(after);
+        assertThat(loads).hasValue(2);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
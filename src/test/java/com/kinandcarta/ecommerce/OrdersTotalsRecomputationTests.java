@@ -0,0 +1,250 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static com.kinandcarta.ecommerce.TestModels.newLineItem;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/*
+    The recomputation over the H2 schema of the entities, with the checkpoint tables of db/migration V11 and V12.
+    Ranges of two ids and batches of one order, so that a handful of orders spans several ranges and checkpoints.
+ */
+@DataJpaTest
+@Import({OrdersHandler.class, OrdersConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+class OrdersTotalsRecomputationTests {
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersRepository ordersRepository;
+    @Autowired
+    OrdersChangeEventRepository ordersChangeEventRepository;
+    @Autowired
+    OrdersOutbox ordersOutbox;
+    @Autowired
+    OrdersSnapshotCache ordersSnapshotCache;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    DataSource dataSource;
+
+    JdbcTemplate jdbcTemplate;
+    OrdersTotalsRecomputation recomputation;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS orders_totals_range");
+            statement.execute("DROP TABLE IF EXISTS orders_totals_run");
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V11__orders_totals_checkpoints.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V12__orders_totals_range_lease.sql"));
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        recomputation = new OrdersTotalsRecomputation(dataSource, transactionManager, ordersOutbox, ordersSnapshotCache,
+                new ForkJoinPool(2), 2, 2L, 1, 10, Duration.ofMillis(50), true, Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        recomputation.shutdown();
+    }
+
+    @Test
+    void recompute_writesBackTheTotalsThatChanged() {
+        Orders repriced = ordersHandler.create(newOrder(Set.of(newLineItem(1L, 2, "10.00"))));
+        Orders wrongTotal = ordersHandler.create(newOrder(Set.of(newLineItem(1L, 3, "2.50"))));
+        Orders unchanged = ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "7.25"))));
+        // create stores no line totals, and the resume test leaves totals behind on purpose: a first run brings every order in line
+        recomputation.start(false);
+        awaitFinished();
+        // a pricing fix that left the totals behind
+        jdbcTemplate.update("UPDATE order_line_items SET price = ? WHERE order_id = ?", new BigDecimal("12.50"), repriced.getId());
+        jdbcTemplate.update("UPDATE orders SET total_price = ? WHERE id = ?", new BigDecimal("99.99"), wrongTotal.getId());
+        Instant repricedVersion = version(repriced.getId());
+        Instant unchangedVersion = version(unchanged.getId());
+        Set<Long> earlierEvents = ordersChangeEventRepository.findAll().stream().map(OrdersChangeEvent::getId).collect(Collectors.toSet());
+
+        recomputation.start(false);
+        OrdersTotalsRecomputation.Progress progress = awaitFinished();
+
+        assertThat(progress.status()).isEqualTo(OrdersTotalsCheckpoints.Status.COMPLETED);
+        assertThat(progress.percentDone()).isEqualTo(100.0);
+        assertThat(progress.rangesCompleted()).isEqualTo(progress.ranges());
+        assertThat(progress.ordersChanged()).isEqualTo(2);
+        assertThat(progress.linesChanged()).isEqualTo(1);
+        assertThat(progress.ordersSkipped()).isZero();
+
+        assertThat(totalPrice(repriced.getId())).isEqualByComparingTo("25.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT total_price FROM order_line_items WHERE order_id = ?", BigDecimal.class, repriced.getId()))
+                .isEqualByComparingTo("25.00");
+        assertThat(totalPrice(wrongTotal.getId())).isEqualByComparingTo("7.50");
+        assertThat(totalPrice(unchanged.getId())).isEqualByComparingTo("7.25");
+
+        // written as Hibernate writes updated_dt, ETags and change events move on
+        assertThat(version(repriced.getId())).isAfter(repricedVersion);
+        assertThat(version(unchanged.getId())).isEqualTo(unchangedVersion);
+        assertThat(ordersChangeEventRepository.findAll())
+                .filteredOn(event -> !earlierEvents.contains(event.getId()))
+                .filteredOn(event -> Set.of(repriced.getId(), wrongTotal.getId(), unchanged.getId()).contains(event.getOrderId()))
+                .extracting(OrdersChangeEvent::getOrderId, OrdersChangeEvent::getType, OrdersChangeEvent::getOrderVersion)
+                .containsExactlyInAnyOrder(
+                        tuple(repriced.getId(), OrdersChangeEvent.Type.UPDATED, version(repriced.getId())),
+                        tuple(wrongTotal.getId(), OrdersChangeEvent.Type.UPDATED, version(wrongTotal.getId())));
+    }
+
+    @Test
+    void restart_resumesEveryRangeFromItsCheckpoint() {
+        List<Orders> orders = List.of(
+                ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "1.00")))),
+                ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "2.00")))),
+                ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "3.00")))));
+        jdbcTemplate.update("UPDATE orders SET total_price = ?", BigDecimal.ZERO);
+
+        // a run the previous instance left RUNNING, past the first of the orders
+        OrdersTotalsCheckpoints checkpoints = new OrdersTotalsCheckpoints(dataSource);
+        checkpoints.create(UUID.randomUUID().toString(), 2L, Instant.now());
+        long first = orders.get(0).getId();
+        jdbcTemplate.update("UPDATE orders_totals_range SET next_id = ?, completed = ?, orders_read = 1"
+                + " WHERE range_start <= ? AND range_end > ?", first + 1, false, first, first);
+        jdbcTemplate.update("UPDATE orders_totals_range SET next_id = range_end, completed = ? WHERE range_end <= ?", true, first);
+
+        recomputation.resumeInterrupted();
+        OrdersTotalsRecomputation.Progress progress = awaitFinished();
+
+        assertThat(progress.status()).isEqualTo(OrdersTotalsCheckpoints.Status.COMPLETED);
+        // below the checkpoint nothing was read again
+        assertThat(totalPrice(first)).isEqualByComparingTo("0.00");
+        assertThat(totalPrice(orders.get(1).getId())).isEqualByComparingTo("2.00");
+        assertThat(totalPrice(orders.get(2).getId())).isEqualByComparingTo("3.00");
+        assertThat(progress.ordersRead()).isEqualTo(3);
+    }
+
+    @Test
+    void start_withNothingOpen_startsANewRun_andRestartAbandonsAnOpenOne() {
+        ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "1.00"))));
+        String open = new OrdersTotalsCheckpoints(dataSource).create(UUID.randomUUID().toString(), 2L, Instant.now()).id();
+        jdbcTemplate.update("UPDATE orders_totals_run SET status = ? WHERE id = ?", OrdersTotalsCheckpoints.Status.STOPPED.name(), open);
+
+        String restarted = recomputation.start(true).runId();
+        awaitFinished();
+
+        assertThat(restarted).isNotEqualTo(open);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders_totals_run WHERE id = ?", String.class, open))
+                .isEqualTo(OrdersTotalsCheckpoints.Status.ABANDONED.name());
+        // nothing open, the next start is a new run over every order
+        String next = recomputation.start(false).runId();
+        assertThat(awaitFinished().status()).isEqualTo(OrdersTotalsCheckpoints.Status.COMPLETED);
+        assertThat(next).isNotIn(open, restarted);
+    }
+
+    @Test
+    void resume_skipsTheRangesAnotherInstanceHolds_andTakesOverExpiredLeases() {
+        List<Orders> orders = List.of(
+                ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "1.00")))),
+                ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "2.00")))),
+                ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "3.00")))));
+        jdbcTemplate.update("UPDATE orders SET total_price = ?", BigDecimal.ZERO);
+        long first = orders.get(0).getId();
+        long last = orders.get(2).getId();
+
+        // a run another instance works on: it holds the first order's range, its lease on the last one's ran out
+        OrdersTotalsCheckpoints checkpoints = new OrdersTotalsCheckpoints(dataSource);
+        String runId = checkpoints.create(UUID.randomUUID().toString(), 1L, Instant.now()).id();
+        jdbcTemplate.update("UPDATE orders_totals_range SET next_id = range_end, completed = ? WHERE range_end <= ?", true, first);
+        Instant now = Instant.now();
+        checkpoints.claim(range(checkpoints, runId, first), "other", now, now.plus(Duration.ofMinutes(5))).orElseThrow();
+        checkpoints.claim(range(checkpoints, runId, last), "other", now, now.minus(Duration.ofMinutes(5))).orElseThrow();
+
+        recomputation.resumeInterrupted();
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (rangesOpen(runId) > 1 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        assertThat(totalPrice(first)).isEqualByComparingTo("0.00");
+        assertThat(totalPrice(orders.get(1).getId())).isEqualByComparingTo("2.00");
+        assertThat(totalPrice(last)).isEqualByComparingTo("3.00");
+        // the held range is left to its owner, so the run is not finished
+        assertThat(rangesOpen(runId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT owner FROM orders_totals_range WHERE run_id = ? AND range_start = ?",
+                String.class, runId, first)).isEqualTo("other");
+        assertThat(recomputation.progress().orElseThrow().status()).isEqualTo(OrdersTotalsCheckpoints.Status.RUNNING);
+    }
+
+    @Test
+    void checkpoint_ofARangeTakenOver_isRefused() {
+        Orders order = ordersHandler.create(newOrder(Set.of(newLineItem(1L, 1, "1.00"))));
+        OrdersTotalsCheckpoints checkpoints = new OrdersTotalsCheckpoints(dataSource);
+        String runId = checkpoints.create(UUID.randomUUID().toString(), 1L, Instant.now()).id();
+        OrdersTotalsCheckpoints.Range range = range(checkpoints, runId, order.getId());
+        Instant now = Instant.now();
+        OrdersTotalsCheckpoints.Counts counts = new OrdersTotalsCheckpoints.Counts(1, 1, 0, 1);
+
+        OrdersTotalsCheckpoints.Range claimed = checkpoints.claim(range, "first", now, now.minusSeconds(1)).orElseThrow();
+        // the lease has run out, a second instance takes the range over
+        assertThat(checkpoints.claim(range, "second", now, now.plus(Duration.ofMinutes(5)))).isPresent();
+
+        assertThat(checkpoints.checkpoint(claimed, range.end(), true, counts, "first", now.plus(Duration.ofMinutes(5)))).isFalse();
+        assertThat(checkpoints.open(runId)).contains(range);
+        assertThat(checkpoints.checkpoint(claimed, range.end(), true, counts, "second", now.plus(Duration.ofMinutes(5)))).isTrue();
+        assertThat(checkpoints.open(runId)).doesNotContain(range);
+    }
+
+    private static OrdersTotalsCheckpoints.Range range(final OrdersTotalsCheckpoints checkpoints, final String runId, final long orderId) {
+        return checkpoints.open(runId).stream()
+                .filter(open -> open.start() <= orderId && open.end() > orderId).findFirst().orElseThrow();
+    }
+
+    private int rangesOpen(final String runId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_totals_range WHERE run_id = ? AND completed = ?",
+                Integer.class, runId, false);
+    }
+
+    private OrdersTotalsRecomputation.Progress awaitFinished() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        OrdersTotalsRecomputation.Progress progress = recomputation.progress().orElseThrow();
+        while (progress.status() == OrdersTotalsCheckpoints.Status.RUNNING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            progress = recomputation.progress().orElseThrow();
+        }
+        return progress;
+    }
+
+    private BigDecimal totalPrice(final Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT total_price FROM orders WHERE id = ?", BigDecimal.class, orderId);
+    }
+
+    private Instant version(final Long orderId) {
+        return ordersRepository.findVersionById(orderId).orElseThrow().version();
+    }
+}
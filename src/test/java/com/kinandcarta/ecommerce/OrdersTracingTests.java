@@ -0,0 +1,155 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.clients.AccountServiceClient;
+import com.kinandcarta.ecommerce.entities.*;
+import com.kinandcarta.ecommerce.infrastructure.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+    OrdersController as an advised bean over the handler and repositories on H2, requests through MockMvc with
+    the trace filter in front; every request is sampled.
+ */
+@DataJpaTest
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+@Import({OrdersHandler.class, OrdersConfiguration.class, OrdersTracingTests.Tracing.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+class OrdersTracingTests {
+    private static final int SLOWEST = 3;
+
+    @TestConfiguration
+    static class Tracing {
+        @Bean
+        OrdersTracingAspect ordersTracingAspect() {
+            return new OrdersTracingAspect();
+        }
+
+        @Bean
+        OrdersTraceRecorder ordersTraceRecorder() {
+            return new OrdersTraceRecorder(1.0, 10, SLOWEST);
+        }
+
+        // outside a web application context, the controller's condition is not checked for a @Bean method
+        @Bean
+        OrdersController ordersController(final OrdersHandler ordersHandler, final AccountServiceClient accountServiceClient,
+                                          final MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter,
+                                          final OrdersJsonCache ordersJsonCache) {
+            return new OrdersController(ordersHandler, accountServiceClient, mappingJackson2HttpMessageConverter, ordersJsonCache);
+        }
+    }
+
+    @Autowired
+    OrdersController ordersController;
+    @Autowired
+    OrdersTraceRecorder ordersTraceRecorder;
+    @MockBean
+    AccountServiceClient accountServiceClient;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ordersTraceRecorder.clear();
+        mockMvc = MockMvcBuilders.standaloneSetup(ordersController)
+                .addFilters(new OrdersTraceFilter(ordersTraceRecorder, true, 200))
+                .build();
+    }
+
+    @Test
+    void create_isTraced_andSummarizedInServerTiming() throws Exception {
+        Orders model = newOrder();
+        when(accountServiceClient.findByAccountIdRef(anyString())).thenReturn(model.getOrdersAccount());
+
+        MvcResult result = mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestModels.mapper.writeValueAsString(model)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(result.getResponse().getHeader("Server-Timing"))
+                .contains("controller;dur=", "handler;dur=", "validation;dur=", "repository;dur=")
+                .matches(".*, total;dur=\\d+\\.\\d");
+
+        List<OrdersTrace.Record> traces = ordersTraceRecorder.slowest();
+        assertThat(traces).hasSize(1);
+        OrdersTrace.Record trace = traces.get(0);
+        assertThat(trace.method()).isEqualTo("POST");
+        assertThat(trace.uri()).isEqualTo("/orders");
+        assertThat(trace.status()).isEqualTo(200);
+        assertThat(trace.spans()).extracting(OrdersTrace.SpanRecord::name)
+                .startsWith("OrdersController.create")
+                .contains("OrdersHandler.create", "OrdersHandler.validateForCreate", "OrdersRepository.save");
+        OrdersTrace.SpanRecord controller = trace.spans().get(0);
+        assertThat(controller.depth()).isZero();
+        assertThat(trace.spans()).filteredOn(span -> span.name().equals("OrdersRepository.save"))
+                .allSatisfy(span -> assertThat(span.depth()).isGreaterThan(controller.depth()));
+        assertThat(trace.durationMillis()).isGreaterThanOrEqualTo(controller.durationMillis());
+    }
+
+    @Test
+    void failedCalls_areMarked() throws Exception {
+        mockMvc.perform(get("/orders/{id}/details", Long.MAX_VALUE)).andExpect(status().isNotFound());
+
+        assertThat(ordersTraceRecorder.slowest().get(0).spans())
+                .filteredOn(span -> span.name().equals("OrdersHandler.findByIdDetailedView"))
+                .extracting(OrdersTrace.SpanRecord::error).containsExactly("OrdersNotFoundException");
+    }
+
+    @Test
+    void inSpan_returnsTheResult_andMarksFailures() {
+        OrdersTrace trace = OrdersTrace.begin(10);
+        try {
+            assertThat(OrdersTrace.inSpan(OrdersTrace.VALIDATION, "valid", () -> 42)).isEqualTo(42);
+            assertThatThrownBy(() -> OrdersTrace.inSpan(OrdersTrace.VALIDATION, "invalid", () -> {
+                throw new IllegalArgumentException("invalid");
+            })).isInstanceOf(IllegalArgumentException.class);
+        } finally {
+            trace.end();
+        }
+
+        assertThat(trace.record("POST", "/orders", 400).spans())
+                .extracting(OrdersTrace.SpanRecord::name, OrdersTrace.SpanRecord::depth, OrdersTrace.SpanRecord::error)
+                .containsExactly(tuple("valid", 0, null), tuple("invalid", 0, "IllegalArgumentException"));
+    }
+
+    @Test
+    void recorder_keepsTheSlowestOfTheRecentRequests() {
+        OrdersTraceRecorder recorder = new OrdersTraceRecorder(1.0, 4, 2);
+        for (double duration : new double[]{50, 10, 40, 20, 30, 5}) {
+            recorder.record(new OrdersTrace.Record("GET", "/orders/" + duration, 200, Instant.now(), duration, List.of(), 0));
+        }
+
+        // 50 and 10 were overwritten by the last two
+        assertThat(recorder.slowest()).extracting(OrdersTrace.Record::durationMillis).containsExactly(40.0, 30.0);
+    }
+}
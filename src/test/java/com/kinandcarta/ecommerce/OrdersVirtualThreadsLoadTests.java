@@ -0,0 +1,214 @@
+package com.kinandcarta.ecommerce;
+
+import com.kinandcarta.ecommerce.clients.AccountServiceClient;
+import com.kinandcarta.ecommerce.clients.AccountsServiceInstances;
+import com.kinandcarta.ecommerce.infrastructure.OrdersConfiguration;
+import com.kinandcarta.ecommerce.infrastructure.OrdersJsonCache;
+import com.kinandcarta.ecommerce.infrastructure.OrdersRepository;
+import com.kinandcarta.ecommerce.infrastructure.VirtualThreadPinningMonitor;
+import com.kinandcarta.ecommerce.infrastructure.VirtualThreadsConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.AbstractProtocol;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.kinandcarta.ecommerce.TestModels.mapper;
+import static com.kinandcarta.ecommerce.TestModels.newAccount;
+import static com.kinandcarta.ecommerce.TestModels.newOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Thread-per-request against virtual threads on the service's own create path: POST /orders through
+    OrdersController, the blocking AccountServiceClient lookup against an accounts service stub that answers
+    after BLOCKED_MILLIS, and the OrdersHandler insert over JPA and the Hikari pool on H2. Every order has an
+    account of its own, so each request waits on the stub once. Pinning in the virtual thread run is counted
+    by VirtualThreadPinningMonitor and logged; H2's locking is not the MySQL driver's, so it is not asserted.
+    Runs only on JDK 21+ (gradle virtualThreadsTest).
+ */
+@Slf4j
+@EnabledForJreRange(min = JRE.JAVA_21)
+// no SQL echo, as the service runs (@DataJpaTest turns show-sql on)
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders_load;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // a connection per platform thread, both runs share the same pool limit
+        "spring.datasource.hikari.maximum-pool-size=" + OrdersVirtualThreadsLoadTests.PLATFORM_MAX_THREADS
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrdersHandler.class, OrdersConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+class OrdersVirtualThreadsLoadTests {
+    static final int PLATFORM_MAX_THREADS = 10;
+    private static final int CONCURRENT_REQUESTS = 200;
+    private static final long BLOCKED_MILLIS = 500;
+
+    @Autowired
+    OrdersHandler ordersHandler;
+    @Autowired
+    OrdersRepository ordersRepository;
+    @Autowired
+    MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter;
+    @Autowired
+    OrdersJsonCache ordersJsonCache;
+
+    DisposableServer accountsService;
+    AccountServiceClient accountServiceClient;
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        // the accounts service answers every reference id, after the time a remote lookup takes
+        accountsService = HttpServer.create().port(0)
+                .route(routes -> routes.get("/accounts/{id}/reference", (request, response) ->
+                        response.header("Content-Type", "application/json")
+                                .sendString(Mono.delay(Duration.ofMillis(BLOCKED_MILLIS))
+                                        .then(Mono.fromCallable(() -> mapper.writeValueAsString(newAccount(request.param("id"))))))))
+                .bindNow();
+
+        meterRegistry = new SimpleMeterRegistry();
+        AccountsServiceInstances accountsServiceInstances = new AccountsServiceInstances(Mockito.mock(ReactiveDiscoveryClient.class));
+        ReflectionTestUtils.setField(accountsServiceInstances, "baseURL", "http://localhost:" + accountsService.port());
+        ReflectionTestUtils.setField(accountsServiceInstances, "accountsServiceName", "accounts-service");
+
+        accountServiceClient = new AccountServiceClient(WebClient.builder(), meterRegistry, accountsServiceInstances);
+        ReflectionTestUtils.setField(accountServiceClient, "getAccountIdUri", "/accounts/{id}/reference");
+        ReflectionTestUtils.setField(accountServiceClient, "cacheMaximumSize", 10_000L);
+        ReflectionTestUtils.setField(accountServiceClient, "cacheExpireAfterWrite", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(accountServiceClient, "cacheRefreshAfterWrite", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(accountServiceClient, "cacheNotFoundExpireAfterWrite", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(accountServiceClient, "connectTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(accountServiceClient, "readTimeout", Duration.ofSeconds(5));
+        // a connection per request in flight, the accounts client is not what is measured
+        ReflectionTestUtils.setField(accountServiceClient, "poolMaxConnections", CONCURRENT_REQUESTS);
+        ReflectionTestUtils.setField(accountServiceClient, "poolPendingAcquireMaxCount", 1000);
+        ReflectionTestUtils.setField(accountServiceClient, "poolPendingAcquireTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(accountServiceClient, "poolMaxIdleTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(accountServiceClient, "poolMaxLifeTime", Duration.ofMinutes(5));
+        accountServiceClient.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountServiceClient.destroy();
+        accountsService.disposeNow();
+    }
+
+    @Test
+    void virtualThreads_outperform_threadPerRequest_onCreate() throws Exception {
+        TomcatProtocolHandlerCustomizer<AbstractProtocol<?>> platform =
+                protocolHandler -> protocolHandler.setMaxThreads(PLATFORM_MAX_THREADS);
+        TomcatProtocolHandlerCustomizer<?> virtual =
+                new VirtualThreadsConfiguration().virtualThreadsProtocolHandlerCustomizer();
+        long existing = ordersRepository.count();
+
+        double platformThroughput = throughput(platform);
+        double virtualThroughput;
+        try (VirtualThreadPinningMonitor pinningMonitor = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(20))) {
+            pinningMonitor.start();
+            virtualThroughput = throughput(virtual);
+        }
+        log.info("creates per second, thread-per-request ({} threads): {}, virtual threads: {}, pinned over 20ms: {}",
+                PLATFORM_MAX_THREADS, Math.round(platformThroughput), Math.round(virtualThroughput),
+                Math.round(meterRegistry.get("orders.virtual.threads.pinned").counter().count()));
+
+        // warm-up and timed requests of both runs, every one created its order
+        assertThat(ordersRepository.count()).isEqualTo(existing + 4L * CONCURRENT_REQUESTS);
+        // thread-per-request tops out near PLATFORM_MAX_THREADS * 1000 / BLOCKED_MILLIS
+        assertThat(virtualThroughput).isGreaterThan(platformThroughput * 2);
+    }
+
+    private double throughput(final TomcatProtocolHandlerCustomizer<?> customizer) throws Exception {
+        // OrdersController over this test's handler and the accounts client, behind Spring MVC as in the service
+        GenericWebApplicationContext web = new GenericWebApplicationContext();
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(web);
+        web.registerBean(Mvc.class);
+        web.registerBean(MappingJackson2HttpMessageConverter.class, () -> mappingJackson2HttpMessageConverter);
+        web.registerBean(OrdersController.class, () -> new OrdersController(ordersHandler, accountServiceClient,
+                mappingJackson2HttpMessageConverter, ordersJsonCache));
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        // room in the accept backlog for every client, so only request handling is measured
+        factory.addConnectorCustomizers(connector -> connector.setProperty("acceptCount", String.valueOf(CONCURRENT_REQUESTS)));
+        factory.addProtocolHandlerCustomizers(customizer);
+        WebServer server = factory.getWebServer(context ->
+                context.addServlet("dispatcher", new DispatcherServlet(web)).addMapping("/"));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI orders = URI.create("http://localhost:" + server.getPort() + "/orders");
+            // open the keep-alive connections and warm up the JIT before timing
+            create(client, orders, CONCURRENT_REQUESTS);
+
+            long start = System.nanoTime();
+            create(client, orders, CONCURRENT_REQUESTS);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+            return CONCURRENT_REQUESTS / seconds;
+        } finally {
+            server.stop();
+            web.close();
+        }
+    }
+
+    private static void create(final HttpClient client, final URI orders, final int requests) throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            HttpRequest request = HttpRequest.newBuilder(orders)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(newOrder())))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        responses.forEach(response -> assertThat(response.join().statusCode()).isEqualTo(200));
+    }
+
+    // not a @Configuration, the test context would pick it up as its own
+    @EnableWebMvc
+    static class Mvc implements WebMvcConfigurer {
+        @Autowired
+        MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter;
+
+        @Override
+        public void configureMessageConverters(final List<HttpMessageConverter<?>> converters) {
+            converters.add(mappingJackson2HttpMessageConverter);
+        }
+    }
+}
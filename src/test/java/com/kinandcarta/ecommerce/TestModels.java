@@ -4,10 +4,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.kinandcarta.ecommerce.entities.OrderLineItems;
+import com.kinandcarta.ecommerce.entities.Orders;
 import com.kinandcarta.ecommerce.entities.OrdersAccount;
 import com.kinandcarta.ecommerce.entities.OrdersAddress;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 
@@ -66,4 +70,70 @@ public final class TestModels {
             .productId(5L)
             .build();
 
+    // for tests that persist: a new graph on every call, each with its own account ref, e-mail and order number
+
+    public static Orders newOrder() {
+        return newOrder(Set.of(newLineItem(1L, 2, "10")));
+    }
+
+    public static Orders newOrder(final Set<OrderLineItems> lineItems) {
+        return newOrder(newAccount(), lineItems);
+    }
+
+    public static Orders newOrder(final OrdersAccount account, final Set<OrderLineItems> lineItems) {
+        return Orders.builder()
+                .ordersAccount(account)
+                .ordersShippingAddress(newAddress())
+                .orderNumber("ord-" + UUID.randomUUID())
+                .orderDate(Instant.now(Clock.systemUTC()))
+                .orderLineItems(lineItems).build();
+    }
+
+    public static Set<OrderLineItems> twoLineItems() {
+        return Set.of(newLineItem(1L, 2, "10"), newLineItem(3L, 1, "13.99"));
+    }
+
+    public static OrdersAccount newAccount() {
+        return newAccount(UUID.randomUUID().toString());
+    }
+
+    public static OrdersAccount newAccount(final String accountRefId) {
+        return OrdersAccount.builder()
+                .accountRefId(accountRefId)
+                .firstName("DukeFirstName")
+                .lastName("DukeLastName")
+                .emailAddress(accountRefId + "@enjoy.com")
+                .addresses(Set.of(newAddress())).build();
+    }
+
+    public static OrdersAddress newAddress() {
+        return newAddress("100");
+    }
+
+    public static OrdersAddress newAddress(final String address1) {
+        return OrdersAddress.builder()
+                .address1(address1)
+                .address2("")
+                .city("Food Forest City")
+                .state("FL")
+                .province("")
+                .postalCode("33000")
+                .country("US").build();
+    }
+
+    public static OrderLineItems newLineItem(final Long productId, final int quantity, final String price) {
+        return OrderLineItems.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .price(new BigDecimal(price)).build();
+    }
+
+    // count lines of distinct products, for tests where only the number of lines matters
+    public static Set<OrderLineItems> newLineItems(final int count) {
+        Set<OrderLineItems> lineItems = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            lineItems.add(newLineItem((long) i + 1, i % 5 + 1, "4.25"));
+        }
+        return lineItems;
+    }
 }